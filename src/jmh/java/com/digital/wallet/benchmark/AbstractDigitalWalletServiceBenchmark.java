@@ -0,0 +1,218 @@
+package com.digital.wallet.benchmark;
+
+import static com.digital.wallet.config.Constants.MINIMUM_DEPOSIT;
+
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.service.DigitalWalletService;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Measures throughput and latency (sample mode gives the p50/p99...) of the {@link DigitalWalletService} operations
+ * for the implementations and write modes given by the subclasses, so that each one only lists the combinations the
+ * application supports. The number of threads is set by the runner, see {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public abstract class AbstractDigitalWalletServiceBenchmark {
+
+    static final String CURRENCY = "GBP";
+
+    static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000_000);
+
+    static final Pageable FIRST_PAGE = PageRequest.of(0, 20);
+
+    /**
+     * Number of operations per {@link DigitalWalletService#executeBatch} call. Throughput is in batches, not operations.
+     */
+    static final int BATCH_SIZE = 100;
+
+    @Param({ WalletBenchmarkContext.H2, WalletBenchmarkContext.POSTGRES })
+    public String database;
+
+    @Param({ "16", "1024" })
+    public int accounts;
+
+    /**
+     * Exponent of the Zipf distribution used to pick accounts. 0 means uniform.
+     */
+    @Param({ "0", "1.1" })
+    public double skew;
+
+    WalletBenchmarkContext context;
+
+    DigitalWalletService service;
+
+    long[] customerIds;
+
+    KeyDistribution keys;
+
+    /**
+     * @return the name of the implementation to benchmark, see {@link WalletBenchmarkContext#getService}
+     */
+    protected abstract String implementation();
+
+    /**
+     * @return the write mode, see {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode}
+     */
+    protected abstract String writeMode();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context =
+            WalletBenchmarkContext.start(
+                this.database,
+                WalletBenchmarkContext.propertiesFor(implementation(), "application.wallet.write-mode=" + writeMode())
+            );
+        this.service = this.context.getService(implementation());
+        this.customerIds = this.context.createAccounts(this.accounts, CURRENCY, INITIAL_BALANCE);
+        for (long customerId : this.customerIds) {
+            // A bit of history for getTransactions
+            for (int i = 0; i < 5; i++) {
+                this.context.getService("internal").executeDeposit(customerId, CURRENCY, MINIMUM_DEPOSIT, "setup");
+            }
+        }
+        this.keys = new KeyDistribution(this.accounts, this.skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    long nextCustomerId() {
+        return this.customerIds[this.keys.next()];
+    }
+
+    /**
+     * @return a customer other than the given one
+     */
+    long nextCustomerIdOtherThan(long customerId) {
+        long other = nextCustomerId();
+        while (other == customerId) {
+            other = this.customerIds[ThreadLocalRandom.current().nextInt(this.customerIds.length)];
+        }
+        return other;
+    }
+
+    @Benchmark
+    public void deposit(Blackhole blackhole) {
+        try {
+            this.service.executeDeposit(nextCustomerId(), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            // Expected with the "internal" implementation that does not prevent concurrent modifications, and with the
+            // "optimistic" one once its retries are exhausted
+            blackhole.consume(e);
+        }
+    }
+
+    /**
+     * Deposit with a new idempotency key each time, the usual case: its cost over {@link #deposit} is the insert of
+     * the key.
+     */
+    @Benchmark
+    public void depositWithIdempotencyKey(Blackhole blackhole) {
+        try {
+            this.service.executeDeposit(nextCustomerId(), CURRENCY, MINIMUM_DEPOSIT, "benchmark", UUID.randomUUID().toString());
+        } catch (OptimisticLockingFailureException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void withdrawal(Blackhole blackhole) {
+        try {
+            this.service.executeWithdrawal(nextCustomerId(), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    /**
+     * Both legs in one database transaction, under the locks of both accounts.
+     */
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        long from = nextCustomerId();
+        try {
+            this.service.transfer(from, nextCustomerIdOtherThan(from), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    /**
+     * What a client would do without {@link #transfer}: two transactions, each one under the lock of one account, and
+     * the money is in neither account in between.
+     */
+    @Benchmark
+    public void withdrawalThenDeposit(Blackhole blackhole) {
+        long from = nextCustomerId();
+        try {
+            this.service.executeWithdrawal(from, CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+            this.service.executeDeposit(nextCustomerIdOtherThan(from), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public List<WalletOperationResult> depositBatch() {
+        List<WalletOperation> operations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            operations.add(WalletOperation.deposit(nextCustomerId(), CURRENCY, MINIMUM_DEPOSIT, "benchmark"));
+        }
+        return this.service.executeBatch(operations);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> getBalance() {
+        return this.service.getBalance(nextCustomerId(), CURRENCY);
+    }
+
+    @Benchmark
+    public Page<WalletTransaction> getTransactions() {
+        return this.service.getTransactions(nextCustomerId(), FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Slice<WalletTransaction> getTransactionSlice() {
+        return this.service.getTransactionSlice(nextCustomerId(), FIRST_PAGE);
+    }
+
+    @Benchmark
+    public TransactionHistory getTransactionHistory() {
+        return this.service.getTransactionHistory(nextCustomerId(), null, FIRST_PAGE.getPageSize());
+    }
+}
@@ -0,0 +1,84 @@
+package com.digital.wallet.benchmark;
+
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of reading a {@link WalletAccount} by customer and currency, as the service does, with and
+ * without the second-level cache (see {@link com.digital.wallet.config.CacheConfiguration}): the natural id region
+ * resolves the pair to the id, the entity region returns the account. Each read runs in its own transaction, as the
+ * reads of the service do.
+ */
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class AccountReadBenchmark {
+
+    static final String CURRENCY = "GBP";
+
+    @State(Scope.Benchmark)
+    public static class AccountState {
+
+        @Param({ WalletBenchmarkContext.H2, WalletBenchmarkContext.POSTGRES })
+        public String database;
+
+        @Param({ "false", "true" })
+        public boolean secondLevelCache;
+
+        @Param({ "16", "1024" })
+        public int accounts;
+
+        /**
+         * Exponent of the Zipf distribution used to pick accounts. 0 means uniform.
+         */
+        @Param({ "0", "1.1" })
+        public double skew;
+
+        WalletBenchmarkContext context;
+
+        WalletAccountRepository repository;
+
+        long[] customerIds;
+
+        KeyDistribution keys;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.context =
+                WalletBenchmarkContext.start(
+                    this.database,
+                    "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + this.secondLevelCache
+                );
+            this.repository = this.context.getBean(WalletAccountRepository.class);
+            this.customerIds = this.context.createAccounts(this.accounts, CURRENCY, BigDecimal.ZERO);
+            this.keys = new KeyDistribution(this.accounts, this.skew);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.context.close();
+        }
+    }
+
+    @Benchmark
+    public WalletAccount findByCustomerIdAndCurrencyCode(AccountState state) {
+        return state.repository.findByCustomerIdAndCurrencyCode(state.customerIds[state.keys.next()], CURRENCY).orElseThrow();
+    }
+}
@@ -0,0 +1,134 @@
+package com.digital.wallet.benchmark;
+
+import static com.digital.wallet.benchmark.AbstractDigitalWalletServiceBenchmark.CURRENCY;
+import static com.digital.wallet.benchmark.AbstractDigitalWalletServiceBenchmark.INITIAL_BALANCE;
+import static com.digital.wallet.config.Constants.MINIMUM_DEPOSIT;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.config.AsyncConfiguration;
+import com.digital.wallet.service.AsyncDigitalWalletService;
+import com.digital.wallet.service.DigitalWalletService;
+import com.digital.wallet.service.ExecutorAsyncDigitalWalletService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Compares {@link AsyncDigitalWalletService} with the blocking {@link DigitalWalletService} when
+ * {@value #IN_FLIGHT} deposits are in flight: each invocation submits them all then waits for their completion.
+ * <p>
+ * The blocking variant needs one thread per in-flight operation, so the operations are submitted to a fixed pool of
+ * {@code blockingThreads} platform threads. The async variant runs on the executor of
+ * {@link AsyncConfiguration#createWalletTaskExecutor}: add {@code -p virtualThreads=true} on Java 21+ to compare with
+ * one virtual thread per operation. Throughput is in operations, not invocations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class AsyncDigitalWalletServiceBenchmark {
+
+    static final int IN_FLIGHT = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class AsyncState {
+
+        @Param({ WalletBenchmarkContext.H2, WalletBenchmarkContext.POSTGRES })
+        public String database;
+
+        @Param({ "1024" })
+        public int accounts;
+
+        /**
+         * Sets {@code spring.threads.virtual.enabled}. Only effective on Java 21+.
+         */
+        @Param({ "false" })
+        public boolean virtualThreads;
+
+        @Param({ "200" })
+        public int blockingThreads;
+
+        WalletBenchmarkContext context;
+
+        DigitalWalletService service;
+
+        AsyncDigitalWalletService asyncService;
+
+        AsyncTaskExecutor asyncExecutor;
+
+        ExecutorService blockingExecutor;
+
+        long[] customerIds;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.context = WalletBenchmarkContext.start(this.database, "spring.threads.virtual.enabled=" + this.virtualThreads);
+            this.service = this.context.getBean(DigitalWalletService.class);
+            this.asyncExecutor =
+                AsyncConfiguration.createWalletTaskExecutor(
+                    this.context.getBean(ApplicationProperties.class),
+                    this.context.getBean(Environment.class)
+                );
+            if (this.asyncExecutor instanceof ThreadPoolTaskExecutor pool) {
+                pool.initialize();
+            }
+            this.asyncService = new ExecutorAsyncDigitalWalletService(this.service, this.asyncExecutor);
+            this.blockingExecutor = Executors.newFixedThreadPool(this.blockingThreads);
+            this.customerIds = this.context.createAccounts(this.accounts, CURRENCY, INITIAL_BALANCE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.blockingExecutor.shutdownNow();
+            if (this.asyncExecutor instanceof ThreadPoolTaskExecutor pool) {
+                pool.shutdown();
+            }
+            this.context.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void blockingDeposits(AsyncState state) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            long customerId = state.customerIds[i % state.customerIds.length];
+            futures[i] =
+                CompletableFuture.runAsync(
+                    () -> state.service.executeDeposit(customerId, CURRENCY, MINIMUM_DEPOSIT, "benchmark"),
+                    state.blockingExecutor
+                );
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void asyncDeposits(AsyncState state) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            long customerId = state.customerIds[i % state.customerIds.length];
+            futures[i] = state.asyncService.executeDepositAsync(customerId, CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
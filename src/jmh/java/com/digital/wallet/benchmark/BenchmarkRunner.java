@@ -0,0 +1,39 @@
+package com.digital.wallet.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks once per thread count (system property {@code jmh.threads}, comma separated) and writes
+ * the results as JSON in the directory given by the system property {@code jmh.resultDir}, one file per thread count,
+ * so that results of different releases can be compared.
+ * <p>
+ * Arguments are regular JMH command line arguments, e.g. {@code DigitalWalletServiceBenchmark -p database=h2}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        int[] threads = Arrays.stream(System.getProperty("jmh.threads", "1,4,16").split(",")).mapToInt(Integer::parseInt).toArray();
+        Path resultDir = Path.of(System.getProperty("jmh.resultDir", "target/jmh"));
+        Files.createDirectories(resultDir);
+
+        for (int t : threads) {
+            Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .threads(t)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultDir.resolve("jmh-result-" + t + "-threads.json").toString())
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.digital.wallet.benchmark;
+
+import static com.digital.wallet.config.Constants.MINIMUM_DEPOSIT;
+
+import com.digital.wallet.service.DigitalWalletService;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Measures throughput and latency of deposits and transfers when two instances of the application share the database,
+ * for each way of locking the accounts (see {@link com.digital.wallet.config.ApplicationProperties.Lock}). Threads are
+ * spread over both instances.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ClusterLockingBenchmark {
+
+    static final String CURRENCY = "GBP";
+
+    static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000_000);
+
+    @State(Scope.Benchmark)
+    public static class ClusterState {
+
+        @Param({ WalletBenchmarkContext.H2, WalletBenchmarkContext.POSTGRES })
+        public String database;
+
+        /**
+         * <ul>
+         *     <li>local: striped lock table only, the baseline. The instances do not exclude each other: concurrent
+         *     operations on the same account fail on its version, failures are counted as operations.</li>
+         *     <li>row, advisory: database lock on top of the striped lock table</li>
+         *     <li>row-only, advisory-only: database lock only</li>
+         *     <li>optimistic: no lock, conflicts are retried, see
+         *     {@link com.digital.wallet.config.ApplicationProperties.Wallet.Mode#OPTIMISTIC}</li>
+         * </ul>
+         * The advisory locks require Postgresql.
+         */
+        @Param({ "local", "row", "row-only", "advisory", "advisory-only", "optimistic" })
+        public String locking;
+
+        @Param({ "16", "1024" })
+        public int accounts;
+
+        /**
+         * Exponent of the Zipf distribution used to pick accounts. 0 means uniform.
+         */
+        @Param({ "0", "1.1" })
+        public double skew;
+
+        WalletBenchmarkContext[] instances;
+
+        long[] customerIds;
+
+        KeyDistribution keys;
+
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String[] properties = lockProperties(this.locking);
+            this.instances = new WalletBenchmarkContext[2];
+            this.instances[0] = WalletBenchmarkContext.start(this.database, properties);
+            this.instances[1] = this.instances[0].startInstance(properties);
+            this.customerIds = this.instances[0].createAccounts(this.accounts, CURRENCY, INITIAL_BALANCE);
+            this.keys = new KeyDistribution(this.accounts, this.skew);
+        }
+
+        private static String[] lockProperties(String locking) {
+            return switch (locking) {
+                case "local" -> new String[] { "application.wallet.lock.database=none" };
+                case "row", "advisory" -> new String[] { "application.wallet.lock.database=" + locking };
+                case "row-only", "advisory-only" -> new String[] {
+                    "application.wallet.lock.type=none",
+                    "application.wallet.lock.database=" + locking.substring(0, locking.indexOf('-')),
+                };
+                case "optimistic" -> new String[] { "application.wallet.mode=optimistic" };
+                default -> throw new IllegalArgumentException("Unknown locking " + locking);
+            };
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.instances[1].close();
+            this.instances[0].close();
+        }
+
+        long nextCustomerId() {
+            return this.customerIds[this.keys.next()];
+        }
+
+        long nextCustomerIdOtherThan(long customerId) {
+            long other = nextCustomerId();
+            while (other == customerId) {
+                other = this.customerIds[ThreadLocalRandom.current().nextInt(this.customerIds.length)];
+            }
+            return other;
+        }
+    }
+
+    /**
+     * The instance the thread sends its operations to.
+     */
+    @State(Scope.Thread)
+    public static class InstanceState {
+
+        DigitalWalletService service;
+
+        @Setup(Level.Trial)
+        public void setUp(ClusterState cluster) {
+            this.service = cluster.instances[cluster.threads.getAndIncrement() % 2].getBean(DigitalWalletService.class);
+        }
+    }
+
+    @Benchmark
+    public void deposit(ClusterState cluster, InstanceState instance, Blackhole blackhole) {
+        try {
+            instance.service.executeDeposit(cluster.nextCustomerId(), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            // Expected with the "local" locking, and with the "optimistic" one once its retries are exhausted
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void transfer(ClusterState cluster, InstanceState instance, Blackhole blackhole) {
+        long from = cluster.nextCustomerId();
+        try {
+            instance.service.transfer(from, cluster.nextCustomerIdOtherThan(from), CURRENCY, MINIMUM_DEPOSIT, "benchmark");
+        } catch (OptimisticLockingFailureException e) {
+            blackhole.consume(e);
+        }
+    }
+}
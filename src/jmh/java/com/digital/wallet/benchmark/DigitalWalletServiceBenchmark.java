@@ -0,0 +1,29 @@
+package com.digital.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * The operations of every {@link com.digital.wallet.service.DigitalWalletService} implementation with the write modes
+ * updating the balance in place. The ledger write mode is measured by {@link LedgerWriteModeBenchmark}.
+ */
+public class DigitalWalletServiceBenchmark extends AbstractDigitalWalletServiceBenchmark {
+
+    @Param({ "safe", "internal", "partitioned", "group-commit", "optimistic" })
+    public String implementation;
+
+    /**
+     * See {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode}.
+     */
+    @Param({ "entity", "sql" })
+    public String writeMode;
+
+    @Override
+    protected String implementation() {
+        return this.implementation;
+    }
+
+    @Override
+    protected String writeMode() {
+        return this.writeMode;
+    }
+}
@@ -0,0 +1,30 @@
+package com.digital.wallet.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks keys (indices in [0, size)) following a Zipf distribution. An exponent of 0 gives a uniform distribution, the
+ * higher the exponent the more the first keys are accessed (hot accounts).
+ */
+public final class KeyDistribution {
+
+    private final double[] cdf;
+
+    public KeyDistribution(int size, double exponent) {
+        this.cdf = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            this.cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            this.cdf[i] /= sum;
+        }
+    }
+
+    public int next() {
+        int index = Arrays.binarySearch(this.cdf, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, this.cdf.length - 1);
+    }
+}
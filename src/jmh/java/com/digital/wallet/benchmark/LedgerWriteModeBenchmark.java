@@ -0,0 +1,36 @@
+package com.digital.wallet.benchmark;
+
+import com.digital.wallet.service.LedgerCompactionService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * The operations with the ledger write mode, see
+ * {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode#LEDGER}. The ledger is compacted before each
+ * iteration, as if {@code application.wallet.ledger.compaction-interval} were the iteration time.
+ */
+public class LedgerWriteModeBenchmark extends AbstractDigitalWalletServiceBenchmark {
+
+    /**
+     * The ledger requires the locks of the accounts: the "partitioned" and "optimistic" implementations are refused,
+     * see {@link com.digital.wallet.config.DigitalWalletServiceConfiguration}.
+     */
+    @Param({ "safe", "internal", "group-commit" })
+    public String implementation;
+
+    @Override
+    protected String implementation() {
+        return this.implementation;
+    }
+
+    @Override
+    protected String writeMode() {
+        return "ledger";
+    }
+
+    @Setup(Level.Iteration)
+    public void compactLedger() {
+        this.context.getBean(LedgerCompactionService.class).compact();
+    }
+}
@@ -0,0 +1,70 @@
+package com.digital.wallet.benchmark;
+
+import com.digital.wallet.service.lock.LockTable;
+import com.digital.wallet.service.lock.PerKeyLockTable;
+import com.digital.wallet.service.lock.StripedLockTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the {@link LockTable} implementations in isolation (no database), the time the lock is held being simulated
+ * by burning some CPU. It helps sizing the number of stripes for a given number of active accounts and threads.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockTableBenchmark {
+
+    @Param({ "striped", "per-key" })
+    public String type;
+
+    @Param({ "32", "1024" })
+    public int stripes;
+
+    @Param({ "false", "true" })
+    public boolean fair;
+
+    @Param({ "10000" })
+    public int accounts;
+
+    @Param({ "0", "1.1" })
+    public double skew;
+
+    /**
+     * Amount of work done while holding the lock, see {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({ "1000" })
+    public long holdTokens;
+
+    private LockTable table;
+
+    private KeyDistribution keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.table = "striped".equals(this.type) ? new StripedLockTable(this.stripes, this.fair) : new PerKeyLockTable(this.stripes, this.fair);
+        this.keys = new KeyDistribution(this.accounts, this.skew);
+    }
+
+    @Benchmark
+    public void lockUnlock() {
+        try (LockTable.Handle ignored = this.table.lock((long) this.keys.next())) {
+            Blackhole.consumeCPU(this.holdTokens);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.digital.wallet.benchmark;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.domain.Money;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the checks and the balance arithmetic of a deposit followed by a withdrawal of the same amount, as done by
+ * {@link com.digital.wallet.service.DigitalWalletServiceInternal}, with {@link BigDecimal} (the former path) and with
+ * {@link Money} minor units. No database: only the computation is measured. Run with {@code -prof gc} to compare the
+ * bytes allocated per operation.
+ * <ul>
+ *     <li>bigDecimal: limits compared to the constants, balance added to and subtracted from</li>
+ *     <li>minorUnits: the amount converted once, then checks and arithmetic on longs</li>
+ *     <li>money: as minorUnits, plus the {@link Money} stored in the account after each operation</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    /**
+     * The decimals of the amounts operated: 0 for integers as the limits, 2 for pence.
+     */
+    @Param({ "0", "2" })
+    public int amountScale;
+
+    private final BigDecimal[] amounts = new BigDecimal[AMOUNTS];
+
+    private int next;
+
+    private BigDecimal bigDecimalBalance;
+
+    private long unitsBalance;
+
+    private Money moneyBalance;
+
+    private int scale;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < AMOUNTS; i++) {
+            // Between the minimum and the maximum withdrawal
+            this.amounts[i] = BigDecimal.valueOf(random.nextLong(1_000, 500_000), 2).setScale(this.amountScale, RoundingMode.DOWN);
+        }
+        this.scale = Money.scaleOf("GBP");
+        this.bigDecimalBalance = new BigDecimal("1000000.00");
+        this.unitsBalance = Money.toMinorUnits(this.bigDecimalBalance, this.scale);
+        this.moneyBalance = Money.of(this.bigDecimalBalance, "GBP");
+    }
+
+    private BigDecimal nextAmount() {
+        return this.amounts[this.next++ & (AMOUNTS - 1)];
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal amount = nextAmount();
+        if (amount.compareTo(MAXIMUM_DEPOSIT) > 0 || amount.compareTo(MINIMUM_DEPOSIT) < 0) {
+            throw new IllegalStateException();
+        }
+        this.bigDecimalBalance = this.bigDecimalBalance.add(amount);
+        if (amount.compareTo(MAXIMUM_WITHDRAWAL) > 0 || amount.signum() < 0 || amount.compareTo(this.bigDecimalBalance) > 0) {
+            throw new IllegalStateException();
+        }
+        this.bigDecimalBalance = this.bigDecimalBalance.subtract(amount);
+        return this.bigDecimalBalance;
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        long amount = Money.toMinorUnits(nextAmount(), this.scale);
+        if (amount > Money.toMinorUnits(MAXIMUM_DEPOSIT, this.scale) || amount < Money.toMinorUnits(MINIMUM_DEPOSIT, this.scale)) {
+            throw new IllegalStateException();
+        }
+        this.unitsBalance = Math.addExact(this.unitsBalance, amount);
+        if (amount > Money.toMinorUnits(MAXIMUM_WITHDRAWAL, this.scale) || amount < 0 || amount > this.unitsBalance) {
+            throw new IllegalStateException();
+        }
+        this.unitsBalance = Math.subtractExact(this.unitsBalance, amount);
+        return this.unitsBalance;
+    }
+
+    @Benchmark
+    public Money money() {
+        long amount = Money.toMinorUnits(nextAmount(), this.scale);
+        if (amount > Money.toMinorUnits(MAXIMUM_DEPOSIT, this.scale) || amount < Money.toMinorUnits(MINIMUM_DEPOSIT, this.scale)) {
+            throw new IllegalStateException();
+        }
+        this.moneyBalance = Money.ofMinor(Math.addExact(this.moneyBalance.minorUnits(this.scale), amount), this.scale);
+        long balance = this.moneyBalance.minorUnits(this.scale);
+        if (amount > Money.toMinorUnits(MAXIMUM_WITHDRAWAL, this.scale) || amount < 0 || amount > balance) {
+            throw new IllegalStateException();
+        }
+        this.moneyBalance = Money.ofMinor(Math.subtractExact(balance, amount), this.scale);
+        return this.moneyBalance;
+    }
+}
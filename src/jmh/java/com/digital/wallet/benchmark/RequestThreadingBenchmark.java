@@ -0,0 +1,106 @@
+package com.digital.wallet.benchmark;
+
+import static com.digital.wallet.benchmark.AbstractDigitalWalletServiceBenchmark.CURRENCY;
+import static com.digital.wallet.benchmark.AbstractDigitalWalletServiceBenchmark.INITIAL_BALANCE;
+import static com.digital.wallet.config.Constants.MINIMUM_DEPOSIT;
+
+import com.digital.wallet.service.DigitalWalletService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Load test of the request path with platform or virtual threads (see
+ * {@link com.digital.wallet.config.VirtualThreadsConfiguration}). Every benchmark thread is a client: it hands a deposit
+ * to the request executor, as Undertow does with a servlet request, and waits for the response. Throughput and sample
+ * time (p99, p99.9...) include the time spent queued behind the workers.
+ * <p>
+ * The platform executor is a pool of {@code workers} threads, Undertow's default being 8 per core. The virtual executor
+ * creates a thread per request and requires Java 21+. Use many clients to load the executor, e.g.
+ * {@code -Djmh.threads=64,256,1024}.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RequestThreadingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RequestState {
+
+        @Param({ WalletBenchmarkContext.H2, WalletBenchmarkContext.POSTGRES })
+        public String database;
+
+        @Param({ "platform", "virtual" })
+        public String threading;
+
+        @Param({ "1024" })
+        public int accounts;
+
+        /**
+         * Number of platform workers. Defaults to Undertow's.
+         */
+        @Param({ "0" })
+        public int workers;
+
+        WalletBenchmarkContext context;
+
+        DigitalWalletService service;
+
+        Executor executor;
+
+        long[] customerIds;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            boolean virtual = "virtual".equals(this.threading);
+            if (virtual && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+                throw new IllegalStateException("Virtual threads require Java 21+");
+            }
+            this.context = WalletBenchmarkContext.start(this.database, "spring.threads.virtual.enabled=" + virtual);
+            this.service = this.context.getBean(DigitalWalletService.class);
+            this.customerIds = this.context.createAccounts(this.accounts, CURRENCY, INITIAL_BALANCE);
+            if (virtual) {
+                this.executor = new VirtualThreadTaskExecutor("request-");
+            } else {
+                int size = this.workers > 0 ? this.workers : Runtime.getRuntime().availableProcessors() * 8;
+                this.executor = Executors.newFixedThreadPool(size);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (this.executor instanceof ExecutorService pool) {
+                pool.shutdownNow();
+            }
+            this.context.close();
+        }
+    }
+
+    @Benchmark
+    public void deposit(RequestState state) {
+        long customerId = state.customerIds[ThreadLocalRandom.current().nextInt(state.customerIds.length)];
+        CompletableFuture
+            .runAsync(() -> state.service.executeDeposit(customerId, CURRENCY, MINIMUM_DEPOSIT, "benchmark"), state.executor)
+            .join();
+    }
+}
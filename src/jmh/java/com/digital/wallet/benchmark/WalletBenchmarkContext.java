@@ -0,0 +1,180 @@
+package com.digital.wallet.benchmark;
+
+import com.digital.wallet.DigitalWalletApp;
+import com.digital.wallet.config.AsyncSyncConfiguration;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.service.DigitalWalletService;
+import com.digital.wallet.service.DigitalWalletServiceInternal;
+import com.digital.wallet.service.GroupCommitDigitalWalletService;
+import com.digital.wallet.service.OptimisticDigitalWalletService;
+import com.digital.wallet.service.PartitionedDigitalWalletService;
+import com.digital.wallet.service.SafeDigitalWalletService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Boots the application against either an in-memory H2 database or a Postgresql test container so that benchmarks
+ * exercise the real service and persistence layers.
+ */
+public final class WalletBenchmarkContext implements AutoCloseable {
+
+    public static final String H2 = "h2";
+    public static final String POSTGRES = "postgres";
+
+    /**
+     * The {@link DigitalWalletService} implementations that can be benchmarked, by name.
+     */
+    private static final Map<String, Implementation> IMPLEMENTATIONS = Map.of(
+        "safe",
+        new Implementation(SafeDigitalWalletService.class),
+        "internal",
+        new Implementation(DigitalWalletServiceInternal.class),
+        "partitioned",
+        new Implementation(PartitionedDigitalWalletService.class, "application.wallet.mode=partitioned"),
+        "group-commit",
+        new Implementation(GroupCommitDigitalWalletService.class, "application.wallet.mode=group-commit"),
+        "optimistic",
+        new Implementation(OptimisticDigitalWalletService.class, "application.wallet.mode=optimistic")
+    );
+
+    private record Implementation(Class<? extends DigitalWalletService> type, String... properties) {}
+
+    private final ConfigurableApplicationContext context;
+
+    /**
+     * The container of the database, null with H2 or if the context does not own it, see {@link #startInstance}.
+     */
+    private final PostgreSQLContainer<?> container;
+
+    private final String profile;
+
+    /**
+     * The properties of the database the context has been started on.
+     */
+    private final List<String> databaseProperties;
+
+    private WalletBenchmarkContext(
+        ConfigurableApplicationContext context,
+        PostgreSQLContainer<?> container,
+        String profile,
+        List<String> databaseProperties
+    ) {
+        this.context = context;
+        this.container = container;
+        this.profile = profile;
+        this.databaseProperties = databaseProperties;
+    }
+
+    /**
+     * Starts the application.
+     *
+     * @param database   either {@link #H2} or {@link #POSTGRES}
+     * @param properties additional properties (key=value) used to configure the application
+     * @return the started context
+     */
+    public static WalletBenchmarkContext start(String database, String... properties) {
+        PostgreSQLContainer<?> container = null;
+        String profile = "testdev";
+        List<String> databaseProperties = new ArrayList<>();
+        if (POSTGRES.equals(database)) {
+            container = new PostgreSQLContainer<>("postgres:16.1").withDatabaseName("digitalWallet");
+            container.start();
+            profile = "testprod";
+            databaseProperties.add("spring.datasource.url=" + container.getJdbcUrl());
+            databaseProperties.add("spring.datasource.username=" + container.getUsername());
+            databaseProperties.add("spring.datasource.password=" + container.getPassword());
+        } else if (!H2.equals(database)) {
+            throw new IllegalArgumentException("Unknown database " + database);
+        }
+        return new WalletBenchmarkContext(run(profile, databaseProperties, properties), container, profile, databaseProperties);
+    }
+
+    /**
+     * Starts another instance of the application on the database of this one, as another instance of a cluster. The
+     * H2 in-memory database is shared by the contexts of the JVM.
+     *
+     * @param properties additional properties (key=value) used to configure the instance
+     * @return the started context, that does not stop the database when closed
+     */
+    public WalletBenchmarkContext startInstance(String... properties) {
+        ConfigurableApplicationContext instance = run(this.profile, this.databaseProperties, properties);
+        return new WalletBenchmarkContext(instance, null, this.profile, this.databaseProperties);
+    }
+
+    private static ConfigurableApplicationContext run(String profile, List<String> databaseProperties, String... properties) {
+        List<String> props = new ArrayList<>();
+        props.add("server.port=0");
+        props.add("spring.datasource.hikari.maximum-pool-size=64");
+        props.addAll(databaseProperties);
+        Collections.addAll(props, properties);
+        // As command line arguments, so that they override the configuration files (server.port...)
+        return new SpringApplicationBuilder(DigitalWalletApp.class, AsyncSyncConfiguration.class)
+            .profiles(profile)
+            .run(props.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * @param implementation the name of an implementation, e.g. "safe"
+     * @param properties     additional properties
+     * @return the properties required to create the corresponding {@link DigitalWalletService} bean, followed by the
+     * additional ones
+     */
+    public static String[] propertiesFor(String implementation, String... properties) {
+        List<String> props = new ArrayList<>(List.of(implementation(implementation).properties()));
+        Collections.addAll(props, properties);
+        return props.toArray(String[]::new);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+
+    /**
+     * @param implementation the name of the implementation to benchmark, e.g. "safe". The context must have been
+     *                       started with the properties given by {@link #propertiesFor(String)}.
+     * @return the corresponding {@link DigitalWalletService} bean
+     */
+    public DigitalWalletService getService(String implementation) {
+        return getBean(implementation(implementation).type());
+    }
+
+    private static Implementation implementation(String name) {
+        Implementation implementation = IMPLEMENTATIONS.get(name);
+        if (implementation == null) {
+            throw new IllegalArgumentException("Unknown implementation " + name + ". Expected one of " + IMPLEMENTATIONS.keySet());
+        }
+        return implementation;
+    }
+
+    /**
+     * Creates an account in the given currency with the given initial balance for each of the customers 1 to count.
+     *
+     * @return the ids of the customers
+     */
+    public long[] createAccounts(int count, String currency, BigDecimal balance) {
+        List<WalletAccount> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WalletAccount account = new WalletAccount();
+            account.setCustomerId(i + 1L);
+            account.setCurrencyCode(currency);
+            account.setAmount(balance);
+            accounts.add(account);
+        }
+        return getBean(WalletAccountRepository.class).saveAll(accounts).stream().mapToLong(WalletAccount::getCustomerId).toArray();
+    }
+
+    @Override
+    public void close() {
+        this.context.close();
+        if (this.container != null) {
+            this.container.stop();
+        }
+    }
+}
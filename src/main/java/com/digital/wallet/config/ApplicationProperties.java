@@ -1,5 +1,8 @@
 package com.digital.wallet.config;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -10,7 +13,762 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Wallet wallet = new Wallet();
+
+    private final Cache cache = new Cache();
+
     // jhipster-needle-application-properties-property
+
+    public Wallet getWallet() {
+        return wallet;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
     // jhipster-needle-application-properties-property-getter
+
+    public static class Wallet {
+
+        public enum Mode {
+            /**
+             * Operations are executed by the calling thread while holding the lock of the account, see
+             * {@link com.digital.wallet.service.SafeDigitalWalletService}.
+             */
+            LOCKING,
+            /**
+             * Operations are routed to a single-threaded partition per account, see
+             * {@link com.digital.wallet.service.PartitionedDigitalWalletService}.
+             */
+            PARTITIONED,
+            /**
+             * Operations waiting for the lock of the same account are applied together in a single database
+             * transaction, see {@link com.digital.wallet.service.GroupCommitDigitalWalletService}.
+             */
+            GROUP_COMMIT,
+            /**
+             * No lock is taken: conflicting updates of an account fail on its version and are retried, see
+             * {@link com.digital.wallet.service.OptimisticDigitalWalletService}.
+             */
+            OPTIMISTIC,
+        }
+
+        public enum WriteMode {
+            /**
+             * The account entity is loaded, updated and saved, then the transaction entity is saved.
+             */
+            ENTITY,
+            /**
+             * The balance update and the transaction insert are done in a single SQL statement (two with H2), see
+             * {@link com.digital.wallet.repository.WalletAccountBalanceRepository}.
+             */
+            SQL,
+            /**
+             * Append only: operations only insert a transaction, the amount of the account is a snapshot of the balance
+             * periodically compacted by {@link com.digital.wallet.service.LedgerCompactionService}. Requires a locking
+             * mode, a single instance and the ids of the sequence: the snapshot is the id of the last transaction
+             * compacted. Do not switch back and forth with the other modes: their transactions would be counted twice.
+             */
+            LEDGER,
+        }
+
+        /**
+         * The implementation of {@link com.digital.wallet.service.DigitalWalletService} used by default.
+         */
+        private Mode mode = Mode.LOCKING;
+
+        /**
+         * How deposits and withdrawals are written to the database.
+         */
+        private WriteMode writeMode = WriteMode.ENTITY;
+
+        private final Id id = new Id();
+
+        private final Lock lock = new Lock();
+
+        private final Partitioned partitioned = new Partitioned();
+
+        private final GroupCommit groupCommit = new GroupCommit();
+
+        private final Optimistic optimistic = new Optimistic();
+
+        private final Ledger ledger = new Ledger();
+
+        private final TransactionPartitions transactionPartitions = new TransactionPartitions();
+
+        private final Idempotency idempotency = new Idempotency();
+
+        private final Batch batch = new Batch();
+
+        private final Export export = new Export();
+
+        private final Async async = new Async();
+
+        private final BulkImport bulkImport = new BulkImport();
+
+        private final Reconciliation reconciliation = new Reconciliation();
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public WriteMode getWriteMode() {
+            return writeMode;
+        }
+
+        public void setWriteMode(WriteMode writeMode) {
+            this.writeMode = writeMode;
+        }
+
+        public Id getId() {
+            return id;
+        }
+
+        public Lock getLock() {
+            return lock;
+        }
+
+        public Partitioned getPartitioned() {
+            return partitioned;
+        }
+
+        public GroupCommit getGroupCommit() {
+            return groupCommit;
+        }
+
+        public Optimistic getOptimistic() {
+            return optimistic;
+        }
+
+        public Ledger getLedger() {
+            return ledger;
+        }
+
+        public TransactionPartitions getTransactionPartitions() {
+            return transactionPartitions;
+        }
+
+        public Idempotency getIdempotency() {
+            return idempotency;
+        }
+
+        public Batch getBatch() {
+            return batch;
+        }
+
+        public Export getExport() {
+            return export;
+        }
+
+        public Async getAsync() {
+            return async;
+        }
+
+        public BulkImport getBulkImport() {
+            return bulkImport;
+        }
+
+        public Reconciliation getReconciliation() {
+            return reconciliation;
+        }
+    }
+
+    /**
+     * Configuration of the lock table used to prevent concurrent operations on the same account.
+     */
+    public static class Lock {
+
+        public enum Type {
+            /**
+             * A fixed number of locks (stripes) shared by all the accounts. Unrelated accounts can contend.
+             */
+            STRIPED,
+            /**
+             * One lock per account, created on demand and evicted as soon as it is not used anymore.
+             */
+            PER_KEY,
+            /**
+             * No lock in the application: the operations on the same account are only serialized by the database lock,
+             * which must be set, see {@link #getDatabase()}.
+             */
+            NONE,
+        }
+
+        /**
+         * The lock taken in the database transaction of each operation, so that the instances of a cluster sharing the
+         * database exclude each other. It is taken in addition to the lock of the application, if any.
+         */
+        public enum Database {
+            /**
+             * The accounts are only locked in the application: two instances can operate on the same account
+             * concurrently, the version of the account makes one of them fail.
+             */
+            NONE,
+            /**
+             * {@code SELECT ... FOR UPDATE} of the rows of the accounts.
+             */
+            ROW,
+            /**
+             * {@code pg_advisory_xact_lock} of the customers: all the accounts of a customer are locked. Postgresql only.
+             */
+            ADVISORY,
+        }
+
+        private Type type = Type.STRIPED;
+
+        private Database database = Database.NONE;
+
+        /**
+         * Number of stripes of the striped lock table. For the per-key lock table, number of buckets the statistics
+         * are aggregated into.
+         */
+        private int stripes = 32;
+
+        /**
+         * Whether the locks use a fair ordering policy (FIFO) or not. Fair locks prevent starvation at the cost of
+         * throughput.
+         */
+        private boolean fair = false;
+
+        public Type getType() {
+            return type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public boolean isFair() {
+            return fair;
+        }
+
+        public void setFair(boolean fair) {
+            this.fair = fair;
+        }
+
+        public Database getDatabase() {
+            return database;
+        }
+
+        public void setDatabase(Database database) {
+            this.database = database;
+        }
+    }
+
+    /**
+     * How the ids of the accounts and transactions are generated, see {@link com.digital.wallet.domain.WalletIdGenerator}.
+     */
+    public static class Id {
+
+        public enum Strategy {
+            /**
+             * Blocks of ids allocated from {@code sequence_generator}.
+             */
+            SEQUENCE,
+            /**
+             * Ids allocated in memory, ordered by time, see {@link com.digital.wallet.domain.TimeOrderedIds}. They are
+             * greater than the ones of the sequence: do not switch back, the ids would no longer grow.
+             */
+            TIME_ORDERED,
+        }
+
+        private Strategy strategy = Strategy.SEQUENCE;
+
+        /**
+         * Number of ids allocated per call of the sequence, its increment. It can be raised, but lowering it would
+         * allocate again the ids of the last blocks. All the instances sharing the database must use the same one.
+         */
+        private int blockSize = 50;
+
+        /**
+         * Unique id of the instance among the ones sharing the database, from 0 to
+         * {@link com.digital.wallet.domain.TimeOrderedIds#MAX_NODE_ID}, for the time ordered ids.
+         */
+        private int nodeId = 0;
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        public void setBlockSize(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(int nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    /**
+     * Configuration of the partitioned mode, see {@link Wallet.Mode#PARTITIONED}.
+     */
+    public static class Partitioned {
+
+        /**
+         * Number of partitions, i.e. of threads applying the operations.
+         */
+        private int partitions = 8;
+
+        /**
+         * Maximum number of pending operations per partition. Operations submitted to a full partition are rejected.
+         */
+        private int queueCapacity = 10_000;
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * Configuration of the group commit mode, see {@link Wallet.Mode#GROUP_COMMIT}.
+     */
+    public static class GroupCommit {
+
+        /**
+         * Maximum number of operations applied in one database transaction.
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * How long the thread applying the operations of an account waits for more of them before starting the
+         * transaction, unless the batch is already full. 0 only groups the operations already waiting.
+         */
+        private Duration linger = Duration.ZERO;
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+    }
+
+    /**
+     * Configuration of the optimistic mode, see {@link Wallet.Mode#OPTIMISTIC}.
+     */
+    public static class Optimistic {
+
+        /**
+         * Maximum number of times an operation is attempted. The version conflict of the last attempt is thrown.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Upper bound of the wait before the first retry. It doubles with every retry up to {@link #maxBackoff}, the
+         * actual wait being drawn uniformly below it so that the conflicting operations do not retry in lockstep.
+         */
+        private Duration initialBackoff = Duration.ofMillis(1);
+
+        private Duration maxBackoff = Duration.ofMillis(50);
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+
+    /**
+     * Configuration of the ledger write mode, see {@link Wallet.WriteMode#LEDGER}.
+     */
+    public static class Ledger {
+
+        /**
+         * Time between two compactions of the ledger. The longer, the more transactions are summed to read a balance.
+         */
+        private Duration compactionInterval = Duration.ofSeconds(10);
+
+        /**
+         * Maximum number of accounts compacted per query of the accounts to compact.
+         */
+        private int compactionBatchSize = 1_000;
+
+        public Duration getCompactionInterval() {
+            return compactionInterval;
+        }
+
+        public void setCompactionInterval(Duration compactionInterval) {
+            this.compactionInterval = compactionInterval;
+        }
+
+        public int getCompactionBatchSize() {
+            return compactionBatchSize;
+        }
+
+        public void setCompactionBatchSize(int compactionBatchSize) {
+            this.compactionBatchSize = compactionBatchSize;
+        }
+    }
+
+    /**
+     * Configuration of the monthly partitions of the {@code wallet_transaction} table (Postgresql), see
+     * {@link com.digital.wallet.service.TransactionPartitionService}.
+     */
+    public static class TransactionPartitions {
+
+        public enum RetentionAction {
+            /**
+             * Expired partitions are detached from the table and kept as standalone tables, e.g. to be archived.
+             */
+            DETACH,
+            /**
+             * Expired partitions are dropped.
+             */
+            DROP,
+        }
+
+        /**
+         * Number of months after the current one for which a partition is created in advance.
+         */
+        private int monthsAhead = 3;
+
+        /**
+         * Number of months before the current one whose transactions are kept. 0 keeps them all.
+         */
+        private int retentionMonths = 0;
+
+        private RetentionAction retentionAction = RetentionAction.DETACH;
+
+        public int getMonthsAhead() {
+            return monthsAhead;
+        }
+
+        public void setMonthsAhead(int monthsAhead) {
+            this.monthsAhead = monthsAhead;
+        }
+
+        public int getRetentionMonths() {
+            return retentionMonths;
+        }
+
+        public void setRetentionMonths(int retentionMonths) {
+            this.retentionMonths = retentionMonths;
+        }
+
+        public RetentionAction getRetentionAction() {
+            return retentionAction;
+        }
+
+        public void setRetentionAction(RetentionAction retentionAction) {
+            this.retentionAction = retentionAction;
+        }
+    }
+
+    /**
+     * Configuration of the in-memory lookup of the idempotency keys, see
+     * {@link com.digital.wallet.service.IdempotencyKeyService}.
+     */
+    public static class Idempotency {
+
+        /**
+         * Maximum number of recently recorded keys kept in memory. A retry of one of them is answered without querying
+         * the database.
+         */
+        private long recentKeys = 100_000;
+
+        /**
+         * Expected number of keys of the Bloom filter of the keys recorded since startup, 0 disables it. Without it, a
+         * retry of a key no longer in memory is detected by the unique constraint, at the cost of a rolled back
+         * transaction. With it, such keys are looked up in the database before the operation.
+         */
+        private long bloomFilterExpectedKeys = 0;
+
+        /**
+         * False positive probability of the Bloom filter, i.e. of a useless database lookup.
+         */
+        private double bloomFilterFpp = 0.01;
+
+        public long getRecentKeys() {
+            return recentKeys;
+        }
+
+        public void setRecentKeys(long recentKeys) {
+            this.recentKeys = recentKeys;
+        }
+
+        public long getBloomFilterExpectedKeys() {
+            return bloomFilterExpectedKeys;
+        }
+
+        public void setBloomFilterExpectedKeys(long bloomFilterExpectedKeys) {
+            this.bloomFilterExpectedKeys = bloomFilterExpectedKeys;
+        }
+
+        public double getBloomFilterFpp() {
+            return bloomFilterFpp;
+        }
+
+        public void setBloomFilterFpp(double bloomFilterFpp) {
+            this.bloomFilterFpp = bloomFilterFpp;
+        }
+    }
+
+    /**
+     * Configuration of {@link com.digital.wallet.service.DigitalWalletService#executeBatch}.
+     */
+    public static class Batch {
+
+        /**
+         * Number of operations above which a database transaction is committed. Operations of a customer are always
+         * applied in the same transaction so a transaction can contain more operations.
+         */
+        private int chunkSize = 1_000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Configuration of {@link com.digital.wallet.service.TransactionExportService}.
+     */
+    public static class Export {
+
+        /**
+         * Number of transactions fetched from the database per round trip.
+         */
+        private int fetchSize = 1_000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+    }
+
+    /**
+     * Configuration of {@link com.digital.wallet.service.AsyncDigitalWalletService}, see
+     * {@link AsyncConfiguration#createWalletTaskExecutor}.
+     */
+    public static class Async {
+
+        /**
+         * Number of platform threads running the operations when virtual threads are not enabled or not supported.
+         */
+        private int platformPoolSize = 64;
+
+        public int getPlatformPoolSize() {
+            return platformPoolSize;
+        }
+
+        public void setPlatformPoolSize(int platformPoolSize) {
+            this.platformPoolSize = platformPoolSize;
+        }
+    }
+
+    /**
+     * Configuration of {@link com.digital.wallet.service.BulkImportService}.
+     */
+    public static class BulkImport {
+
+        /**
+         * Number of rows written per database transaction, which is also the granularity of the progress and of the
+         * restarts.
+         */
+        private int chunkSize = 10_000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Configuration of {@link com.digital.wallet.service.BalanceReconciliationService}.
+     */
+    public static class Reconciliation {
+
+        /**
+         * When the scheduled runs start, "-" disables them. Also read by {@code @Scheduled}.
+         */
+        private String cron = "-";
+
+        /**
+         * Number of ranges of accounts reconciled in parallel, each one holding at most one database connection.
+         */
+        private int parallelism = 4;
+
+        /**
+         * Maximum number of accounts of a range, larger ranges are split in two.
+         */
+        private int rangeSize = 10_000;
+
+        /**
+         * Number of accounts read per query when scanning a range.
+         */
+        private int pageSize = 1_000;
+
+        /**
+         * Maximum number of accounts reconciled per run, the next run starting after the last one. 0 reconciles all the
+         * accounts in every run.
+         */
+        private long accountsPerRun = 0;
+
+        /**
+         * Maximum number of mismatches kept for the management endpoint, the others are only counted.
+         */
+        private int maxReportedMismatches = 1_000;
+
+        public String getCron() {
+            return cron;
+        }
+
+        public void setCron(String cron) {
+            this.cron = cron;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getRangeSize() {
+            return rangeSize;
+        }
+
+        public void setRangeSize(int rangeSize) {
+            this.rangeSize = rangeSize;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public long getAccountsPerRun() {
+            return accountsPerRun;
+        }
+
+        public void setAccountsPerRun(long accountsPerRun) {
+            this.accountsPerRun = accountsPerRun;
+        }
+
+        public int getMaxReportedMismatches() {
+            return maxReportedMismatches;
+        }
+
+        public void setMaxReportedMismatches(int maxReportedMismatches) {
+            this.maxReportedMismatches = maxReportedMismatches;
+        }
+    }
+
+    /**
+     * Configuration of the caches, see {@link CacheConfiguration}.
+     */
+    public static class Cache {
+
+        /**
+         * Limits of the caches by name (the entity class name for second-level cache regions). Unset limits default to
+         * the {@code jhipster.cache.caffeine} ones.
+         */
+        private final Map<String, Region> regions = new HashMap<>();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public static class Region {
+
+            private Long timeToLiveSeconds;
+
+            private Long maxEntries;
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
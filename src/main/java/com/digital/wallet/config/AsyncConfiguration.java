@@ -6,9 +6,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
 import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -25,13 +29,28 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final TaskExecutionProperties taskExecutionProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    private final Environment environment;
+
+    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties, Environment environment) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.environment = environment;
     }
 
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // One virtual thread per task, optionally bounded by spring.task.execution.simple.concurrency-limit
+            log.debug("Creating Async Task Executor with virtual threads");
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(taskExecutionProperties.getThreadNamePrefix());
+            executor.setVirtualThreads(true);
+            if (taskExecutionProperties.getSimple().getConcurrencyLimit() != null) {
+                executor.setConcurrencyLimit(taskExecutionProperties.getSimple().getConcurrencyLimit());
+            }
+            return new ExceptionHandlingAsyncTaskExecutor(executor);
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("Virtual threads require Java 21+, using platform threads");
+        }
         log.debug("Creating Async Task Executor");
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(taskExecutionProperties.getPool().getCoreSize());
@@ -41,6 +60,32 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    @Bean(name = "walletTaskExecutor")
+    public AsyncTaskExecutor walletTaskExecutor(ApplicationProperties applicationProperties, Environment environment) {
+        return createWalletTaskExecutor(applicationProperties, environment);
+    }
+
+    /**
+     * Creates the executor of {@link com.digital.wallet.service.ExecutorAsyncDigitalWalletService}: one virtual thread
+     * per task if {@code spring.threads.virtual.enabled} is set and the JVM supports them (Java 21+), else a pool of
+     * {@code application.wallet.async.platform-pool-size} platform threads.
+     */
+    public static AsyncTaskExecutor createWalletTaskExecutor(ApplicationProperties applicationProperties, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            LoggerFactory.getLogger(AsyncConfiguration.class).debug("Creating wallet task executor with virtual threads");
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("wallet-task-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        int poolSize = applicationProperties.getWallet().getAsync().getPlatformPoolSize();
+        LoggerFactory.getLogger(AsyncConfiguration.class).debug("Creating wallet task executor with {} platform threads", poolSize);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("wallet-task-");
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -0,0 +1,77 @@
+package com.digital.wallet.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Caffeine caches, exposed through JCache and used as Hibernate second-level cache regions.
+ * <p>
+ * Each region is bounded in size and time to live: {@code application.cache.regions.<region>} if configured, else the
+ * {@code jhipster.cache.caffeine} defaults. Statistics are enabled so that hits, misses, puts and evictions are
+ * published as {@code cache.*} Micrometer metrics, tagged with the region name.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final JHipsterProperties.Cache.Caffeine defaults;
+
+    private final ApplicationProperties.Cache cache;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.defaults = jHipsterProperties.getCache().getCaffeine();
+        this.cache = applicationProperties.getCache();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    }
+
+    @Bean
+    public JCacheManagerCustomizer cacheManagerCustomizer() {
+        return cm -> {
+            createCache(cm, com.digital.wallet.domain.WalletAccount.class.getName());
+            // The (customerId, currencyCode) to id resolutions of @NaturalIdCache
+            createCache(cm, com.digital.wallet.domain.WalletAccount.class.getName() + "##NaturalId");
+            // jhipster-needle-caffeine-add-entry
+        };
+    }
+
+    private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        // Not cm.getCache: Caffeine looks a missing cache up in its Typesafe configuration, where '#' starts a comment
+        if (StreamSupport.stream(cm.getCacheNames().spliterator(), false).anyMatch(cacheName::equals)) {
+            cm.getCache(cacheName).clear();
+        } else {
+            cm.createCache(cacheName, jcacheConfiguration(cacheName));
+        }
+    }
+
+    private javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(String cacheName) {
+        ApplicationProperties.Cache.Region region = this.cache.getRegions().get(cacheName);
+        long maxEntries = region != null && region.getMaxEntries() != null ? region.getMaxEntries() : this.defaults.getMaxEntries();
+        long timeToLiveSeconds = region != null && region.getTimeToLiveSeconds() != null
+            ? region.getTimeToLiveSeconds()
+            : this.defaults.getTimeToLiveSeconds();
+        log.debug("Creating cache {} with {} entries at most and a time to live of {}s", cacheName, maxEntries, timeToLiveSeconds);
+
+        CaffeineConfiguration<Object, Object> caffeineConfiguration = new CaffeineConfiguration<>();
+        caffeineConfiguration.setMaximumSize(OptionalLong.of(maxEntries));
+        caffeineConfiguration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(timeToLiveSeconds)));
+        caffeineConfiguration.setStatisticsEnabled(true);
+        return caffeineConfiguration;
+    }
+}
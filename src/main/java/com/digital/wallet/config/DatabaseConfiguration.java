@@ -1,12 +1,18 @@
 package com.digital.wallet.config;
 
+import com.digital.wallet.domain.WalletIdGenerator;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -15,7 +21,7 @@ import tech.jhipster.config.h2.H2ConfigurationHelper;
 
 @Configuration
 @EnableJpaRepositories({ "com.digital.wallet.repository" })
-@EnableJpaAuditing(auditorAwareRef = "springSecurityAuditorAware")
+@EnableJpaAuditing(auditorAwareRef = "springSecurityAuditorAware", dateTimeProviderRef = "auditingDateTimeProvider")
 @EnableTransactionManagement
 public class DatabaseConfiguration {
 
@@ -27,6 +33,34 @@ public class DatabaseConfiguration {
         this.env = env;
     }
 
+    /**
+     * Audit dates truncated to the precision of the database timestamps (microseconds) so that the dates of the managed
+     * entities are the ones stored. The transaction history is paginated on the creation date, see
+     * {@link com.digital.wallet.repository.WalletTransactionRepository#findAllByCustomerIdBefore}.
+     *
+     * @return the provider of the audit dates.
+     */
+    @Bean
+    public DateTimeProvider auditingDateTimeProvider() {
+        return () -> Optional.of(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    /**
+     * Passes the id strategy to {@link WalletIdGenerator}, instantiated by Hibernate.
+     *
+     * @return the customizer of the Hibernate settings.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorHibernatePropertiesCustomizer(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Id id = applicationProperties.getWallet().getId();
+        log.debug("Using the {} id strategy (block size: {}, node id: {})", id.getStrategy(), id.getBlockSize(), id.getNodeId());
+        return properties -> {
+            properties.put(WalletIdGenerator.STRATEGY, id.getStrategy().name());
+            properties.put(WalletIdGenerator.BLOCK_SIZE, id.getBlockSize());
+            properties.put(WalletIdGenerator.NODE_ID, id.getNodeId());
+        };
+    }
+
     /**
      * Open the TCP port for the H2 database, so it is available remotely.
      *
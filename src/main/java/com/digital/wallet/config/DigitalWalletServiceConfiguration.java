@@ -0,0 +1,74 @@
+package com.digital.wallet.config;
+
+import static com.digital.wallet.config.ApplicationProperties.Lock.Type.NONE;
+import static com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode.LEDGER;
+
+import com.digital.wallet.service.DigitalWalletService;
+import com.digital.wallet.service.GroupCommitDigitalWalletService;
+import com.digital.wallet.service.OptimisticDigitalWalletService;
+import com.digital.wallet.service.PartitionedDigitalWalletService;
+import com.digital.wallet.service.SafeDigitalWalletService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Exposes the {@link DigitalWalletService} implementation selected by {@link ApplicationProperties.Wallet#getMode()} as
+ * the primary one, i.e. the one injected when no qualifier is given.
+ */
+@Configuration
+public class DigitalWalletServiceConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(DigitalWalletServiceConfiguration.class);
+
+    @Bean
+    @Primary
+    public DigitalWalletService digitalWalletService(
+        ApplicationProperties applicationProperties,
+        SafeDigitalWalletService safeDigitalWalletService,
+        ObjectProvider<PartitionedDigitalWalletService> partitionedDigitalWalletService,
+        ObjectProvider<GroupCommitDigitalWalletService> groupCommitDigitalWalletService,
+        ObjectProvider<OptimisticDigitalWalletService> optimisticDigitalWalletService
+    ) {
+        ApplicationProperties.Wallet.Mode mode = applicationProperties.getWallet().getMode();
+        if (
+            (mode == ApplicationProperties.Wallet.Mode.PARTITIONED || mode == ApplicationProperties.Wallet.Mode.OPTIMISTIC) &&
+            applicationProperties.getWallet().getWriteMode() == LEDGER
+        ) {
+            // The compaction of the ledger, and the balance check of the withdrawals, rely on the account locks
+            throw new IllegalStateException("The ledger write mode requires a locking mode, not " + mode);
+        }
+        if (applicationProperties.getWallet().getWriteMode() == LEDGER) {
+            checkLedgerIds(applicationProperties.getWallet());
+        }
+        if (mode == ApplicationProperties.Wallet.Mode.GROUP_COMMIT && applicationProperties.getWallet().getLock().getType() == NONE) {
+            // The lock holder applies the operations queued by the others
+            throw new IllegalStateException("The group commit mode requires a lock in the application");
+        }
+        log.debug("Using the {} digital wallet service", mode);
+        return switch (mode) {
+            case LOCKING -> safeDigitalWalletService;
+            case PARTITIONED -> partitionedDigitalWalletService.getObject();
+            case GROUP_COMMIT -> groupCommitDigitalWalletService.getObject();
+            case OPTIMISTIC -> optimisticDigitalWalletService.getObject();
+        };
+    }
+
+    /**
+     * The balance of the ledger only counts the transactions with an id above the snapshot of the account: the ids of
+     * an account must grow in the order its transactions are committed. They do with the blocks of the sequence of a
+     * single instance, the ids being generated under the lock of the account, but not across instances, each one
+     * having its own block, nor with time ordered ids, whose order depends on the node id and the clocks.
+     */
+    private static void checkLedgerIds(ApplicationProperties.Wallet wallet) {
+        if (wallet.getLock().getDatabase() != ApplicationProperties.Lock.Database.NONE) {
+            throw new IllegalStateException("The ledger write mode supports a single instance, not a database lock");
+        }
+        if (wallet.getId().getStrategy() == ApplicationProperties.Id.Strategy.TIME_ORDERED) {
+            throw new IllegalStateException("The ledger write mode requires the ids of the sequence, not time ordered ones");
+        }
+    }
+}
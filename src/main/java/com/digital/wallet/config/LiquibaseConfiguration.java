@@ -1,5 +1,7 @@
 package com.digital.wallet.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import javax.sql.DataSource;
 import liquibase.integration.spring.SpringLiquibase;
@@ -34,7 +36,8 @@ public class LiquibaseConfiguration {
         LiquibaseProperties liquibaseProperties,
         @LiquibaseDataSource ObjectProvider<DataSource> liquibaseDataSource,
         ObjectProvider<DataSource> dataSource,
-        DataSourceProperties dataSourceProperties
+        DataSourceProperties dataSourceProperties,
+        ApplicationProperties applicationProperties
     ) {
         // If you don't want Liquibase to start asynchronously, substitute by this:
         // SpringLiquibase liquibase = SpringLiquibaseUtil.createSpringLiquibase(liquibaseDataSource.getIfAvailable(), liquibaseProperties, dataSource.getIfUnique(), dataSourceProperties);
@@ -55,7 +58,7 @@ public class LiquibaseConfiguration {
         liquibase.setDatabaseChangeLogTable(liquibaseProperties.getDatabaseChangeLogTable());
         liquibase.setDropFirst(liquibaseProperties.isDropFirst());
         liquibase.setLabelFilter(liquibaseProperties.getLabelFilter());
-        liquibase.setChangeLogParameters(liquibaseProperties.getParameters());
+        liquibase.setChangeLogParameters(changeLogParameters(liquibaseProperties, applicationProperties));
         liquibase.setRollbackFile(liquibaseProperties.getRollbackFile());
         liquibase.setTestRollbackOnUpdate(liquibaseProperties.isTestRollbackOnUpdate());
         if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_NO_LIQUIBASE))) {
@@ -66,4 +69,20 @@ public class LiquibaseConfiguration {
         }
         return liquibase;
     }
+
+    /**
+     * The parameters of {@code spring.liquibase.parameters}, plus {@code idBlockSize}: the increment of
+     * {@code sequence_generator}, see {@link ApplicationProperties.Id#getBlockSize()}.
+     */
+    private static Map<String, String> changeLogParameters(
+        LiquibaseProperties liquibaseProperties,
+        ApplicationProperties applicationProperties
+    ) {
+        Map<String, String> parameters = new HashMap<>();
+        if (liquibaseProperties.getParameters() != null) {
+            parameters.putAll(liquibaseProperties.getParameters());
+        }
+        parameters.put("idBlockSize", String.valueOf(applicationProperties.getWallet().getId().getBlockSize()));
+        return parameters;
+    }
 }
@@ -0,0 +1,40 @@
+package com.digital.wallet.config;
+
+import com.digital.wallet.service.lock.AbstractLockTable;
+import com.digital.wallet.service.lock.NoLockTable;
+import com.digital.wallet.service.lock.PerKeyLockTable;
+import com.digital.wallet.service.lock.StripedLockTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the lock table used to prevent concurrent operations on the same account, see
+ * {@link ApplicationProperties.Lock}.
+ */
+@Configuration
+public class LockTableConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(LockTableConfiguration.class);
+
+    @Bean
+    public AbstractLockTable lockTable(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Lock lock = applicationProperties.getWallet().getLock();
+        if (lock.getType() == ApplicationProperties.Lock.Type.NONE && lock.getDatabase() == ApplicationProperties.Lock.Database.NONE) {
+            throw new IllegalStateException("Accounts must be locked either in the application or in the database");
+        }
+        log.debug(
+            "Creating {} lock table with {} stripes (fair: {}), {} database lock",
+            lock.getType(),
+            lock.getStripes(),
+            lock.isFair(),
+            lock.getDatabase()
+        );
+        return switch (lock.getType()) {
+            case STRIPED -> new StripedLockTable(lock.getStripes(), lock.isFair());
+            case PER_KEY -> new PerKeyLockTable(lock.getStripes(), lock.isFair());
+            case NONE -> new NoLockTable();
+        };
+    }
+}
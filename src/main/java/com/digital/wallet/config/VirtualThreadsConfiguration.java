@@ -0,0 +1,36 @@
+package com.digital.wallet.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Runs the servlet requests on virtual threads when {@code spring.threads.virtual.enabled} is set (Java 21+). Spring
+ * Boot does it for Tomcat and Jetty but not for Undertow, whose worker pool is used otherwise. The {@code @Async}
+ * tasks are handled by {@link AsyncConfiguration}.
+ * <p>
+ * A virtual thread blocked in a {@code synchronized} block pins its carrier thread. The request path avoids it: the
+ * lock table is made of {@link java.util.concurrent.locks.ReentrantLock}s (see
+ * {@link com.digital.wallet.service.lock.AbstractLockTable}), and the Postgresql driver and Hikari do not block inside
+ * monitors. The H2 driver does, so do not expect much from virtual threads with the dev profile. Run with
+ * {@code -Djdk.tracePinnedThreads=short} to report pinning.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> undertowVirtualThreadsCustomizer() {
+        log.debug("Running Undertow servlet requests on virtual threads");
+        return factory ->
+            factory.addDeploymentInfoCustomizers(deploymentInfo -> deploymentInfo.setExecutor(new VirtualThreadTaskExecutor("undertow-")));
+    }
+}
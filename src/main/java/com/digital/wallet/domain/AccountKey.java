@@ -0,0 +1,24 @@
+package com.digital.wallet.domain;
+
+import java.util.Comparator;
+
+/**
+ * Identifies a {@link WalletAccount}: a customer has at most one account per currency.
+ *
+ * @param customerId   the unique identifier of the customer
+ * @param currencyCode the currency of the account. As per ISO 4217.
+ */
+public record AccountKey(Long customerId, String currencyCode) implements Comparable<AccountKey> {
+    private static final Comparator<AccountKey> ORDER = Comparator
+        .comparing(AccountKey::customerId)
+        .thenComparing(AccountKey::currencyCode);
+
+    public static AccountKey of(WalletAccount account) {
+        return new AccountKey(account.getCustomerId(), account.getCurrencyCode());
+    }
+
+    @Override
+    public int compareTo(AccountKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,41 @@
+package com.digital.wallet.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.util.Currency;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maps the ISO 4217 currency codes to the {@code varchar(3)} columns, reading them as one shared instance per currency
+ * (the code of the {@link Currency}) instead of a new string per row: loaded entities do not retain a copy of their
+ * currency, and comparing codes of the same currency stops at the identity check of {@link String#equals}. Unknown codes
+ * are read as is.
+ */
+@Converter
+public class CurrencyCodeConverter implements AttributeConverter<String, String> {
+
+    private static final Map<String, String> CODES = Currency
+        .getAvailableCurrencies()
+        .stream()
+        .map(Currency::getCurrencyCode)
+        .collect(Collectors.toUnmodifiableMap(Function.identity(), Function.identity()));
+
+    /**
+     * @return the shared instance of the code, the code itself if it is not an ISO 4217 one
+     */
+    public static String canonical(String currencyCode) {
+        return currencyCode == null ? null : CODES.getOrDefault(currencyCode, currencyCode);
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String currencyCode) {
+        return currencyCode;
+    }
+
+    @Override
+    public String convertToEntityAttribute(String currencyCode) {
+        return canonical(currencyCode);
+    }
+}
@@ -0,0 +1,219 @@
+package com.digital.wallet.domain;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * An amount of money as a {@code long} number of minor units of its currency (pence, cents...) and the scale of these
+ * units: the number of decimals of the currency as per ISO 4217, see {@link #scaleOf}. Arithmetic and comparisons are
+ * done on the units and checked for overflow.
+ * <p>
+ * The static methods work on raw minor units, so that a hot path converts its {@link BigDecimal} amount once and then
+ * computes with primitives only, without allocating anything. Instances are immutable and are mapped to the
+ * {@code decimal(21,2)} amount columns by {@link MoneyConverter}.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The scale of the amount columns. Currencies with more decimals (the Kuwaiti dinar...) are limited to it.
+     */
+    public static final int MAX_SCALE = 2;
+
+    /**
+     * Powers of ten up to 10^18, the largest one that fits a long.
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long minorUnits;
+
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("The scale must be between 0 and " + (POWERS_OF_TEN.length - 1) + ": " + scale);
+        }
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Money ofMinor(long minorUnits, int scale) {
+        return new Money(minorUnits, scale);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amount has more decimals than the currency
+     */
+    public static Money of(BigDecimal amount, String currencyCode) {
+        int scale = scaleOf(currencyCode);
+        return new Money(toMinorUnits(amount, scale), scale);
+    }
+
+    /**
+     * @return the amount in its own scale, 0 if the scale is negative
+     */
+    public static Money of(BigDecimal amount) {
+        int scale = Math.max(0, amount.scale());
+        return new Money(toMinorUnits(amount, scale), scale);
+    }
+
+    /**
+     * The number of decimals of the currency as per ISO 4217, capped by {@link #MAX_SCALE}. Unknown codes and the codes
+     * without minor units defined (gold, testing...) get {@link #MAX_SCALE}. Does not allocate: currencies are cached
+     * by {@link Currency}.
+     */
+    public static int scaleOf(String currencyCode) {
+        int digits;
+        try {
+            digits = Currency.getInstance(currencyCode).getDefaultFractionDigits();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return MAX_SCALE;
+        }
+        return digits < 0 ? MAX_SCALE : Math.min(digits, MAX_SCALE);
+    }
+
+    /**
+     * Whether the amount has at most the given number of decimals, trailing zeros excluded. Only allocates for an amount
+     * with more decimals than the scale.
+     */
+    public static boolean hasAtMostDecimals(BigDecimal amount, int scale) {
+        return amount.scale() <= scale || amount.stripTrailingZeros().scale() <= scale;
+    }
+
+    /**
+     * Converts an amount to minor units. Integer amounts, as the {@link com.digital.wallet.config.Constants} limits,
+     * are converted without allocating anything.
+     *
+     * @throws IllegalArgumentException if the amount has more decimals than the scale
+     * @throws ArithmeticException      if the amount does not fit a long in minor units
+     */
+    public static long toMinorUnits(BigDecimal amount, int scale) {
+        if (amount.scale() == 0) {
+            return Math.multiplyExact(amount.longValueExact(), POWERS_OF_TEN[scale]);
+        }
+        try {
+            return amount.movePointRight(scale).longValueExact();
+        } catch (ArithmeticException e) {
+            if (amount.stripTrailingZeros().scale() > scale) {
+                throw new IllegalArgumentException("The amount " + amount.toPlainString() + " has more than " + scale + " decimals", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Converts minor units from a scale to another.
+     *
+     * @throws IllegalArgumentException if the units have more decimals than the new scale
+     * @throws ArithmeticException      if the result does not fit a long
+     */
+    public static long rescale(long minorUnits, int fromScale, int toScale) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(minorUnits, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        long divisor = POWERS_OF_TEN[fromScale - toScale];
+        if (minorUnits % divisor != 0) {
+            throw new IllegalArgumentException("The amount " + minorUnits + "E-" + fromScale + " has more than " + toScale + " decimals");
+        }
+        return minorUnits / divisor;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @return the minor units of the amount in the given scale
+     * @throws IllegalArgumentException if the amount has more decimals than the scale
+     */
+    public long minorUnits(int scale) {
+        return rescale(this.minorUnits, this.scale, scale);
+    }
+
+    /**
+     * @return the sum, in the larger scale of both
+     */
+    public Money plus(Money other) {
+        int sumScale = Math.max(this.scale, other.scale);
+        return new Money(Math.addExact(minorUnits(sumScale), other.minorUnits(sumScale)), sumScale);
+    }
+
+    /**
+     * @return the difference, in the larger scale of both
+     */
+    public Money minus(Money other) {
+        int differenceScale = Math.max(this.scale, other.scale);
+        return new Money(Math.subtractExact(minorUnits(differenceScale), other.minorUnits(differenceScale)), differenceScale);
+    }
+
+    public int signum() {
+        return Long.signum(this.minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(this.minorUnits, this.scale);
+    }
+
+    /**
+     * Compares the amounts whatever their scales: 10.00 and 10 are equal.
+     *
+     * @throws ArithmeticException if an amount does not fit a long in the larger scale
+     */
+    @Override
+    public int compareTo(Money other) {
+        int comparisonScale = Math.max(this.scale, other.scale);
+        return Long.compare(minorUnits(comparisonScale), other.minorUnits(comparisonScale));
+    }
+
+    /**
+     * Equal amounts are equal whatever their scales, as {@link #compareTo}, unlike {@link BigDecimal#equals}: an
+     * amount read from the database and the same amount computed in the scale of its currency are the same state.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        if (this.scale == other.scale) {
+            return this.minorUnits == other.minorUnits;
+        }
+        try {
+            return compareTo(other) == 0;
+        } catch (ArithmeticException e) {
+            // Too large to be rescaled, so it differs from an amount of a smaller scale
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        long units = this.minorUnits;
+        for (int i = this.scale; i > 0 && units % 10 == 0; i--) {
+            units /= 10;
+        }
+        return Long.hashCode(units);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
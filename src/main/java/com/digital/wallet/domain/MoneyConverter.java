@@ -0,0 +1,26 @@
+package com.digital.wallet.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Maps {@link Money} to the {@code decimal} amount columns. A value read keeps the scale of the column, equal to the
+ * same amount in the scale of its currency, see {@link Money#equals}. Money being immutable, Hibernate keeps the value
+ * read as the snapshot of the entity instead of a deep copy.
+ */
+@Converter
+@Immutable
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
@@ -0,0 +1,69 @@
+package com.digital.wallet.domain;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Allocates 64-bit ids in memory that sort by their allocation time, without any database round trip: 41 bits of
+ * milliseconds since {@link #EPOCH} (about 69 years), 10 bits of node id, so that the instances sharing a database
+ * allocate distinct ids, and 12 bits of sequence within the millisecond.
+ * <p>
+ * The ids of a node strictly increase: more than 4096 ids in a millisecond, or a clock going backwards, borrow the
+ * sequence of the following milliseconds. The ids of different nodes interleave by time, so recent rows are appended at
+ * the end of the primary key index and a keyset scan on the id reads them in time order.
+ */
+public final class TimeOrderedIds {
+
+    /**
+     * 2024-01-01T00:00:00Z, the time of the id 0.
+     */
+    public static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+
+    static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    private final LongSupplier clock;
+
+    /**
+     * The milliseconds since the epoch and the sequence of the last id allocated.
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIds(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    TimeOrderedIds(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("The node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long next() {
+        long now = (this.clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long state = this.last.accumulateAndGet(now, (previous, current) -> Math.max(previous + 1, current));
+        return ((state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | this.node | (state & SEQUENCE_MASK);
+    }
+
+    /**
+     * @return the time the id has been allocated at, to the millisecond, unless it borrowed the sequence of the
+     * following milliseconds
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH);
+    }
+
+    public static int nodeIdOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
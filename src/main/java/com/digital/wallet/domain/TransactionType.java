@@ -1,6 +1,34 @@
 package com.digital.wallet.domain;
 
+/**
+ * The type of a transaction, stored as its {@link #getCode() code} in a {@code smallint} column, see
+ * {@link TransactionTypeConverter}.
+ */
 public enum TransactionType {
-    DEBIT,
-    CREDIT,
+    DEBIT(1),
+    CREDIT(2);
+
+    private final short code;
+
+    TransactionType(int code) {
+        this.code = (short) code;
+    }
+
+    /**
+     * The code stored in the database. Unlike the ordinal, it does not change if a type is added.
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no type has the code
+     */
+    public static TransactionType fromCode(short code) {
+        return switch (code) {
+            case 1 -> DEBIT;
+            case 2 -> CREDIT;
+            default -> throw new IllegalArgumentException("Unknown transaction type code: " + code);
+        };
+    }
 }
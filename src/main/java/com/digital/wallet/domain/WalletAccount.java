@@ -4,31 +4,56 @@ import jakarta.persistence.*;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Objects;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
 @Table(name = "wallet_account")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 public class WalletAccount extends AbstractAuditingEntity<Long> implements Serializable {
 
     @Version // for enabling optimistic locking
     private Long version;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(generator = "walletIdGenerator")
+    @GenericGenerator(name = "walletIdGenerator", type = WalletIdGenerator.class)
     private Long id;
 
+    /**
+     * The owner of the account. A customer has at most one account per currency, see {@link AccountKey}: with the
+     * currency, the natural id of the account.
+     */
+    @NaturalId
+    @Column(name = "customer_id", nullable = false, updatable = false)
+    private Long customerId;
+
     /**
      * The amount of money available.
      */
     @Column(name = "amount", nullable = false)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
 
     /**
      * As per ISO 4217. <a href="https://en.wikipedia.org/wiki/ISO_4217">https://en.wikipedia.org/wiki/ISO_4217</a>
      */
-    @Column(name = "currency_code", nullable = false)
+    @NaturalId
+    @Column(name = "currency_code", length = 3, nullable = false, updatable = false)
+    @Convert(converter = CurrencyCodeConverter.class)
     private String currencyCode;
 
+    /**
+     * With the ledger write mode, the id of the last transaction included in {@link #amount}, null if none. See
+     * {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode#LEDGER}.
+     */
+    @Column(name = "ledger_snapshot_id")
+    private Long ledgerSnapshotId;
+
     public Long getVersion() {
         return version;
     }
@@ -46,12 +71,31 @@ public class WalletAccount extends AbstractAuditingEntity<Long> implements Seria
         this.id = id;
     }
 
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
     public BigDecimal getAmount() {
-        return amount;
+        return amount == null ? null : amount.toBigDecimal();
     }
 
     public void setAmount(BigDecimal amount) {
-        this.amount = amount;
+        this.amount = amount == null ? null : Money.of(amount);
+    }
+
+    /**
+     * The amount as minor units, to compute the balance without allocating {@link BigDecimal}s.
+     */
+    public Money getBalance() {
+        return amount;
+    }
+
+    public void setBalance(Money balance) {
+        this.amount = balance;
     }
 
     public String getCurrencyCode() {
@@ -62,6 +106,14 @@ public class WalletAccount extends AbstractAuditingEntity<Long> implements Seria
         this.currencyCode = currencyCode;
     }
 
+    public Long getLedgerSnapshotId() {
+        return ledgerSnapshotId;
+    }
+
+    public void setLedgerSnapshotId(Long ledgerSnapshotId) {
+        this.ledgerSnapshotId = ledgerSnapshotId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -70,14 +122,16 @@ public class WalletAccount extends AbstractAuditingEntity<Long> implements Seria
         return (
             Objects.equals(version, that.version) &&
             Objects.equals(id, that.id) &&
+            Objects.equals(customerId, that.customerId) &&
             Objects.equals(amount, that.amount) &&
-            Objects.equals(currencyCode, that.currencyCode)
+            Objects.equals(currencyCode, that.currencyCode) &&
+            Objects.equals(ledgerSnapshotId, that.ledgerSnapshotId)
         );
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(version, id, amount, currencyCode);
+        return Objects.hash(version, id, customerId, amount, currencyCode, ledgerSnapshotId);
     }
 
     @Override
@@ -85,8 +139,10 @@ public class WalletAccount extends AbstractAuditingEntity<Long> implements Seria
         final StringBuilder sb = new StringBuilder("WalletAccount{");
         sb.append("version=").append(version);
         sb.append(", id=").append(id);
+        sb.append(", customerId=").append(customerId);
         sb.append(", amount=").append(amount);
         sb.append(", currencyCode='").append(currencyCode).append('\'');
+        sb.append(", ledgerSnapshotId=").append(ledgerSnapshotId);
         sb.append('}');
         return sb.toString();
     }
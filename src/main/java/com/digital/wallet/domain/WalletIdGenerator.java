@@ -0,0 +1,141 @@
+package com.digital.wallet.domain;
+
+import com.digital.wallet.config.ApplicationProperties;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Generates the ids of the entities as configured by {@link ApplicationProperties.Id}, passed as Hibernate settings by
+ * {@link com.digital.wallet.config.DatabaseConfiguration}:
+ * <ul>
+ *     <li>{@link ApplicationProperties.Id.Strategy#SEQUENCE}: {@code sequence_generator} with the pooled-lo optimizer,
+ *     one sequence call per {@link ApplicationProperties.Id#getBlockSize()} ids. The increment of the sequence is set
+ *     to the block size by Liquibase.</li>
+ *     <li>{@link ApplicationProperties.Id.Strategy#TIME_ORDERED}: {@link TimeOrderedIds}, no sequence call at all.</li>
+ * </ul>
+ * The ids of the statements executed without Hibernate are generated by the same instance, see
+ * {@link com.digital.wallet.repository.WalletAccountBalanceRepositoryImpl}, or reserved many blocks at once by
+ * {@link #generate(SharedSessionContractImplementor, int)}.
+ */
+public class WalletIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "wallet.id.strategy";
+
+    public static final String BLOCK_SIZE = "wallet.id.block-size";
+
+    public static final String NODE_ID = "wallet.id.node-id";
+
+    static final String SEQUENCE_NAME = "sequence_generator";
+
+    private TimeOrderedIds timeOrderedIds;
+
+    /**
+     * The last id reserved by {@link #generate(SharedSessionContractImplementor, int)}, see
+     * {@link #generate(SharedSessionContractImplementor, Object)}.
+     */
+    private final AtomicLong lastReservedId = new AtomicLong(Long.MIN_VALUE);
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<String, Object> settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+        ApplicationProperties.Id.Strategy strategy = ApplicationProperties.Id.Strategy.valueOf(
+            ConfigurationHelper.getString(STRATEGY, settings, ApplicationProperties.Id.Strategy.SEQUENCE.name()).toUpperCase(Locale.ROOT)
+        );
+        // The sequence is kept with the time ordered ids, so that the strategy can be switched to them
+        parameters.put(SEQUENCE_PARAM, SEQUENCE_NAME);
+        parameters.put(OptimizableGenerator.INCREMENT_PARAM, ConfigurationHelper.getInt(BLOCK_SIZE, settings, 50));
+        parameters.put(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+        if (strategy == ApplicationProperties.Id.Strategy.TIME_ORDERED) {
+            this.timeOrderedIds = new TimeOrderedIds(ConfigurationHelper.getInt(NODE_ID, settings, 0));
+        }
+    }
+
+    /**
+     * The ids grow in the order they are generated, as the ledger write mode requires: the rest of the current block is
+     * skipped once ids above it have been reserved, the next block being allocated after them.
+     */
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (this.timeOrderedIds != null) {
+            return this.timeOrderedIds.next();
+        }
+        Object id = super.generate(session, object);
+        while (((Number) id).longValue() <= this.lastReservedId.get()) {
+            id = super.generate(session, object);
+        }
+        return id;
+    }
+
+    /**
+     * Reserves ids for {@code count} rows written without Hibernate (bulk loads): with the sequence, all the blocks
+     * needed are fetched in one round trip, each sequence value being the first id of a block of
+     * {@link ApplicationProperties.Id#getBlockSize()} ids as with the pooled-lo optimizer. The ids of the last block
+     * that are not returned are not used. The ids generated afterwards by this instance are greater.
+     *
+     * @return the ids, in ascending order
+     */
+    public long[] generate(SharedSessionContractImplementor session, int count) {
+        long[] ids = new long[count];
+        if (this.timeOrderedIds != null) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = this.timeOrderedIds.next();
+            }
+            return ids;
+        }
+        int blockSize = getOptimizer().getIncrementSize();
+        int blocks = (count + blockSize - 1) / blockSize;
+        String nextValue = session.getJdbcServices().getDialect().getSequenceSupport().getSelectSequenceNextValString(SEQUENCE_NAME);
+        String sql = session.getJdbcServices().getDialect() instanceof PostgreSQLDialect
+            ? "select " + nextValue + " from generate_series(1, ?) order by 1"
+            : "select " + nextValue + " from system_range(1, ?) order by 1";
+        PreparedStatement statement = session.getJdbcCoordinator().getStatementPreparer().prepareStatement(sql);
+        try {
+            statement.setInt(1, blocks);
+            ResultSet resultSet = session.getJdbcCoordinator().getResultSetReturn().extract(statement, sql);
+            int i = 0;
+            while (resultSet.next()) {
+                long first = resultSet.getLong(1);
+                for (int j = 0; j < blockSize && i < count; j++) {
+                    ids[i++] = first + j;
+                }
+            }
+            if (i < count) {
+                throw new HibernateException("Only " + i + " ids out of " + count + " could be reserved");
+            }
+            if (count > 0) {
+                this.lastReservedId.accumulateAndGet(ids[count - 1], Math::max);
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not reserve ids", sql);
+        } finally {
+            session.getJdbcCoordinator().getLogicalConnection().getResourceRegistry().release(statement);
+            session.getJdbcCoordinator().afterStatementExecution();
+        }
+    }
+
+    /**
+     * Bulk inserts (insert ... select) would take their ids from the sequence.
+     */
+    @Override
+    public boolean supportsBulkInsertionIdentifierGeneration() {
+        return this.timeOrderedIds == null && super.supportsBulkInsertionIdentifierGeneration();
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Objects;
+import org.hibernate.annotations.GenericGenerator;
 
 /**
  * A user.
@@ -16,8 +17,8 @@ public class WalletTransaction extends AbstractAuditingEntity<Long> implements S
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(generator = "walletIdGenerator")
+    @GenericGenerator(name = "walletIdGenerator", type = WalletIdGenerator.class)
     private Long id;
 
     /**
@@ -37,7 +38,8 @@ public class WalletTransaction extends AbstractAuditingEntity<Long> implements S
      * Currency for Deposit Amount.
      */
     @NotNull
-    @Column(name = "currency_code", nullable = false)
+    @Column(name = "currency_code", length = 3, nullable = false)
+    @Convert(converter = CurrencyCodeConverter.class)
     private String currencyCode;
 
     /**
@@ -46,8 +48,8 @@ public class WalletTransaction extends AbstractAuditingEntity<Long> implements S
     @Column(name = "remarks")
     private String remarks;
 
-    @Enumerated(EnumType.STRING)
     @Column(name = "transaction_type", nullable = false)
+    @Convert(converter = TransactionTypeConverter.class)
     private TransactionType transactionType;
 
     @Override
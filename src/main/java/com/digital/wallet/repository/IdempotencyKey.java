@@ -0,0 +1,26 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.TransactionType;
+import java.math.BigDecimal;
+
+/**
+ * An idempotency key and the operation it has been recorded for, see {@link WalletIdempotencyKeyRepository}.
+ *
+ * @param customerId     the unique identifier of the customer
+ * @param idempotencyKey the key given by the client, unique per customer
+ * @param type           deposit or withdrawal
+ * @param currencyCode   the currency of the operation
+ * @param amount         the amount of the operation
+ */
+public record IdempotencyKey(Long customerId, String idempotencyKey, TransactionType type, String currencyCode, BigDecimal amount) {
+    /**
+     * @return true if both keys have been given for the same operation
+     */
+    public boolean isSameOperation(IdempotencyKey other) {
+        return (
+            this.type == other.type &&
+            this.currencyCode.equals(other.currencyCode) &&
+            this.amount.compareTo(other.amount) == 0
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package com.digital.wallet.repository;
+
+import java.time.Instant;
+
+/**
+ * The progress of a bulk import, see {@link WalletBulkLoadRepository}.
+ *
+ * @param name               the unique name of the import, given by the operator
+ * @param accountsLoaded     the number of accounts loaded from the input, the ones to skip when restarting
+ * @param transactionsLoaded the number of transactions loaded from the input, the ones to skip when restarting
+ * @param loaded             true once both inputs have been loaded, the balances being updated afterwards
+ * @param lastAccountId      the id of the last account whose balance has been updated, null if none
+ * @param createdDate        when the import has been started for the first time
+ * @param lastModifiedDate   when the last chunk has been committed
+ * @param completedDate      when the import has completed, null if it has not
+ */
+public record ImportJob(
+    String name,
+    long accountsLoaded,
+    long transactionsLoaded,
+    boolean loaded,
+    Long lastAccountId,
+    Instant createdDate,
+    Instant lastModifiedDate,
+    Instant completedDate
+) {
+    public boolean isCompleted() {
+        return this.completedDate != null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.digital.wallet.repository;
+
+import java.time.Instant;
+
+/**
+ * An account read from the input of a bulk import, created with a zero balance, see {@link WalletBulkLoadRepository}.
+ *
+ * @param customerId   the unique identifier of the customer
+ * @param currencyCode the currency of the account
+ * @param createdDate  when the account has been opened
+ */
+public record ImportedAccount(Long customerId, String currencyCode, Instant createdDate) {}
@@ -0,0 +1,24 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.TransactionType;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A historical transaction read from the input of a bulk import, see {@link WalletBulkLoadRepository}.
+ *
+ * @param customerId   the unique identifier of the customer
+ * @param type         credit or debit
+ * @param amount       the amount credited or debited
+ * @param currencyCode the currency of the account
+ * @param remarks      the remarks of the transaction, empty if none
+ * @param createdDate  when the transaction has been made
+ */
+public record ImportedTransaction(
+    Long customerId,
+    TransactionType type,
+    BigDecimal amount,
+    String currencyCode,
+    String remarks,
+    Instant createdDate
+) {}
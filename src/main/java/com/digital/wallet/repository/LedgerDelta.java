@@ -0,0 +1,11 @@
+package com.digital.wallet.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The transactions of an account after its ledger snapshot, see {@link WalletTransactionRepository#findLedgerDelta}.
+ *
+ * @param lastTransactionId the id of the last transaction, null if there is none
+ * @param amount            the sum of the credits minus the sum of the debits, null if there is none
+ */
+public record LedgerDelta(Long lastTransactionId, BigDecimal amount) {}
@@ -0,0 +1,19 @@
+package com.digital.wallet.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The balance of an account and the sum of its transactions, read in the same statement, see
+ * {@link WalletReconciliationRepository}.
+ *
+ * @param accountId         the id of the account
+ * @param customerId        the unique identifier of the customer
+ * @param currencyCode      the currency of the account
+ * @param balance           the balance of the account, including its ledger with the ledger write mode
+ * @param transactionsTotal the sum of the credits minus the sum of the debits of the account
+ */
+public record ReconciledAccount(Long accountId, Long customerId, String currencyCode, BigDecimal balance, BigDecimal transactionsTotal) {
+    public boolean isBalanced() {
+        return this.balance.compareTo(this.transactionsTotal) == 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.digital.wallet.repository;
+
+import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A range partition of the {@code wallet_transaction} table, see {@link WalletTransactionPartitionRepository}. Bounds
+ * are {@code created_date} values, in UTC.
+ *
+ * @param name the name of the partition (table)
+ * @param from the inclusive lower bound, null for {@code MINVALUE}
+ * @param to   the exclusive upper bound, null for {@code MAXVALUE}
+ */
+public record TransactionPartition(String name, LocalDateTime from, LocalDateTime to) {
+    private static final Pattern BOUND = Pattern.compile("FOR VALUES FROM \\((.+)\\) TO \\((.+)\\)");
+
+    /**
+     * @param name  the name of the partition
+     * @param bound the bound of the partition as given by {@code pg_get_expr(relpartbound, oid)}, e.g.
+     *              {@code FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')}
+     */
+    public static TransactionPartition of(String name, String bound) {
+        Matcher matcher = BOUND.matcher(bound);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unexpected bound of partition " + name + ": " + bound);
+        }
+        return new TransactionPartition(name, parse(matcher.group(1)), parse(matcher.group(2)));
+    }
+
+    private static LocalDateTime parse(String value) {
+        if ("MINVALUE".equals(value) || "MAXVALUE".equals(value)) {
+            return null;
+        }
+        // '2026-11-01 00:00:00'
+        return LocalDateTime.parse(value.substring(1, value.length() - 1).replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,25 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.TransactionType;
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Updates the balance of an account and records the corresponding {@link com.digital.wallet.domain.WalletTransaction}
+ * without loading the account: a conditional update of the balance and the insert of the transaction are executed as
+ * a single statement (a CTE with Postgresql, two statements with H2).
+ */
+public interface WalletAccountBalanceRepository {
+    /**
+     * Credits or debits the account of the customer in the currency and records the transaction. Nothing is written if
+     * the account does not exist or if the balance is not sufficient for a debit.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param currency   the currency of the account
+     * @param amount     the amount to credit or debit
+     * @param type       whether to credit or debit the account
+     * @param remarks    the remarks of the transaction
+     * @return the new balance, or empty if nothing has been written
+     */
+    Optional<BigDecimal> applyTransaction(Long customerId, String currency, BigDecimal amount, TransactionType type, String remarks);
+}
@@ -0,0 +1,169 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.Cache;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+
+/**
+ * Implementation of {@link WalletAccountBalanceRepository} with native queries.
+ */
+public class WalletAccountBalanceRepositoryImpl implements WalletAccountBalanceRepository {
+
+    private static final String UPDATE_BALANCE =
+        """
+        UPDATE wallet_account
+        SET amount = amount + :credit - :debit, version = version + 1, last_modified_by = :user, last_modified_date = :now
+        WHERE customer_id = :customerId AND currency_code = :currency AND amount >= :debit""";
+
+    private static final String INSERT_TRANSACTION_COLUMNS =
+        """
+        INSERT INTO wallet_transaction (id, customer_id, amount, currency_code, remarks, transaction_type,
+                                        created_by, created_date, last_modified_by, last_modified_date)
+        """;
+
+    /**
+     * The update and the insert in one statement: the transaction is only inserted if the account has been updated.
+     */
+    private static final String POSTGRESQL_APPLY_TRANSACTION =
+        "WITH account AS (" +
+        UPDATE_BALANCE +
+        " RETURNING id, customer_id, amount) " +
+        INSERT_TRANSACTION_COLUMNS +
+        "SELECT :trxId, customer_id, :amount, :currency, :remarks, :type, :user, :now, :user, :now FROM account " +
+        "RETURNING (SELECT id FROM account), (SELECT amount FROM account)";
+
+    /**
+     * H2 does not support data-modifying CTEs but can return the updated row with a data change delta table.
+     */
+    private static final String H2_UPDATE_BALANCE = "SELECT id, amount FROM FINAL TABLE (" + UPDATE_BALANCE + ")";
+
+    private static final String H2_INSERT_TRANSACTION =
+        INSERT_TRANSACTION_COLUMNS + "VALUES (:trxId, :customerId, :amount, :currency, :remarks, :type, :user, :now, :user, :now)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AuditorAware<String> auditorAware;
+
+    private final DateTimeProvider dateTimeProvider;
+
+    public WalletAccountBalanceRepositoryImpl(AuditorAware<String> auditorAware, DateTimeProvider dateTimeProvider) {
+        this.auditorAware = auditorAware;
+        this.dateTimeProvider = dateTimeProvider;
+    }
+
+    @Override
+    public Optional<BigDecimal> applyTransaction(Long customerId, String currency, BigDecimal amount, TransactionType type, String remarks) {
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        String user = this.auditorAware.getCurrentAuditor().orElseThrow();
+        Instant now = Instant.from(this.dateTimeProvider.getNow().orElseThrow());
+        BigDecimal credit = type == TransactionType.CREDIT ? amount : BigDecimal.ZERO;
+        BigDecimal debit = type == TransactionType.DEBIT ? amount : BigDecimal.ZERO;
+        Object trxId = generateId(session, WalletTransaction.class);
+
+        // The id and the new balance of the account
+        Optional<Object[]> account;
+        if (session.getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+            Query query = this.entityManager.createNativeQuery(POSTGRESQL_APPLY_TRANSACTION);
+            setBalanceParameters(query, customerId, currency, credit, debit, user, now);
+            setTransactionParameters(query, trxId, amount, currency, remarks, type);
+            account = singleResult(query.getResultList());
+        } else {
+            Query update = this.entityManager.createNativeQuery(H2_UPDATE_BALANCE);
+            setBalanceParameters(update, customerId, currency, credit, debit, user, now);
+            account = singleResult(update.getResultList());
+            if (account.isPresent()) {
+                Query insert = this.entityManager.createNativeQuery(H2_INSERT_TRANSACTION);
+                setTransactionParameters(insert, trxId, amount, currency, remarks, type);
+                insert.setParameter("customerId", customerId);
+                insert.setParameter("user", user);
+                insert.setParameter("now", now);
+                // Otherwise Hibernate invalidates the whole second-level cache
+                insert.unwrap(NativeQuery.class).addSynchronizedEntityClass(WalletTransaction.class);
+                insert.executeUpdate();
+            }
+        }
+        account.ifPresent(row -> {
+            Long accountId = ((Number) row[0]).longValue();
+            evictCachedAccount(session, accountId);
+            refreshIfManaged(session, accountId);
+        });
+        return account.map(row -> (BigDecimal) row[1]);
+    }
+
+    private static void setBalanceParameters(
+        Query query,
+        Long customerId,
+        String currency,
+        BigDecimal credit,
+        BigDecimal debit,
+        String user,
+        Instant now
+    ) {
+        query.setParameter("customerId", customerId);
+        query.setParameter("currency", currency);
+        query.setParameter("credit", credit);
+        query.setParameter("debit", debit);
+        query.setParameter("user", user);
+        query.setParameter("now", now);
+    }
+
+    private static void setTransactionParameters(Query query, Object trxId, BigDecimal amount, String currency, String remarks, TransactionType type) {
+        query.setParameter("trxId", trxId);
+        query.setParameter("amount", amount);
+        query.setParameter("currency", currency);
+        query.setParameter("remarks", remarks);
+        query.setParameter("type", type.getCode());
+    }
+
+    private static Optional<Object[]> singleResult(List<?> result) {
+        return result.isEmpty() ? Optional.empty() : Optional.of((Object[]) result.get(0));
+    }
+
+    /**
+     * Uses the identifier generator of the entity so that ids are allocated from the same pool as the ones of the
+     * entities persisted by Hibernate.
+     */
+    private static Object generateId(SessionImplementor session, Class<?> entityClass) {
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(entityClass);
+        return ((IdentifierGenerator) persister.getGenerator()).generate(session, null);
+    }
+
+    /**
+     * The account has been updated behind the back of the second-level cache: its entry is evicted now so that this
+     * transaction does not read it, and after completion because a concurrent transaction may have cached the previous
+     * version in between.
+     */
+    private static void evictCachedAccount(SessionImplementor session, Long accountId) {
+        Cache cache = session.getFactory().getCache();
+        cache.evictEntityData(WalletAccount.class, accountId);
+        session.getActionQueue().registerProcess((success, s) -> cache.evictEntityData(WalletAccount.class, accountId));
+    }
+
+    /**
+     * The account has been updated behind the back of the persistence context: refresh it if it is managed so that it
+     * does not expose a stale balance or version.
+     */
+    private void refreshIfManaged(SessionImplementor session, Long accountId) {
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(WalletAccount.class);
+        Object account = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(accountId, persister));
+        if (account != null) {
+            this.entityManager.refresh(account);
+        }
+    }
+}
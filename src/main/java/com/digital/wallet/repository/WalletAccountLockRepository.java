@@ -0,0 +1,30 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.AccountKey;
+import java.util.Collection;
+
+/**
+ * Locks accounts in the database until the end of the current transaction, so that the instances of the application
+ * sharing the database do not operate on the same account concurrently, see
+ * {@link com.digital.wallet.config.ApplicationProperties.Lock#getDatabase()}. Locks are acquired in a deterministic
+ * order so that two transactions locking overlapping sets of accounts cannot deadlock. Once locked, the accounts are
+ * read from the database rather than from the second-level cache of this instance.
+ */
+public interface WalletAccountLockRepository {
+    /**
+     * Locks the rows of the accounts with {@code SELECT ... FOR UPDATE}: with a single statement by increasing id on
+     * Postgresql, in which case the other accounts of the customers in the currencies of the given accounts are locked
+     * as well, otherwise one by one in {@link AccountKey} order.
+     *
+     * @param accounts the accounts to lock, existing or not
+     */
+    void lockAccountRows(Collection<AccountKey> accounts);
+
+    /**
+     * Takes the transaction level advisory lock ({@code pg_advisory_xact_lock}) of each customer, by increasing id.
+     *
+     * @param customerIds the customers to lock
+     * @throws IllegalStateException if the database is not Postgresql
+     */
+    void lockCustomers(Collection<Long> customerIds);
+}
@@ -0,0 +1,90 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.WalletAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+
+/**
+ * Implementation of {@link WalletAccountLockRepository} with native queries.
+ */
+public class WalletAccountLockRepositoryImpl implements WalletAccountLockRepository {
+
+    private static final String LOCK_ACCOUNT =
+        "SELECT id FROM wallet_account WHERE customer_id = :customerId AND currency_code = :currency FOR UPDATE";
+
+    /**
+     * Postgresql locks the rows in the order of the ORDER BY. H2 locks them as it finds them, they are locked one by one.
+     */
+    private static final String POSTGRESQL_LOCK_ACCOUNTS =
+        "SELECT id FROM wallet_account WHERE customer_id IN (:customerIds) AND currency_code IN (:currencies) ORDER BY id FOR UPDATE";
+
+    /**
+     * The function returns void, selecting from it returns a row of a mapped type.
+     */
+    private static final String LOCK_CUSTOMER = "SELECT 1 FROM pg_advisory_xact_lock(:customerId)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void lockAccountRows(Collection<AccountKey> accounts) {
+        bypassSecondLevelCache();
+        SortedSet<AccountKey> ordered = new TreeSet<>(accounts);
+        if (ordered.size() > 1 && isPostgresql()) {
+            Query query = nativeQuery(POSTGRESQL_LOCK_ACCOUNTS);
+            query.setParameter("customerIds", ordered.stream().map(AccountKey::customerId).distinct().toList());
+            query.setParameter("currencies", ordered.stream().map(AccountKey::currencyCode).distinct().toList());
+            query.getResultList();
+            return;
+        }
+        for (AccountKey account : ordered) {
+            Query query = nativeQuery(LOCK_ACCOUNT);
+            query.setParameter("customerId", account.customerId());
+            query.setParameter("currency", account.currencyCode());
+            query.getResultList();
+        }
+    }
+
+    @Override
+    public void lockCustomers(Collection<Long> customerIds) {
+        if (!isPostgresql()) {
+            throw new IllegalStateException("Advisory locks require Postgresql");
+        }
+        bypassSecondLevelCache();
+        SortedSet<Long> ordered = new TreeSet<>(customerIds);
+        for (Long customerId : ordered) {
+            Query query = nativeQuery(LOCK_CUSTOMER);
+            query.setParameter("customerId", customerId);
+            query.getResultList();
+        }
+    }
+
+    /**
+     * The second-level cache is local to this instance: it may hold accounts that another instance has updated since.
+     * The rest of the transaction reads them from the database, and puts them in the cache.
+     */
+    private void bypassSecondLevelCache() {
+        this.entityManager.unwrap(Session.class).setCacheMode(CacheMode.REFRESH);
+    }
+
+    private boolean isPostgresql() {
+        return this.entityManager.unwrap(SessionImplementor.class).getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+
+    private Query nativeQuery(String sql) {
+        Query query = this.entityManager.createNativeQuery(sql);
+        // Otherwise Hibernate flushes the whole persistence context before the query
+        query.unwrap(NativeQuery.class).addSynchronizedEntityClass(WalletAccount.class);
+        return query;
+    }
+}
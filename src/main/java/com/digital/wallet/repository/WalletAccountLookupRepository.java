@@ -0,0 +1,16 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.WalletAccount;
+import java.util.Optional;
+
+/**
+ * Looks accounts up by their natural id, the {@code (customerId, currencyCode)} pair, through the second-level cache:
+ * the natural id region resolves the pair to the id, the entity region returns the account. A query would bypass both.
+ */
+public interface WalletAccountLookupRepository {
+    /**
+     * The account of a customer in a currency, backed by the unique {@code (customer_id, currency_code)} index when it
+     * is not cached.
+     */
+    Optional<WalletAccount> findByCustomerIdAndCurrencyCode(Long customerId, String currencyCode);
+}
@@ -0,0 +1,28 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.WalletAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link WalletAccountLookupRepository} with {@link Session#byNaturalId}.
+ */
+public class WalletAccountLookupRepositoryImpl implements WalletAccountLookupRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<WalletAccount> findByCustomerIdAndCurrencyCode(Long customerId, String currencyCode) {
+        return this.entityManager
+            .unwrap(Session.class)
+            .byNaturalId(WalletAccount.class)
+            .using("customerId", customerId)
+            .using("currencyCode", currencyCode)
+            .loadOptional();
+    }
+}
@@ -1,11 +1,36 @@
 package com.digital.wallet.repository;
 
 import com.digital.wallet.domain.WalletAccount;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Spring Data JPA repository for the {@link WalletAccount} entity.
  */
 @Repository
-public interface WalletAccountRepository extends JpaRepository<WalletAccount, Long> {}
+public interface WalletAccountRepository
+    extends JpaRepository<WalletAccount, Long>, WalletAccountLookupRepository, WalletAccountBalanceRepository, WalletAccountLockRepository {
+    /**
+     * The accounts of the given customers, in any currency.
+     */
+    List<WalletAccount> findAllByCustomerIdIn(Collection<Long> customerIds);
+
+    boolean existsByCustomerId(Long customerId);
+
+    /**
+     * Accounts with transactions after their ledger snapshot, by ascending id, see
+     * {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode#LEDGER}.
+     *
+     * @param afterId the accounts with a lower or equal id are ignored (keyset pagination)
+     */
+    @Query(
+        "select a from WalletAccount a where a.id > :afterId and exists (select 1 from WalletTransaction t where" +
+        " t.customerId = a.customerId and t.currencyCode = a.currencyCode and t.id > coalesce(a.ledgerSnapshotId, 0)) order by a.id"
+    )
+    List<WalletAccount> findAllWithLedgerEntries(@Param("afterId") long afterId, Limit limit);
+}
@@ -0,0 +1,408 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletIdGenerator;
+import com.digital.wallet.domain.WalletTransaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.Cache;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes the rows of the bulk imports without Hibernate, a chunk of rows per database transaction:
+ * <ul>
+ *     <li>the ids are reserved for the whole chunk at once, see {@link WalletIdGenerator#generate(SessionImplementor, int)}</li>
+ *     <li>the rows are streamed with {@code COPY ... FROM STDIN} on Postgresql, inserted as one JDBC batch otherwise</li>
+ *     <li>the audit columns are filled in with the name of the import, see {@link #auditorOf}, instead of the
+ *     auditing listeners</li>
+ *     <li>the progress of the import, in the {@code wallet_import_job} table, is updated in the same transaction as
+ *     the rows, so that an interrupted import restarts right after the last committed chunk</li>
+ * </ul>
+ * The balances are then updated set-wise, a range of accounts per statement, see {@link #updateBalances}.
+ */
+@Repository
+public class WalletBulkLoadRepository {
+
+    private static final String ACCOUNT_COLUMNS =
+        "wallet_account (id, version, customer_id, amount, currency_code, created_by, created_date, last_modified_by, last_modified_date)";
+
+    private static final String TRANSACTION_COLUMNS =
+        "wallet_transaction (id, customer_id, amount, currency_code, remarks, transaction_type, created_by, created_date," +
+        " last_modified_by, last_modified_date)";
+
+    /**
+     * The sum of the transactions of the account loaded by the import.
+     */
+    private static final String IMPORTED_TRANSACTIONS =
+        " FROM wallet_transaction t WHERE t.customer_id = a.customer_id AND t.currency_code = a.currency_code AND t.created_by = ?";
+
+    private static final String SIGNED_AMOUNT =
+        "CASE WHEN t.transaction_type = " + TransactionType.DEBIT.getCode() + " THEN -t.amount ELSE t.amount END";
+
+    /**
+     * The loaded transactions are added to the balance of their account, which includes the transactions made since.
+     */
+    private static final String ADD_IMPORTED_TRANSACTIONS =
+        "UPDATE wallet_account a SET amount = a.amount + (SELECT COALESCE(SUM(" +
+        SIGNED_AMOUNT +
+        "), 0)" +
+        IMPORTED_TRANSACTIONS +
+        "), version = a.version + 1, last_modified_by = ?, last_modified_date = ?" +
+        " WHERE a.id > ? AND a.id <= ? AND EXISTS (SELECT 1" +
+        IMPORTED_TRANSACTIONS +
+        ")";
+
+    /**
+     * With the ledger write mode, see {@link #loadTransactions}.
+     */
+    private static final String LOCK_LEDGER = "UPDATE wallet_account SET version = version + 1 WHERE customer_id = ? AND currency_code = ?";
+
+    private static final RowMapper<ImportJob> JOB_ROW_MAPPER = (rs, i) ->
+        new ImportJob(
+            rs.getString("name"),
+            rs.getLong("accounts_loaded"),
+            rs.getLong("transactions_loaded"),
+            rs.getBoolean("loaded"),
+            rs.getObject("last_account_id", Long.class),
+            toInstant(rs.getObject("created_date", LocalDateTime.class)),
+            toInstant(rs.getObject("last_modified_date", LocalDateTime.class)),
+            toInstant(rs.getObject("completed_date", LocalDateTime.class))
+        );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DateTimeProvider dateTimeProvider;
+
+    public WalletBulkLoadRepository(JdbcTemplate jdbcTemplate, DateTimeProvider dateTimeProvider) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dateTimeProvider = dateTimeProvider;
+    }
+
+    /**
+     * The value of the {@code created_by} and {@code last_modified_by} columns of the rows loaded by an import, by
+     * which its transactions are found when updating the balances.
+     */
+    public static String auditorOf(String jobName) {
+        return "import:" + jobName;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ImportJob> findJob(String name) {
+        return this.jdbcTemplate.query("SELECT * FROM wallet_import_job WHERE name = ?", JOB_ROW_MAPPER, name).stream().findFirst();
+    }
+
+    /**
+     * @return the progress of the import, created if it has never been started
+     */
+    @Transactional
+    public ImportJob startJob(String name) {
+        Optional<ImportJob> job = findJob(name);
+        if (job.isPresent()) {
+            return job.orElseThrow();
+        }
+        LocalDateTime now = now();
+        this.jdbcTemplate.update(
+                "INSERT INTO wallet_import_job (name, accounts_loaded, transactions_loaded, loaded, created_date, last_modified_date)" +
+                " VALUES (?, 0, 0, false, ?, ?)",
+                name,
+                now,
+                now
+            );
+        return findJob(name).orElseThrow();
+    }
+
+    /**
+     * Loads a chunk of accounts, with a zero balance, and records them as loaded by the import.
+     *
+     * @param alreadyLoaded the number of accounts loaded by the previous chunks, checked against the progress of the
+     *                      import so that an import run twice concurrently fails instead of loading rows twice
+     * @throws org.springframework.dao.DataIntegrityViolationException if an account already exists
+     */
+    @Transactional
+    public void loadAccounts(String jobName, long alreadyLoaded, List<ImportedAccount> accounts) {
+        lockJob(jobName, "accounts_loaded", alreadyLoaded);
+        String auditor = auditorOf(jobName);
+        LocalDateTime now = now();
+        long[] ids = reserveIds(WalletAccount.class, accounts.size());
+        load(
+            ACCOUNT_COLUMNS,
+            9,
+            accounts.size(),
+            (i, values) -> {
+                ImportedAccount account = accounts.get(i);
+                values[0] = ids[i];
+                values[1] = 0L;
+                values[2] = account.customerId();
+                values[3] = BigDecimal.ZERO;
+                values[4] = account.currencyCode();
+                values[5] = auditor;
+                values[6] = account.createdDate() == null ? now : toLocalDateTime(account.createdDate());
+                values[7] = auditor;
+                values[8] = now;
+            }
+        );
+        this.jdbcTemplate.update(
+                "UPDATE wallet_import_job SET accounts_loaded = accounts_loaded + ?, last_modified_date = ? WHERE name = ?",
+                accounts.size(),
+                now,
+                jobName
+            );
+    }
+
+    /**
+     * Loads a chunk of transactions and records them as loaded by the import. The balances of their accounts are not
+     * updated, see {@link #updateBalances}.
+     * <p>
+     * With the ledger write mode, the transactions are ledger entries, counted in the balance as their ids are above
+     * the snapshots. Their accounts are written before the ids are reserved, so that a concurrent compaction of one of
+     * them fails on its version rather than moving its snapshot above ids committed after it, see
+     * {@link com.digital.wallet.service.DigitalWalletServiceInternal#compactLedger}. The ids generated afterwards are
+     * greater, see {@link WalletIdGenerator#generate(SessionImplementor, int)}.
+     *
+     * @param alreadyLoaded the number of transactions loaded by the previous chunks, see {@link #loadAccounts}
+     */
+    @Transactional
+    public void loadTransactions(String jobName, long alreadyLoaded, List<ImportedTransaction> transactions, boolean ledgerWriteMode) {
+        lockJob(jobName, "transactions_loaded", alreadyLoaded);
+        if (ledgerWriteMode) {
+            lockLedgers(transactions);
+        }
+        String auditor = auditorOf(jobName);
+        LocalDateTime now = now();
+        long[] ids = reserveIds(WalletTransaction.class, transactions.size());
+        load(
+            TRANSACTION_COLUMNS,
+            10,
+            transactions.size(),
+            (i, values) -> {
+                ImportedTransaction trx = transactions.get(i);
+                values[0] = ids[i];
+                values[1] = trx.customerId();
+                values[2] = trx.amount();
+                values[3] = trx.currencyCode();
+                values[4] = trx.remarks();
+                values[5] = trx.type().getCode();
+                values[6] = auditor;
+                values[7] = trx.createdDate() == null ? now : toLocalDateTime(trx.createdDate());
+                values[8] = auditor;
+                values[9] = now;
+            }
+        );
+        this.jdbcTemplate.update(
+                "UPDATE wallet_import_job SET transactions_loaded = transactions_loaded + ?, last_modified_date = ? WHERE name = ?",
+                transactions.size(),
+                now,
+                jobName
+            );
+    }
+
+    /**
+     * Records that both inputs have been loaded: the rows are not read again when restarting.
+     */
+    @Transactional
+    public void markLoaded(String jobName) {
+        this.jdbcTemplate.update("UPDATE wallet_import_job SET loaded = true, last_modified_date = ? WHERE name = ?", now(), jobName);
+    }
+
+    /**
+     * Adds the transactions loaded by the import to the balances of the next {@code limit} accounts after the last one
+     * updated, with one statement, and records the last of these accounts as updated. Only the accounts with loaded
+     * transactions are written. Not with the ledger write mode, see {@link #loadTransactions}.
+     *
+     * @return the number of accounts scanned, less than the limit once all of them have been
+     */
+    @Transactional
+    public int updateBalances(String jobName, int limit) {
+        Long lastAccountId = this.jdbcTemplate.queryForObject(
+                "SELECT last_account_id FROM wallet_import_job WHERE name = ? FOR UPDATE",
+                Long.class,
+                jobName
+            );
+        long afterId = lastAccountId == null ? Long.MIN_VALUE : lastAccountId;
+        List<Long> accountIds =
+            this.jdbcTemplate.queryForList("SELECT id FROM wallet_account WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, limit);
+        if (accountIds.isEmpty()) {
+            return 0;
+        }
+        String auditor = auditorOf(jobName);
+        LocalDateTime now = now();
+        long toId = accountIds.get(accountIds.size() - 1);
+        this.jdbcTemplate.update(ADD_IMPORTED_TRANSACTIONS, auditor, auditor, now, afterId, toId, auditor);
+        this.jdbcTemplate.update(
+                "UPDATE wallet_import_job SET last_account_id = ?, last_modified_date = ? WHERE name = ?",
+                toId,
+                now,
+                jobName
+            );
+        evictCachedAccounts(accountIds);
+        return accountIds.size();
+    }
+
+    @Transactional
+    public void completeJob(String jobName) {
+        LocalDateTime now = now();
+        this.jdbcTemplate.update(
+                "UPDATE wallet_import_job SET completed_date = ?, last_modified_date = ? WHERE name = ?",
+                now,
+                now,
+                jobName
+            );
+    }
+
+    private void lockJob(String jobName, String column, long alreadyLoaded) {
+        Long loaded = this.jdbcTemplate.queryForObject(
+                "SELECT " + column + " FROM wallet_import_job WHERE name = ? FOR UPDATE",
+                Long.class,
+                jobName
+            );
+        if (loaded == null || loaded != alreadyLoaded) {
+            throw new IllegalStateException("The import " + jobName + " has loaded " + loaded + " rows instead of " + alreadyLoaded);
+        }
+    }
+
+    private void lockLedgers(List<ImportedTransaction> transactions) {
+        List<Object[]> accounts = transactions
+            .stream()
+            .map(trx -> List.<Object>of(trx.customerId(), trx.currencyCode()))
+            .distinct()
+            .map(List::toArray)
+            .toList();
+        this.jdbcTemplate.batchUpdate(LOCK_LEDGER, accounts);
+        // The cached accounts have an outdated version
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        Cache cache = session.getFactory().getCache();
+        cache.evictEntityData(WalletAccount.class);
+        session.getActionQueue().registerProcess((success, s) -> cache.evictEntityData(WalletAccount.class));
+    }
+
+    private long[] reserveIds(Class<?> entityClass, int count) {
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        WalletIdGenerator generator = (WalletIdGenerator) session
+            .getFactory()
+            .getMappingMetamodel()
+            .getEntityDescriptor(entityClass)
+            .getGenerator();
+        return generator.generate(session, count);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void values(int row, Object[] values);
+    }
+
+    private void load(String table, int columns, int rows, RowWriter rowWriter) {
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        boolean postgresql = session.getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        session.doWork(connection -> {
+            if (postgresql) {
+                copy(connection, table, columns, rows, rowWriter);
+            } else {
+                insert(connection, table, columns, rows, rowWriter);
+            }
+        });
+    }
+
+    /**
+     * Streams the rows in the CSV format of COPY: an unquoted empty value is null, so strings are always quoted.
+     */
+    private static void copy(Connection connection, String table, int columns, int rows, RowWriter rowWriter) throws SQLException {
+        String sql = "COPY " + table + " FROM STDIN WITH (FORMAT csv)";
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql);
+        Object[] values = new Object[columns];
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < rows; i++) {
+                rowWriter.values(i, values);
+                for (int c = 0; c < columns; c++) {
+                    if (c > 0) {
+                        writer.write(',');
+                    }
+                    Object value = values[c];
+                    if (value instanceof String string) {
+                        writer.write('"');
+                        writer.write(string.replace("\"", "\"\""));
+                        writer.write('"');
+                    } else if (value instanceof BigDecimal decimal) {
+                        writer.write(decimal.toPlainString());
+                    } else if (value != null) {
+                        writer.write(value.toString());
+                    }
+                }
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            // The errors of the database are wrapped by the stream
+            if (e.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void insert(Connection connection, String table, int columns, int rows, RowWriter rowWriter) throws SQLException {
+        String sql = "INSERT INTO " + table + " VALUES (?" + ", ?".repeat(columns - 1) + ")";
+        Object[] values = new Object[columns];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < rows; i++) {
+                rowWriter.values(i, values);
+                for (int c = 0; c < columns; c++) {
+                    statement.setObject(c + 1, values[c]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * The accounts have been updated behind the back of the second-level cache, see
+     * {@link WalletAccountBalanceRepositoryImpl}.
+     */
+    private void evictCachedAccounts(List<Long> accountIds) {
+        SessionImplementor session = this.entityManager.unwrap(SessionImplementor.class);
+        Cache cache = session.getFactory().getCache();
+        accountIds.forEach(id -> cache.evictEntityData(WalletAccount.class, id));
+        session.getActionQueue().registerProcess((success, s) -> accountIds.forEach(id -> cache.evictEntityData(WalletAccount.class, id)));
+    }
+
+    private LocalDateTime now() {
+        return toLocalDateTime(Instant.from(this.dateTimeProvider.getNow().orElseThrow()));
+    }
+
+    /**
+     * The timestamps are written in UTC, as by Hibernate, see {@code hibernate.jdbc.time_zone}.
+     */
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant(ZoneOffset.UTC);
+    }
+}
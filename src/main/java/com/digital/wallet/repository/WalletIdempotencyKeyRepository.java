@@ -0,0 +1,73 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.CurrencyCodeConverter;
+import com.digital.wallet.domain.TransactionType;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records the idempotency keys of the deposits and withdrawals in the {@code wallet_idempotency_key} table, whose
+ * primary key {@code (customer_id, idempotency_key)} prevents an operation from being applied twice.
+ * <p>
+ * Keys are inserted with plain JDBC in the database transaction of their operation: unlike a persisted entity, the
+ * insert is sent right away so a key already recorded fails the operation with a {@link DuplicateKeyException} and the
+ * transaction is rolled back.
+ */
+@Repository
+public class WalletIdempotencyKeyRepository {
+
+    private static final String INSERT =
+        "INSERT INTO wallet_idempotency_key (customer_id, idempotency_key, transaction_type, amount, currency_code, created_date)" +
+        " VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<IdempotencyKey> ROW_MAPPER = (rs, i) ->
+        new IdempotencyKey(
+            rs.getLong("customer_id"),
+            rs.getString("idempotency_key"),
+            TransactionType.fromCode(rs.getShort("transaction_type")),
+            CurrencyCodeConverter.canonical(rs.getString("currency_code")),
+            rs.getBigDecimal("amount")
+        );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WalletIdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<IdempotencyKey> findById(Long customerId, String idempotencyKey) {
+        return this.jdbcTemplate.query(
+                "SELECT * FROM wallet_idempotency_key WHERE customer_id = ? AND idempotency_key = ?",
+                ROW_MAPPER,
+                customerId,
+                idempotencyKey
+            )
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * @throws DuplicateKeyException if one of the keys has already been recorded
+     */
+    @Transactional
+    public void insertAll(List<IdempotencyKey> keys) {
+        Timestamp now = Timestamp.from(Instant.now());
+        if (keys.size() == 1) {
+            this.jdbcTemplate.update(INSERT, parameters(keys.get(0), now));
+        } else if (!keys.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(INSERT, keys.stream().map(key -> parameters(key, now)).toList());
+        }
+    }
+
+    private static Object[] parameters(IdempotencyKey key, Timestamp now) {
+        return new Object[] { key.customerId(), key.idempotencyKey(), key.type().getCode(), key.amount(), key.currencyCode(), now };
+    }
+}
@@ -0,0 +1,147 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.CurrencyCodeConverter;
+import com.digital.wallet.domain.TransactionType;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads the balances of the accounts and the sums of their transactions for the reconciliation, by ranges of account
+ * ids with keyset pagination: every query is short and served by the primary key of {@code wallet_account} and the
+ * {@code (customer_id, currency_code, id)} index of {@code wallet_transaction}. The watermark of the reconciliation is
+ * kept in the {@code wallet_reconciliation} table.
+ */
+@Repository
+public class WalletReconciliationRepository {
+
+    private static final String SIGNED_AMOUNT =
+        "CASE WHEN t.transaction_type = " + TransactionType.DEBIT.getCode() + " THEN -t.amount ELSE t.amount END";
+
+    private static final String ACCOUNT_TRANSACTIONS =
+        " FROM wallet_transaction t WHERE t.customer_id = a.customer_id AND t.currency_code = a.currency_code";
+
+    private static final String TRANSACTIONS_TOTAL = "COALESCE((SELECT SUM(" + SIGNED_AMOUNT + ")" + ACCOUNT_TRANSACTIONS + "), 0)";
+
+    private static final String FROM_RANGE = " FROM wallet_account a WHERE a.id > ? AND a.id <= ? ORDER BY a.id LIMIT ?";
+
+    private static final String FIND_BALANCES =
+        "SELECT a.id, a.customer_id, a.currency_code, a.amount AS balance, " + TRANSACTIONS_TOTAL + " AS total" + FROM_RANGE;
+
+    /**
+     * With the ledger write mode, the balance is the snapshot plus the transactions after it.
+     */
+    private static final String FIND_LEDGER_BALANCES =
+        "SELECT a.id, a.customer_id, a.currency_code, a.amount + COALESCE((SELECT SUM(" +
+        SIGNED_AMOUNT +
+        ")" +
+        ACCOUNT_TRANSACTIONS +
+        " AND t.id > COALESCE(a.ledger_snapshot_id, 0)), 0) AS balance, " +
+        TRANSACTIONS_TOTAL +
+        " AS total" +
+        FROM_RANGE;
+
+    private static final RowMapper<ReconciledAccount> ROW_MAPPER = (rs, i) ->
+        new ReconciledAccount(
+            rs.getLong("id"),
+            rs.getLong("customer_id"),
+            CurrencyCodeConverter.canonical(rs.getString("currency_code")),
+            rs.getBigDecimal("balance"),
+            rs.getBigDecimal("total")
+        );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WalletReconciliationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the id of the last account reconciled by the previous runs, 0 if none
+     */
+    @Transactional(readOnly = true)
+    public long findWatermark(String name) {
+        return this.jdbcTemplate.queryForList("SELECT watermark FROM wallet_reconciliation WHERE name = ?", Long.class, name)
+            .stream()
+            .findFirst()
+            .orElse(0L);
+    }
+
+    @Transactional
+    public void saveWatermark(String name, long watermark, Instant now) {
+        LocalDateTime lastModifiedDate = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        int updated =
+            this.jdbcTemplate.update(
+                    "UPDATE wallet_reconciliation SET watermark = ?, last_modified_date = ? WHERE name = ?",
+                    watermark,
+                    lastModifiedDate,
+                    name
+                );
+        if (updated == 0) {
+            this.jdbcTemplate.update(
+                    "INSERT INTO wallet_reconciliation (name, watermark, last_modified_date) VALUES (?, ?, ?)",
+                    name,
+                    watermark,
+                    lastModifiedDate
+                );
+        }
+    }
+
+    /**
+     * @return the id of the {@code n}th account after the given id, empty if there are fewer accounts after it
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findAccountIdAfter(long afterId, long n) {
+        return this.jdbcTemplate.queryForList(
+                "SELECT id FROM wallet_account WHERE id > ? ORDER BY id LIMIT 1 OFFSET ?",
+                Long.class,
+                afterId,
+                n - 1
+            )
+            .stream()
+            .findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Long> findLastAccountId() {
+        return Optional.ofNullable(this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM wallet_account", Long.class));
+    }
+
+    /**
+     * Counts the accounts of a range, reading at most {@code limit} ids of the index.
+     *
+     * @return the number of accounts of the range, or the limit if there are more
+     */
+    @Transactional(readOnly = true)
+    public int countAccounts(long afterId, long toId, int limit) {
+        Integer count = this.jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT id FROM wallet_account WHERE id > ? AND id <= ? LIMIT ?) r",
+                Integer.class,
+                afterId,
+                toId,
+                limit
+            );
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Reads the next page of accounts of a range with the sums of their transactions, each account being read with its
+     * transactions in the same statement so that an operation committed meanwhile is seen on both sides or on none.
+     *
+     * @param afterId         the id of the last account of the previous page, exclusive
+     * @param toId            the id of the last account of the range, inclusive
+     * @param limit           the size of the page
+     * @param ledgerWriteMode whether the transactions after the ledger snapshot of the accounts are in their balance
+     * @return the accounts, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<ReconciledAccount> findBalances(long afterId, long toId, int limit, boolean ledgerWriteMode) {
+        return this.jdbcTemplate.query(ledgerWriteMode ? FIND_LEDGER_BALANCES : FIND_BALANCES, ROW_MAPPER, afterId, toId, limit);
+    }
+}
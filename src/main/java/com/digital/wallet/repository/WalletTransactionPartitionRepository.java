@@ -0,0 +1,120 @@
+package com.digital.wallet.repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Manages the range partitions of the {@code wallet_transaction} table on Postgresql, see
+ * {@code 20261018000200_partitioned_WalletTransaction.xml}. The table is not partitioned with the other databases.
+ * <p>
+ * Each method runs its DDL in its own database transaction.
+ */
+@Repository
+public class WalletTransactionPartitionRepository {
+
+    private static final String TABLE = "wallet_transaction";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("wallet_transaction_[a-z0-9_]+");
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String FIND_PARTITIONS =
+        """
+        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+        FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = to_regclass(?)::oid""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WalletTransactionPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return true if the table is partitioned, i.e. if the database is Postgresql
+     */
+    @Transactional(readOnly = true)
+    public boolean isPartitioned() {
+        String product = this.jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            return false;
+        }
+        String kind =
+            this.jdbcTemplate.queryForObject(
+                    "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)::oid",
+                    String.class,
+                    TABLE
+                );
+        return "p".equals(kind);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransactionPartition> findPartitions() {
+        return this.jdbcTemplate.query(FIND_PARTITIONS, (rs, i) -> TransactionPartition.of(rs.getString(1), rs.getString(2)), TABLE);
+    }
+
+    @Transactional
+    public void createPartition(TransactionPartition partition) {
+        this.jdbcTemplate.execute(
+                "CREATE TABLE " +
+                checkName(partition.name()) +
+                " PARTITION OF " +
+                TABLE +
+                " FOR VALUES FROM (" +
+                bound(partition.from(), "MINVALUE") +
+                ") TO (" +
+                bound(partition.to(), "MAXVALUE") +
+                ")"
+            );
+    }
+
+    /**
+     * Detaches the partition: its transactions are not part of the table anymore but are kept in a standalone table.
+     */
+    @Transactional
+    public void detachPartition(String name) {
+        this.jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + checkName(name));
+    }
+
+    @Transactional
+    public void dropPartition(String name) {
+        this.jdbcTemplate.execute("DROP TABLE " + checkName(name));
+    }
+
+    /**
+     * With the ledger write mode, whether the partition contains transactions not included in the snapshot of their
+     * account yet (see {@link WalletAccountRepository#findAllWithLedgerEntries}). They must not be removed.
+     */
+    @Transactional(readOnly = true)
+    public boolean hasUncompactedTransactions(String name) {
+        return Boolean.TRUE.equals(
+            this.jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " +
+                    checkName(name) +
+                    " t JOIN wallet_account a ON a.customer_id = t.customer_id AND a.currency_code = t.currency_code" +
+                    " WHERE t.id > coalesce(a.ledger_snapshot_id, 0))",
+                    Boolean.class
+                )
+        );
+    }
+
+    /**
+     * Names are concatenated to the statements, they must not come from an untrusted source.
+     */
+    private static String checkName(String name) {
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid partition name: " + name);
+        }
+        return name;
+    }
+
+    private static String bound(LocalDateTime value, String unbounded) {
+        return value == null ? unbounded : "'" + BOUND_FORMAT.format(value) + "'";
+    }
+}
@@ -1,15 +1,80 @@
 package com.digital.wallet.repository;
 
 import com.digital.wallet.domain.WalletTransaction;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Spring Data JPA repository for the {@link WalletTransaction} entity.
  */
 @Repository
-public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, Long> {
+public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, Long>, WalletTransactionStreamRepository {
     Page<WalletTransaction> findAllByCustomerId(Long customerId, Pageable pageable);
+
+    /**
+     * Same as {@link #findAllByCustomerId(Long, Pageable)} for the transactions created in {@code [from, to)}. On
+     * Postgresql, the date bounds restrict the scan to the partitions of the range.
+     */
+    @Query(
+        "select t from WalletTransaction t where t.customerId = :customerId and t.createdDate >= :from and t.createdDate < :to"
+    )
+    Page<WalletTransaction> findAllByCustomerIdAndCreatedDateRange(
+        @Param("customerId") Long customerId,
+        @Param("from") Instant from,
+        @Param("to") Instant to,
+        Pageable pageable
+    );
+
+    /**
+     * Same as {@link #findAllByCustomerId(Long, Pageable)} without the count query.
+     */
+    Slice<WalletTransaction> findSliceByCustomerId(Long customerId, Pageable pageable);
+
+    /**
+     * First page of the transaction history of a customer, most recent first.
+     */
+    List<WalletTransaction> findAllByCustomerIdOrderByCreatedDateDescIdDesc(Long customerId, Limit limit);
+
+    /**
+     * Next page of the transaction history of a customer: the transactions older than the given one (keyset
+     * pagination), most recent first. It seeks into the {@code (customer_id, created_date, id)} index instead of
+     * skipping the previous pages. The {@code createdDate <= :createdDate} condition is redundant but gives the index
+     * range to the planner, the row value comparison {@code (created_date, id) < (?, ?)} is not supported by HQL with
+     * parameters.
+     *
+     * @param createdDate the creation date of the last transaction of the previous page
+     * @param id          the id of the last transaction of the previous page
+     */
+    @Query(
+        "select t from WalletTransaction t where t.customerId = :customerId and t.createdDate <= :createdDate" +
+        " and (t.createdDate < :createdDate or t.id < :id) order by t.createdDate desc, t.id desc"
+    )
+    List<WalletTransaction> findAllByCustomerIdBefore(
+        @Param("customerId") Long customerId,
+        @Param("createdDate") Instant createdDate,
+        @Param("id") Long id,
+        Limit limit
+    );
+
+    /**
+     * Sums the transactions of a customer in a currency after the given one, debits being subtracted, see
+     * {@link com.digital.wallet.config.ApplicationProperties.Wallet.WriteMode#LEDGER}. It is served by the
+     * {@code (customer_id, currency_code, id)} index.
+     *
+     * @param afterId the id of the last transaction included in the snapshot, 0 if none
+     */
+    @Query(
+        "select new com.digital.wallet.repository.LedgerDelta(max(t.id), sum(case when t.transactionType =" +
+        " com.digital.wallet.domain.TransactionType.DEBIT then -t.amount else t.amount end))" +
+        " from WalletTransaction t where t.customerId = :customerId and t.currencyCode = :currency and t.id > :afterId"
+    )
+    LedgerDelta findLedgerDelta(@Param("customerId") Long customerId, @Param("currency") String currency, @Param("afterId") long afterId);
 }
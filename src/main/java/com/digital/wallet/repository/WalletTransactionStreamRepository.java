@@ -0,0 +1,24 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.WalletTransaction;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Reads the transactions of a customer as a stream, for exports: transactions are fetched from the database by blocks
+ * of {@code fetchSize} rows while the stream is consumed and are not tracked by a persistence context, so the memory
+ * used does not depend on the number of transactions.
+ */
+public interface WalletTransactionStreamRepository {
+    /**
+     * Streams the transactions of a customer, oldest first. The stream holds a database connection until it is closed,
+     * it must be consumed and closed promptly (try-with-resources).
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from       the inclusive lower bound of the creation date, null for no lower bound
+     * @param to         the exclusive upper bound of the creation date, null for no upper bound
+     * @param fetchSize  the number of rows fetched per round trip
+     * @return the transactions, detached
+     */
+    Stream<WalletTransaction> streamAllByCustomerId(Long customerId, Instant from, Instant to, int fetchSize);
+}
@@ -0,0 +1,67 @@
+package com.digital.wallet.repository;
+
+import com.digital.wallet.domain.WalletTransaction;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
+
+/**
+ * Implementation of {@link WalletTransactionStreamRepository} with a {@link StatelessSession}: it has no persistence
+ * context so the entities read are garbage collected as soon as they are consumed.
+ * <p>
+ * The session uses its own read-only connection and transaction, independent of the current Spring transaction. The
+ * transaction is required by Postgresql that only fetches the rows by block (with a cursor) when auto-commit is off.
+ */
+public class WalletTransactionStreamRepositoryImpl implements WalletTransactionStreamRepository {
+
+    private final SessionFactory sessionFactory;
+
+    public WalletTransactionStreamRepositoryImpl(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @Override
+    public Stream<WalletTransaction> streamAllByCustomerId(Long customerId, Instant from, Instant to, int fetchSize) {
+        StringBuilder hql = new StringBuilder("from WalletTransaction t where t.customerId = :customerId");
+        if (from != null) {
+            hql.append(" and t.createdDate >= :from");
+        }
+        if (to != null) {
+            hql.append(" and t.createdDate < :to");
+        }
+        hql.append(" order by t.createdDate, t.id");
+
+        StatelessSession session = this.sessionFactory.openStatelessSession();
+        try {
+            session.doWork(connection -> connection.setReadOnly(true));
+            Transaction transaction = session.beginTransaction();
+            SelectionQuery<WalletTransaction> query = session
+                .createSelectionQuery(hql.toString(), WalletTransaction.class)
+                .setParameter("customerId", customerId)
+                .setFetchSize(fetchSize);
+            if (from != null) {
+                query.setParameter("from", from);
+            }
+            if (to != null) {
+                query.setParameter("to", to);
+            }
+            return query
+                .getResultStream()
+                .onClose(() -> {
+                    try {
+                        // Nothing has been written
+                        transaction.rollback();
+                    } finally {
+                        session.close();
+                    }
+                });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+}
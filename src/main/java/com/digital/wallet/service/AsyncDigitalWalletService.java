@@ -0,0 +1,62 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.domain.WalletTransaction;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Asynchronous variant of {@link DigitalWalletService}: operations return immediately with a future so that a caller
+ * can have many operations in flight without dedicating a thread to each of them.
+ * <p>
+ * Futures are completed exceptionally with the exception the blocking method would have thrown, e.g.
+ * {@link IllegalArgumentException} for an invalid amount, not wrapped in a
+ * {@link java.util.concurrent.CompletionException}.
+ */
+public interface AsyncDigitalWalletService {
+    /**
+     * See {@link DigitalWalletService#executeDeposit(Long, String, BigDecimal, String)}.
+     *
+     * @return a future completed when the deposit has been applied
+     */
+    default CompletableFuture<Void> executeDepositAsync(Long customerId, String currency, BigDecimal amount, String remark) {
+        return executeDepositAsync(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * See {@link DigitalWalletService#executeDeposit(Long, String, BigDecimal, String, String)}.
+     *
+     * @return a future completed when the deposit has been applied or replayed
+     */
+    CompletableFuture<Void> executeDepositAsync(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey);
+
+    /**
+     * See {@link DigitalWalletService#executeWithdrawal(Long, String, BigDecimal, String)}.
+     *
+     * @return a future completed when the withdrawal has been applied
+     */
+    default CompletableFuture<Void> executeWithdrawalAsync(Long customerId, String currency, BigDecimal amount, String remark) {
+        return executeWithdrawalAsync(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * See {@link DigitalWalletService#executeWithdrawal(Long, String, BigDecimal, String, String)}.
+     *
+     * @return a future completed when the withdrawal has been applied or replayed
+     */
+    CompletableFuture<Void> executeWithdrawalAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    );
+
+    /**
+     * See {@link DigitalWalletService#getTransactions(Long, Pageable)}.
+     *
+     * @return a future completed with the transactions
+     */
+    CompletableFuture<Page<WalletTransaction>> getTransactionsAsync(Long customerId, Pageable pageable);
+}
@@ -0,0 +1,41 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.service.dto.BalanceMismatch;
+import com.digital.wallet.service.dto.ReconciliationReport;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@code reconciliation} management endpoint of {@link BalanceReconciliationService}: {@code GET} returns the
+ * report of the last run and the accounts known to differ, {@code POST} runs a reconciliation and returns its report, or
+ * no content if none could be run.
+ */
+@Component
+@Endpoint(id = "reconciliation")
+public class BalanceReconciliationEndpoint {
+
+    private final BalanceReconciliationService reconciliationService;
+
+    public BalanceReconciliationEndpoint(BalanceReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    /**
+     * @param lastRun    the report of the last run since startup, null if none
+     * @param mismatches the accounts known to differ
+     */
+    public record Status(ReconciliationReport lastRun, List<BalanceMismatch> mismatches) {}
+
+    @ReadOperation
+    public Status status() {
+        return new Status(this.reconciliationService.getLastReport(), this.reconciliationService.getMismatches());
+    }
+
+    @WriteOperation
+    public ReconciliationReport reconcile() {
+        return this.reconciliationService.reconcile().orElse(null);
+    }
+}
@@ -0,0 +1,313 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.repository.ReconciledAccount;
+import com.digital.wallet.repository.WalletReconciliationRepository;
+import com.digital.wallet.service.dto.BalanceMismatch;
+import com.digital.wallet.service.dto.ReconciliationReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Checks that the balance of every account equals the sum of its credits minus the sum of its debits. Accounts are
+ * reconciled by ranges of ids on a dedicated {@link ForkJoinPool} of {@link ApplicationProperties.Reconciliation#getParallelism()}
+ * threads: a range with more than {@link ApplicationProperties.Reconciliation#getRangeSize()} accounts is split in two
+ * halves reconciled in parallel, a smaller one is scanned by pages of keyset queries, see
+ * {@link WalletReconciliationRepository}. The number of queries running at once is bounded by the parallelism as well,
+ * whatever the threads the pool adds while tasks wait for each other.
+ * <p>
+ * Runs are incremental: a run reconciles at most {@link ApplicationProperties.Reconciliation#getAccountsPerRun()}
+ * accounts after the watermark left by the previous one, then moves the watermark to the last of them. An interrupted
+ * run leaves the watermark as it was, the next run reconciles the same accounts. Once the last account has been
+ * reconciled the watermark is reset, and the next run starts a new pass from the first account.
+ * <p>
+ * Mismatches are logged, kept in memory until their account is reconciled again and exposed by the
+ * {@code reconciliation} management endpoint ({@link BalanceReconciliationEndpoint}) and the
+ * {@code wallet.reconciliation.*} metrics. The transactions of expired partitions are not summed, so nothing is
+ * reconciled when {@link ApplicationProperties.TransactionPartitions#getRetentionMonths()} is set.
+ */
+@Service
+public class BalanceReconciliationService {
+
+    static final String WATERMARK_NAME = "balances";
+
+    private final Logger log = LoggerFactory.getLogger(BalanceReconciliationService.class);
+
+    private final WalletReconciliationRepository reconciliationRepository;
+
+    private final ApplicationProperties.Reconciliation config;
+
+    private final boolean ledgerWriteMode;
+
+    private final boolean transactionsExpire;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Bounds the number of queries running at once, see {@link #query}.
+     */
+    private final Semaphore queries;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The accounts known to differ, by id.
+     */
+    private final NavigableMap<Long, BalanceMismatch> mismatches = new ConcurrentSkipListMap<>();
+
+    private volatile ReconciliationReport lastReport;
+
+    private final Counter accountsCounter;
+
+    private final Counter mismatchesCounter;
+
+    private final Timer runTimer;
+
+    public BalanceReconciliationService(
+        WalletReconciliationRepository reconciliationRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.config = applicationProperties.getWallet().getReconciliation();
+        this.ledgerWriteMode = applicationProperties.getWallet().getWriteMode() == ApplicationProperties.Wallet.WriteMode.LEDGER;
+        this.transactionsExpire = applicationProperties.getWallet().getTransactionPartitions().getRetentionMonths() > 0;
+        this.pool = new ForkJoinPool(
+            this.config.getParallelism(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("wallet-reconciliation-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false
+        );
+        this.queries = new Semaphore(this.config.getParallelism());
+        this.accountsCounter = Counter
+            .builder("wallet.reconciliation.accounts")
+            .description("Accounts whose balance has been reconciled with their transactions")
+            .register(meterRegistry);
+        this.mismatchesCounter = Counter
+            .builder("wallet.reconciliation.mismatches.found")
+            .description("Accounts found with a balance different from the sum of their transactions")
+            .register(meterRegistry);
+        Gauge
+            .builder("wallet.reconciliation.mismatches", this.mismatches, Map::size)
+            .description("Accounts known to have a balance different from the sum of their transactions")
+            .register(meterRegistry);
+        this.runTimer = Timer
+            .builder("wallet.reconciliation.run")
+            .description("Duration of the reconciliation runs")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    @Scheduled(cron = "${application.wallet.reconciliation.cron:-}")
+    public void scheduledReconciliation() {
+        reconcile();
+    }
+
+    /**
+     * @return the report of the last run, null if none has completed since startup
+     */
+    public ReconciliationReport getLastReport() {
+        return this.lastReport;
+    }
+
+    /**
+     * @return the accounts known to differ, ordered by id
+     */
+    public List<BalanceMismatch> getMismatches() {
+        return List.copyOf(this.mismatches.values());
+    }
+
+    /**
+     * Reconciles the accounts after the watermark, at most
+     * {@link ApplicationProperties.Reconciliation#getAccountsPerRun()} of them.
+     *
+     * @return the report of the run, empty if a run is already in progress or the transactions expire
+     */
+    public Optional<ReconciliationReport> reconcile() {
+        if (this.transactionsExpire) {
+            log.warn("Balances are not reconciled: the transactions of the expired partitions are not in the sums");
+            return Optional.empty();
+        }
+        if (!this.running.compareAndSet(false, true)) {
+            log.info("A reconciliation is already running");
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(this.runTimer.record(this::run));
+        } finally {
+            this.running.set(false);
+        }
+    }
+
+    private ReconciliationReport run() {
+        Instant started = Instant.now();
+        long watermark = this.reconciliationRepository.findWatermark(WATERMARK_NAME);
+        Optional<Long> runEnd = this.config.getAccountsPerRun() > 0
+            ? this.reconciliationRepository.findAccountIdAfter(watermark, this.config.getAccountsPerRun())
+            : Optional.empty();
+        boolean passCompleted = runEnd.isEmpty();
+        long toId = runEnd.orElseGet(() -> this.reconciliationRepository.findLastAccountId().orElse(watermark));
+        log.debug("Reconciling the balances of the accounts after {} up to {}", watermark, toId);
+
+        Run run = new Run();
+        if (toId > watermark) {
+            this.pool.invoke(new RangeReconciliation(run, watermark, toId));
+        }
+
+        // The mismatches of the accounts reconciled again are replaced, the ones of deleted accounts dropped
+        if (passCompleted) {
+            this.mismatches.tailMap(watermark, false).clear();
+        } else {
+            this.mismatches.subMap(watermark, false, toId, true).clear();
+        }
+        int capacity = this.config.getMaxReportedMismatches() - this.mismatches.size();
+        run.found.values().stream().limit(Math.max(capacity, 0)).forEach(mismatch -> this.mismatches.put(mismatch.accountId(), mismatch));
+        this.reconciliationRepository.saveWatermark(WATERMARK_NAME, passCompleted ? 0 : toId, Instant.now());
+
+        ReconciliationReport report = new ReconciliationReport(
+            started,
+            Instant.now(),
+            watermark,
+            toId,
+            passCompleted,
+            run.reconciled.sum(),
+            run.mismatches.sum(),
+            List.copyOf(run.found.values())
+        );
+        this.lastReport = report;
+        if (report.mismatchesFound() == 0) {
+            log.info("Reconciled the balances of {} accounts after {} up to {}", report.accountsReconciled(), watermark, toId);
+        } else {
+            log.warn(
+                "Reconciled the balances of {} accounts after {} up to {}: {} differ from the sum of their transactions",
+                report.accountsReconciled(),
+                watermark,
+                toId,
+                report.mismatchesFound()
+            );
+        }
+        return report;
+    }
+
+    /**
+     * Runs a query, waiting while {@link ApplicationProperties.Reconciliation#getParallelism()} others are running.
+     */
+    private <T> T query(Supplier<T> query) {
+        this.queries.acquireUninterruptibly();
+        try {
+            return query.get();
+        } finally {
+            this.queries.release();
+        }
+    }
+
+    /**
+     * The outcome of a run, updated by the tasks.
+     */
+    private static final class Run {
+
+        private final LongAdder reconciled = new LongAdder();
+
+        private final LongAdder mismatches = new LongAdder();
+
+        /**
+         * The first mismatches found, by account id.
+         */
+        private final Map<Long, BalanceMismatch> found = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Reconciles the accounts whose id is in {@code (afterId, toId]}.
+     */
+    private class RangeReconciliation extends RecursiveAction {
+
+        private final Run run;
+
+        private final long afterId;
+
+        private final long toId;
+
+        RangeReconciliation(Run run, long afterId, long toId) {
+            this.run = run;
+            this.afterId = afterId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toId - this.afterId > 1 && countAccounts() > config.getRangeSize()) {
+                // Split by id, the halves with fewer accounts are not split further
+                long middle = this.afterId + (this.toId - this.afterId) / 2;
+                invokeAll(new RangeReconciliation(this.run, this.afterId, middle), new RangeReconciliation(this.run, middle, this.toId));
+            } else {
+                scan();
+            }
+        }
+
+        private int countAccounts() {
+            return query(() -> reconciliationRepository.countAccounts(this.afterId, this.toId, config.getRangeSize() + 1));
+        }
+
+        private void scan() {
+            int pageSize = config.getPageSize();
+            long lastId = this.afterId;
+            List<ReconciledAccount> accounts;
+            do {
+                long pageAfterId = lastId;
+                accounts = query(() -> reconciliationRepository.findBalances(pageAfterId, this.toId, pageSize, ledgerWriteMode));
+                Instant now = Instant.now();
+                for (ReconciledAccount account : accounts) {
+                    if (!account.isBalanced()) {
+                        mismatch(account, now);
+                    }
+                    lastId = account.accountId();
+                }
+                this.run.reconciled.add(accounts.size());
+                accountsCounter.increment(accounts.size());
+            } while (accounts.size() == pageSize);
+        }
+
+        private void mismatch(ReconciledAccount account, Instant now) {
+            this.run.mismatches.increment();
+            mismatchesCounter.increment();
+            // Only the first ones are logged and reported
+            if (this.run.mismatches.sum() <= config.getMaxReportedMismatches()) {
+                log.warn(
+                    "The balance {} of the account {} differs from the sum of its transactions {}",
+                    account.balance(),
+                    account.accountId(),
+                    account.transactionsTotal()
+                );
+                this.run.found.put(account.accountId(), BalanceMismatch.of(account, now));
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.CurrencyCodeConverter;
+import com.digital.wallet.domain.Money;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.repository.ImportJob;
+import com.digital.wallet.repository.ImportedAccount;
+import com.digital.wallet.repository.ImportedTransaction;
+import com.digital.wallet.repository.WalletBulkLoadRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Onboards the accounts of a partner and their historical transactions from CSV inputs, without the JPA repositories:
+ * <ol>
+ *     <li>the accounts are loaded with a zero balance, then the transactions, a chunk of
+ *     {@link ApplicationProperties.BulkImport#getChunkSize()} rows per database transaction, see
+ *     {@link WalletBulkLoadRepository}</li>
+ *     <li>the loaded transactions are added to the balances of their accounts set-wise, a range of accounts per
+ *     statement. Not with the ledger write mode: they are ledger entries, compacted as the others by
+ *     {@link LedgerCompactionService}</li>
+ * </ol>
+ * Each import has a unique name, under which its progress is recorded with every chunk: an interrupted import is
+ * restarted by running it again with the same name and the same inputs, the rows already loaded being skipped. An
+ * import that has completed is not run again. The progress is logged, published as the {@code wallet.import.rows}
+ * counter and returned by {@link #findJob}.
+ * <p>
+ * The inputs have a header line naming their columns, in any order:
+ * <ul>
+ *     <li>accounts: {@code customerId}, {@code currencyCode} and optionally {@code createdDate}</li>
+ *     <li>transactions: {@code customerId}, {@code transactionType}, {@code amount}, {@code currencyCode} and optionally
+ *     {@code createdDate} and {@code remarks}, as written by {@link TransactionExportService} (the {@code id} column is
+ *     ignored)</li>
+ * </ul>
+ * The transactions may belong to accounts that already exist, their balances then include the operations made during
+ * the import. Transactions whose account does not exist are loaded but not added to any balance.
+ */
+@Service
+public class BulkImportService {
+
+    /**
+     * Limited by the {@code created_by} column, see {@link WalletBulkLoadRepository#auditorOf}.
+     */
+    static final int MAX_NAME_LENGTH = 40;
+
+    private final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private final WalletBulkLoadRepository bulkLoadRepository;
+
+    private final int chunkSize;
+
+    private final boolean ledgerWriteMode;
+
+    private final Counter accountRows;
+
+    private final Counter transactionRows;
+
+    public BulkImportService(
+        WalletBulkLoadRepository bulkLoadRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.bulkLoadRepository = bulkLoadRepository;
+        this.chunkSize = applicationProperties.getWallet().getBulkImport().getChunkSize();
+        this.ledgerWriteMode = applicationProperties.getWallet().getWriteMode() == ApplicationProperties.Wallet.WriteMode.LEDGER;
+        this.accountRows = rowCounter(meterRegistry, "wallet_account");
+        this.transactionRows = rowCounter(meterRegistry, "wallet_transaction");
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String table) {
+        return Counter
+            .builder("wallet.import.rows")
+            .description("Rows loaded by the bulk imports")
+            .tag("table", table)
+            .register(meterRegistry);
+    }
+
+    public Optional<ImportJob> findJob(String name) {
+        return this.bulkLoadRepository.findJob(name);
+    }
+
+    /**
+     * Runs an import, or restarts it where it has been interrupted. The inputs are read but not closed, they are not
+     * read at all if the rows have already been loaded.
+     *
+     * @param name         the unique name of the import, at most {@value #MAX_NAME_LENGTH} characters
+     * @param accounts     the accounts in UTF-8, null if there are none
+     * @param transactions the transactions in UTF-8, null if there are none
+     * @return the progress of the import, completed
+     * @throws IllegalArgumentException if a row is invalid, the rows of the previous chunks being loaded
+     * @throws org.springframework.dao.DataIntegrityViolationException if an account already exists
+     */
+    public ImportJob importCsv(String name, InputStream accounts, InputStream transactions) throws IOException {
+        if (name == null || name.isBlank() || name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("The name of an import must have between 1 and " + MAX_NAME_LENGTH + " characters");
+        }
+        ImportJob job = this.bulkLoadRepository.startJob(name);
+        if (job.isCompleted()) {
+            log.info("Import {} has already completed on {}", name, job.completedDate());
+            return job;
+        }
+        if (!job.loaded()) {
+            if (accounts != null) {
+                load(name, "accounts", accounts, job.accountsLoaded(), BulkImportService::parseAccount, this::loadAccounts);
+            }
+            if (transactions != null) {
+                load(
+                    name,
+                    "transactions",
+                    transactions,
+                    job.transactionsLoaded(),
+                    BulkImportService::parseTransaction,
+                    this::loadTransactions
+                );
+            }
+            this.bulkLoadRepository.markLoaded(name);
+        } else {
+            log.info("Import {} has already loaded its rows, resuming the update of the balances", name);
+        }
+        if (!this.ledgerWriteMode) {
+            // Ledger entries are counted in the balances as they are, see WalletBulkLoadRepository#loadTransactions
+            updateBalances(name);
+        }
+        this.bulkLoadRepository.completeJob(name);
+        job = this.bulkLoadRepository.findJob(name).orElseThrow();
+        log.info("Import {} completed: {} accounts and {} transactions", name, job.accountsLoaded(), job.transactionsLoaded());
+        return job;
+    }
+
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(Columns columns, String[] values);
+    }
+
+    @FunctionalInterface
+    private interface ChunkLoader<T> {
+        void load(String name, long alreadyLoaded, List<T> chunk);
+    }
+
+    private <T> void load(
+        String name,
+        String rows,
+        InputStream input,
+        long alreadyLoaded,
+        RowParser<T> parser,
+        ChunkLoader<T> chunkLoader
+    ) throws IOException {
+        CsvReader reader = new CsvReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String[] header = reader.next();
+        if (header == null) {
+            return;
+        }
+        Columns columns = new Columns(header);
+        long loaded = 0;
+        List<T> chunk = new ArrayList<>(Math.min(this.chunkSize, 1 << 16));
+        String[] values;
+        while ((values = reader.next()) != null) {
+            if (values.length == 1 && values[0].isEmpty()) {
+                // Blank line
+                continue;
+            }
+            if (loaded < alreadyLoaded) {
+                // Loaded before the restart
+                loaded++;
+                continue;
+            }
+            try {
+                chunk.add(parser.parse(columns, values));
+            } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+                throw new IllegalArgumentException("Invalid line " + reader.getRecords() + " of the " + rows + ": " + e.getMessage(), e);
+            }
+            if (chunk.size() == this.chunkSize) {
+                chunkLoader.load(name, loaded, chunk);
+                loaded += chunk.size();
+                chunk.clear();
+                log.info("Import {}: {} {} loaded", name, loaded, rows);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkLoader.load(name, loaded, chunk);
+            loaded += chunk.size();
+        }
+        log.info("Import {}: all {} {} loaded", name, loaded, rows);
+    }
+
+    private void loadAccounts(String name, long alreadyLoaded, List<ImportedAccount> accounts) {
+        this.bulkLoadRepository.loadAccounts(name, alreadyLoaded, accounts);
+        this.accountRows.increment(accounts.size());
+    }
+
+    private void loadTransactions(String name, long alreadyLoaded, List<ImportedTransaction> transactions) {
+        this.bulkLoadRepository.loadTransactions(name, alreadyLoaded, transactions, this.ledgerWriteMode);
+        this.transactionRows.increment(transactions.size());
+    }
+
+    private void updateBalances(String name) {
+        long accounts = 0;
+        int scanned;
+        do {
+            scanned = this.bulkLoadRepository.updateBalances(name, this.chunkSize);
+            accounts += scanned;
+            if (scanned > 0) {
+                log.debug("Import {}: {} accounts scanned for loaded transactions", name, accounts);
+            }
+        } while (scanned == this.chunkSize);
+        log.info("Import {}: balances updated", name);
+    }
+
+    private static ImportedAccount parseAccount(Columns columns, String[] values) {
+        return new ImportedAccount(
+            Long.valueOf(columns.required(values, "customerId")),
+            currencyCode(columns.required(values, "currencyCode")),
+            instant(columns.optional(values, "createdDate"))
+        );
+    }
+
+    private static ImportedTransaction parseTransaction(Columns columns, String[] values) {
+        String currencyCode = currencyCode(columns.required(values, "currencyCode"));
+        BigDecimal amount = new BigDecimal(columns.required(values, "amount"));
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("The amount must be positive: " + amount.toPlainString());
+        }
+        // Checks the decimals of the amount
+        Money.of(amount, currencyCode);
+        String remarks = columns.optional(values, "remarks");
+        return new ImportedTransaction(
+            Long.valueOf(columns.required(values, "customerId")),
+            TransactionType.valueOf(columns.required(values, "transactionType")),
+            amount,
+            currencyCode,
+            remarks == null ? "" : remarks,
+            instant(columns.optional(values, "createdDate"))
+        );
+    }
+
+    private static String currencyCode(String value) {
+        if (value.length() != 3) {
+            throw new IllegalArgumentException("Invalid currency code: " + value);
+        }
+        return CurrencyCodeConverter.canonical(value);
+    }
+
+    private static Instant instant(String value) {
+        return value == null ? null : Instant.parse(value);
+    }
+
+    /**
+     * The indexes of the columns, by name.
+     */
+    private static final class Columns {
+
+        private final List<String> names;
+
+        private Columns(String[] header) {
+            this.names = Arrays.asList(header);
+        }
+
+        /**
+         * @return the value, null if the column or the value is missing
+         */
+        String optional(String[] values, String column) {
+            int index = this.names.indexOf(column);
+            return index < 0 || index >= values.length || values[index].isEmpty() ? null : values[index];
+        }
+
+        String required(String[] values, String column) {
+            String value = optional(values, column);
+            if (value == null) {
+                throw new IllegalArgumentException("The " + column + " is missing");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.digital.wallet.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma separated values as per RFC 4180, one record at a time: quoted values may contain separators, quotes
+ * (doubled) and line breaks. The records are not checked to have the same number of values.
+ */
+final class CsvReader {
+
+    private final BufferedReader reader;
+
+    private long records;
+
+    CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the values of the next record, null at the end of the input
+     * @throws IOException if the input cannot be read or ends in a quoted value
+     */
+    String[] next() throws IOException {
+        int c = this.reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("The record " + (this.records + 1) + " ends in a quoted value");
+                } else if (c == '"') {
+                    c = this.reader.read();
+                    if (c == '"') {
+                        value.append('"');
+                    } else {
+                        quoted = false;
+                        // The character after the closing quote is read as any other
+                        continue;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"' && value.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\r' || c == '\n' || c < 0) {
+                if (c == '\r') {
+                    this.reader.mark(1);
+                    if (this.reader.read() != '\n') {
+                        this.reader.reset();
+                    }
+                }
+                values.add(value.toString());
+                this.records++;
+                return values.toArray(String[]::new);
+            } else {
+                value.append((char) c);
+            }
+            c = this.reader.read();
+        }
+    }
+
+    /**
+     * @return the number of records read, the header line included
+     */
+    long getRecords() {
+        return this.records;
+    }
+}
@@ -1,9 +1,18 @@
 package com.digital.wallet.service;
 
 import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 public interface DigitalWalletService {
     /**
@@ -12,24 +21,137 @@ public interface DigitalWalletService {
      * {@link com.digital.wallet.config.Constants#MAXIMUM_DEPOSIT}.
      *
      * @param customerId the unique identifier of the customer
-     * @param currency   the currency of the deposit. As per ISO 4217.
-     *                   <a href="https://en.wikipedia.org/wiki/ISO_4217">https://en.wikipedia.org/wiki/ISO_4217</a>
+     * @param currency   the currency of the deposit, i.e. of the account of the customer it applies to. As per
+     *                   ISO 4217. <a href="https://en.wikipedia.org/wiki/ISO_4217">https://en.wikipedia.org/wiki/ISO_4217</a>
      * @param amount     the amount to be deposited
      * @param remark     a remark or description for the deposit
      */
-    void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark);
+    default void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark) {
+        executeDeposit(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Same as {@link #executeDeposit(Long, String, BigDecimal, String)}, applied at most once per idempotency key and
+     * customer: a retry with the same key returns without depositing the amount again. Reusing a key for another
+     * operation is rejected.
+     * <p>
+     * Adapter of {@link #applyDeposit} that throws a {@link WalletOperationException} if the deposit is rejected. Nothing
+     * happens if the customer has no account at all.
+     *
+     * @param idempotencyKey the key identifying the deposit for the customer (at most 64 characters), e.g. generated
+     *                       by the client before the first attempt. Null to not make the deposit idempotent.
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    default void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        OperationResult result = applyDeposit(customerId, currency, amount, remark, idempotencyKey);
+        throwIfRejected(result, WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    /**
+     * Same as {@link #executeDeposit(Long, String, BigDecimal, String, String)}, but a rejected deposit is reported by
+     * the result rather than by an exception.
+     *
+     * @return {@link OperationResult#OK} if the deposit has been applied (or replayed), why it has been rejected
+     * otherwise
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey);
+
+    /**
+     * Throws the rejection of an operation. An operation of a customer without any account is not rejected: nothing
+     * happens, as it always did for deposits and withdrawals.
+     */
+    private static void throwIfRejected(OperationResult result, WalletOperation operation) {
+        if (!result.isOk() && result.status() != OperationResult.Status.UNKNOWN_ACCOUNT) {
+            throw WalletOperationException.of(result, operation);
+        }
+    }
 
     /**
      * Executes a withdrawal for a customer in the digital wallet. The amount should be between 0
      * and {@link com.digital.wallet.config.Constants#MAXIMUM_WITHDRAWAL}.
      *
      * @param customerId the unique identifier of the customer
-     * @param currency   the currency of the withdrawal. As per ISO 4217.
-     *                   <a href="https://en.wikipedia.org/wiki/ISO_4217">https://en.wikipedia.org/wiki/ISO_4217</a>
+     * @param currency   the currency of the withdrawal, i.e. of the account of the customer it applies to. As per
+     *                   ISO 4217. <a href="https://en.wikipedia.org/wiki/ISO_4217">https://en.wikipedia.org/wiki/ISO_4217</a>
      * @param amount     the amount to be withdrawn
      * @param remark     a remark or description for the withdrawal
      */
-    void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark);
+    default void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark) {
+        executeWithdrawal(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Same as {@link #executeWithdrawal(Long, String, BigDecimal, String)}, applied at most once per idempotency key
+     * and customer: a retry with the same key returns without withdrawing the amount again. Reusing a key for another
+     * operation is rejected.
+     * <p>
+     * Adapter of {@link #applyWithdrawal} that throws a {@link WalletOperationException} if the withdrawal is rejected.
+     * Nothing happens if the customer has no account at all.
+     *
+     * @param idempotencyKey the key identifying the withdrawal for the customer (at most 64 characters), e.g. generated
+     *                       by the client before the first attempt. Null to not make the withdrawal idempotent.
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    default void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        OperationResult result = applyWithdrawal(customerId, currency, amount, remark, idempotencyKey);
+        throwIfRejected(result, WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    /**
+     * Same as {@link #executeWithdrawal(Long, String, BigDecimal, String, String)}, but a rejected withdrawal is
+     * reported by the result rather than by an exception.
+     *
+     * @return {@link OperationResult#OK} if the withdrawal has been applied (or replayed), why it has been rejected
+     * otherwise. {@link OperationResult#balance()} tells the balance of the account if it is insufficient.
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey);
+
+    /**
+     * Transfers an amount from the account of a customer to the account of another one. The withdrawal and the deposit
+     * are applied together, in a single database transaction, or not at all: the amount is never in neither account.
+     * The amount is checked as it would be for a withdrawal from the first account and for a deposit to the second.
+     *
+     * @param fromCustomerId the unique identifier of the customer the amount is withdrawn from
+     * @param toCustomerId   the unique identifier of the customer the amount is deposited to
+     * @param currency       the currency of both accounts. As per ISO 4217.
+     * @param amount         the amount to be transferred
+     * @param remark         a remark or description for the transfer
+     * @throws IllegalArgumentException if the transfer cannot be applied (unknown account, insufficient balance...)
+     */
+    default void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark) {
+        transfer(fromCustomerId, toCustomerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Same as {@link #transfer(Long, Long, String, BigDecimal, String)}, applied at most once per idempotency key of
+     * the customer the amount is withdrawn from. The key is recorded as the one of the withdrawal.
+     *
+     * @param idempotencyKey the key identifying the transfer for the customer the amount is withdrawn from, null to not
+     *                       make the transfer idempotent
+     */
+    void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey);
+
+    /**
+     * Executes a batch of deposits and withdrawals, e.g. a payroll run. Operations of a given customer are applied in
+     * the order they are given. An invalid operation (amount out of bounds, insufficient balance, unknown account...)
+     * is not applied and does not prevent the other ones from being applied. An operation with an idempotency key
+     * already recorded is reported as applied without being applied again.
+     *
+     * @param operations the operations to execute
+     * @return the result of each operation, in the same order as the operations
+     */
+    List<WalletOperationResult> executeBatch(List<WalletOperation> operations);
+
+    /**
+     * Retrieves the balance of the account of a customer in a currency.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param currency   the currency of the account
+     * @return the balance, empty if the customer has no account in this currency
+     */
+    Optional<BigDecimal> getBalance(Long customerId, String currency);
 
     /**
      * Retrieves the transactions for a customer.
@@ -39,4 +161,37 @@ public interface DigitalWalletService {
      * @return a Page object containing the transactions
      */
     Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable);
+
+    /**
+     * Retrieves the transactions for a customer created in the given period. Prefer it to
+     * {@link #getTransactions(Long, Pageable)} when the period of interest is known: the transactions are partitioned by
+     * creation date.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from       the start of the period, inclusive
+     * @param to         the end of the period, exclusive
+     * @param pageable   the pagination information
+     * @return a Page object containing the transactions
+     */
+    Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable);
+
+    /**
+     * Same as {@link #getTransactions(Long, Pageable)} but does not count the transactions of the customer.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param pageable   the pagination information
+     * @return a Slice object containing the transactions
+     */
+    Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable);
+
+    /**
+     * Retrieves the transactions for a customer, most recent first, with keyset pagination: the next page is read from
+     * the last transaction of the previous one so reading a page costs the same whatever its depth.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param after      the {@link TransactionHistory#next()} cursor of the previous page, null to read the first one
+     * @param size       the maximum number of transactions to read
+     * @return the transactions and the cursor to read the next ones
+     */
+    TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size);
 }
@@ -2,19 +2,65 @@ package com.digital.wallet.service;
 
 import static com.digital.wallet.config.Constants.*;
 
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.Money;
 import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
 import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.LedgerDelta;
 import com.digital.wallet.repository.WalletAccountRepository;
 import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * An internal implementation of {@link DigitalWalletService} that is not meant to be used directly because it does not
  * prevent from concurrent operations on the same account.
+ * <p>
+ * An operation applies to the account of its customer in its currency, looked up with the unique
+ * {@code (customer_id, currency_code)} index. The other accounts of the customer are only looked up to explain why an
+ * operation has been rejected.
+ * <p>
+ * Depending on {@link ApplicationProperties.Wallet#getWriteMode()}, deposits and withdrawals either load, update and
+ * save the account entity or update the balance and record the transaction with a single statement, see
+ * {@link WalletAccountRepository#applyTransaction}. In the latter case the account is only read to explain why an
+ * operation has been rejected. With the ledger write mode, the balance is not updated in place: operations only insert
+ * a transaction and the balance is the amount of the account (a snapshot) plus the transactions after it, see
+ * {@link #getBalance} and {@link #compactLedger}.
+ * <p>
+ * Operations with an idempotency key are checked then recorded with {@link IdempotencyKeyService}, in their database
+ * transaction.
+ * <p>
+ * Write transactions start by locking their accounts in the database if
+ * {@link ApplicationProperties.Lock#getDatabase()} is set, see {@link WalletAccountRepository#lockAccountRows} and
+ * {@link WalletAccountRepository#lockCustomers}: the lock of the application only excludes the operations of this
+ * instance.
+ * <p>
+ * Batches and groups (see {@link GroupCommitDigitalWalletService}) are always executed with entities: accounts are
+ * loaded with a single query, updated in memory and the updates and transaction inserts are sent with JDBC batching at
+ * flush time ({@code hibernate.jdbc.batch_size}).
  */
 @Service
 public class DigitalWalletServiceInternal implements DigitalWalletService {
@@ -22,69 +68,646 @@ public class DigitalWalletServiceInternal implements DigitalWalletService {
     private final WalletAccountRepository accountRepository;
     private final WalletTransactionRepository transactionRepository;
 
-    public DigitalWalletServiceInternal(WalletAccountRepository accountRepository, WalletTransactionRepository transactionRepository) {
+    private final IdempotencyKeyService idempotencyKeys;
+
+    private final boolean sqlWriteMode;
+
+    private final boolean ledgerWriteMode;
+
+    private final ApplicationProperties.Lock.Database databaseLock;
+
+    public DigitalWalletServiceInternal(
+        WalletAccountRepository accountRepository,
+        WalletTransactionRepository transactionRepository,
+        IdempotencyKeyService idempotencyKeys,
+        ApplicationProperties applicationProperties
+    ) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.idempotencyKeys = idempotencyKeys;
+        this.sqlWriteMode = applicationProperties.getWallet().getWriteMode() == ApplicationProperties.Wallet.WriteMode.SQL;
+        this.ledgerWriteMode = applicationProperties.getWallet().getWriteMode() == ApplicationProperties.Wallet.WriteMode.LEDGER;
+        this.databaseLock = applicationProperties.getWallet().getLock().getDatabase();
     }
 
     @Override
     @Transactional
     public void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark) {
-        checkDepositAmount(amount);
-        this.accountRepository.findById(customerId)
-            .ifPresent(account -> {
-                if (!currency.equals(account.getCurrencyCode())) {
-                    throw new IllegalArgumentException("The user has no account associated to the currency: " + currency);
-                }
-                account.setAmount(account.getAmount().add(amount));
-                this.accountRepository.save(account);
-                saveTrx(customerId, currency, amount, remark, TransactionType.CREDIT);
-            });
+        executeDeposit(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Transactional, as {@link #applyDeposit} that it adapts.
+     */
+    @Override
+    @Transactional
+    public void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        DigitalWalletService.super.executeDeposit(customerId, currency, amount, remark, idempotencyKey);
     }
 
-    private void checkDepositAmount(BigDecimal amount) {
-        if (amount.compareTo(MAXIMUM_DEPOSIT) > 0) {
-            throw new IllegalArgumentException("Maximum deposit allowed is " + MAXIMUM_DEPOSIT);
-        } else if (amount.compareTo(MINIMUM_DEPOSIT) < 0) {
-            throw new IllegalArgumentException("Minimum deposit allowed is " + MINIMUM_DEPOSIT);
+    /**
+     * The key is recorded along with the transaction. A {@link org.springframework.dao.DuplicateKeyException} is thrown
+     * if it had already been recorded without this instance knowing it, see {@link IdempotencyKeyService#execute}.
+     */
+    @Override
+    @Transactional
+    public OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        WalletOperation operation = WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey);
+        if (this.idempotencyKeys.isReplay(operation)) {
+            return OperationResult.OK;
+        }
+        lockAccounts(List.of(operation.accountKey()));
+        int scale = Money.scaleOf(currency);
+        OperationResult result = checkDecimals(amount, scale);
+        if (!result.isOk()) {
+            return result;
+        }
+        long units = minorUnits(amount, scale);
+        result = checkDepositAmount(units, scale);
+        if (!result.isOk()) {
+            return result;
+        }
+        if (this.sqlWriteMode) {
+            result = applyTransaction(customerId, currency, amount, remark, TransactionType.CREDIT);
+            if (result.isOk()) {
+                this.idempotencyKeys.record(List.of(operation));
+            }
+            return result;
+        }
+        WalletAccount account = this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElse(null);
+        if (account == null) {
+            return missingAccount(customerId);
         }
+        if (!this.ledgerWriteMode) {
+            account.setBalance(plus(account.getBalance(), units, amount.scale(), scale));
+            this.accountRepository.save(account);
+        }
+        saveTrx(customerId, currency, amount, remark, TransactionType.CREDIT);
+        this.idempotencyKeys.record(List.of(operation));
+        return OperationResult.OK;
+    }
+
+    /**
+     * Why there is no account of the customer in the currency of the operation. Only called once an operation has been
+     * rejected.
+     */
+    private OperationResult missingAccount(Long customerId) {
+        return this.accountRepository.existsByCustomerId(customerId) ? OperationResult.CURRENCY_MISMATCH : OperationResult.UNKNOWN_ACCOUNT;
+    }
+
+    /**
+     * Rejects an amount with more decimals than its currency, before its conversion to minor units.
+     */
+    private static OperationResult checkDecimals(BigDecimal amount, int scale) {
+        return Money.hasAtMostDecimals(amount, scale) ? OperationResult.OK : OperationResult.TOO_MANY_DECIMALS;
+    }
+
+    /**
+     * The amount of an operation in minor units of its currency, see {@link Money}: limit checks and balance
+     * arithmetic are then done on longs, without allocating anything. An amount too large for a long is above every
+     * limit. The decimals of the amount must have been checked, see {@link #checkDecimals}.
+     */
+    private static long minorUnits(BigDecimal amount, int scale) {
+        try {
+            return Money.toMinorUnits(amount, scale);
+        } catch (ArithmeticException e) {
+            return amount.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * The limits are integers, converted to minor units without allocation.
+     */
+    private static OperationResult checkDepositAmount(long amount, int scale) {
+        if (amount > Money.toMinorUnits(MAXIMUM_DEPOSIT, scale)) {
+            return OperationResult.ABOVE_MAX;
+        } else if (amount < Money.toMinorUnits(MINIMUM_DEPOSIT, scale)) {
+            return OperationResult.BELOW_MIN;
+        }
+        return OperationResult.OK;
     }
 
     @Override
     @Transactional
     public void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark) {
-        this.accountRepository.findById(customerId)
-            .ifPresent(account -> {
-                if (!currency.equals(account.getCurrencyCode())) {
-                    throw new IllegalArgumentException("The user has no account associated to the currency: " + currency);
-                }
-                checkWithdrawalAmount(amount, account.getAmount());
-                account.setAmount(account.getAmount().subtract(amount));
-                this.accountRepository.save(account);
-                saveTrx(customerId, currency, amount, remark, TransactionType.DEBIT);
-            });
+        executeWithdrawal(customerId, currency, amount, remark, null);
     }
 
-    private void checkWithdrawalAmount(BigDecimal amount, BigDecimal accountBalance) {
-        if (amount.compareTo(MAXIMUM_WITHDRAWAL) > 0) {
-            throw new IllegalArgumentException("Maximum withdrawal allowed is " + MAXIMUM_WITHDRAWAL);
-        } else if (amount.compareTo(new BigDecimal(0)) < 0) {
-            throw new IllegalArgumentException("Withdrawal amount cannot be negative");
-        } else if (amount.compareTo(accountBalance) > 0) {
-            throw new IllegalArgumentException(
-                "Insufficient balance. You are trying to withdraw " + amount + " but the balance is " + accountBalance
+    /**
+     * Transactional, as {@link #applyWithdrawal} that it adapts.
+     */
+    @Override
+    @Transactional
+    public void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        DigitalWalletService.super.executeWithdrawal(customerId, currency, amount, remark, idempotencyKey);
+    }
+
+    /**
+     * See {@link #applyDeposit}.
+     */
+    @Override
+    @Transactional
+    public OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        WalletOperation operation = WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey);
+        if (this.idempotencyKeys.isReplay(operation)) {
+            return OperationResult.OK;
+        }
+        lockAccounts(List.of(operation.accountKey()));
+        int scale = Money.scaleOf(currency);
+        OperationResult result = checkDecimals(amount, scale);
+        if (!result.isOk()) {
+            return result;
+        }
+        long units = minorUnits(amount, scale);
+        if (this.sqlWriteMode) {
+            // A negative amount would credit the account: the statement only debits valid amounts, the others are
+            // rejected in the same order as with entities, the account first
+            result = checkWithdrawalAmount(units, scale);
+            result = result.isOk()
+                ? applyTransaction(customerId, currency, amount, remark, TransactionType.DEBIT)
+                : rejectWithdrawal(customerId, currency, result);
+            if (result.isOk()) {
+                this.idempotencyKeys.record(List.of(operation));
+            }
+            return result;
+        }
+        WalletAccount account = this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElse(null);
+        if (account == null) {
+            return missingAccount(customerId);
+        }
+        result = checkWithdrawalAmount(units, scale);
+        if (result.isOk()) {
+            result = checkBalance(units, account, scale);
+        }
+        if (!result.isOk()) {
+            return result;
+        }
+        if (!this.ledgerWriteMode) {
+            account.setBalance(plus(account.getBalance(), -units, amount.scale(), scale));
+            this.accountRepository.save(account);
+        }
+        saveTrx(customerId, currency, amount, remark, TransactionType.DEBIT);
+        this.idempotencyKeys.record(List.of(operation));
+        return OperationResult.OK;
+    }
+
+    @Override
+    @Transactional
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark) {
+        transfer(fromCustomerId, toCustomerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Executes the transfer with entities, whatever the write mode, as batches: both accounts are loaded with a single
+     * query and the balance updates and both transactions are sent together at flush time. The caller is expected to
+     * hold the locks of both accounts, see {@link SafeDigitalWalletService#transfer}.
+     *
+     * @throws WalletOperationException if the withdrawal or the deposit would be rejected
+     */
+    @Override
+    @Transactional
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        WalletOperation withdrawal = WalletOperation.withdrawal(fromCustomerId, currency, amount, remark, idempotencyKey);
+        WalletOperation deposit = WalletOperation.deposit(toCustomerId, currency, amount, remark);
+        if (this.idempotencyKeys.isReplay(withdrawal)) {
+            return;
+        }
+        if (fromCustomerId.equals(toCustomerId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same customer: " + fromCustomerId);
+        }
+        lockAccounts(List.of(withdrawal.accountKey(), deposit.accountKey()));
+        int scale = Money.scaleOf(currency);
+        throwIfRejected(checkDecimals(amount, scale), withdrawal);
+        long units = minorUnits(amount, scale);
+        throwIfRejected(checkWithdrawalAmount(units, scale), withdrawal);
+        throwIfRejected(checkDepositAmount(units, scale), deposit);
+        CustomerAccounts accounts = findAllAccounts(List.of(fromCustomerId, toCustomerId));
+        WalletAccount from = accounts.get(withdrawal);
+        WalletAccount to = accounts.get(deposit);
+        throwIfRejected(checkBalance(units, from, scale), withdrawal);
+        if (!this.ledgerWriteMode) {
+            from.setBalance(plus(from.getBalance(), -units, amount.scale(), scale));
+            to.setBalance(plus(to.getBalance(), units, amount.scale(), scale));
+        }
+        this.transactionRepository.saveAll(
+                List.of(
+                    newTrx(fromCustomerId, currency, amount, remark, TransactionType.DEBIT),
+                    newTrx(toCustomerId, currency, amount, remark, TransactionType.CREDIT)
+                )
             );
+        this.idempotencyKeys.record(List.of(withdrawal));
+    }
+
+    private static void throwIfRejected(OperationResult result, WalletOperation operation) {
+        if (!result.isOk()) {
+            throw WalletOperationException.of(result, operation);
+        }
+    }
+
+    /**
+     * Locks the accounts in the database until the end of the current transaction, see
+     * {@link ApplicationProperties.Lock#getDatabase()}.
+     */
+    private void lockAccounts(Collection<AccountKey> accounts) {
+        switch (this.databaseLock) {
+            case ROW -> this.accountRepository.lockAccountRows(accounts);
+            case ADVISORY -> this.accountRepository.lockCustomers(accounts.stream().map(AccountKey::customerId).toList());
+            case NONE -> {
+                // The caller holds the locks of the application
+            }
+        }
+    }
+
+    /**
+     * The accounts, in any currency, of a set of customers.
+     */
+    private record CustomerAccounts(Map<AccountKey, WalletAccount> byKey, Set<Long> customerIds) {
+        /**
+         * @return the account of the operation, null if there is none
+         */
+        WalletAccount find(WalletOperation operation) {
+            return this.byKey.get(operation.accountKey());
+        }
+
+        /**
+         * Why there is no account for the operation.
+         */
+        OperationResult missing(WalletOperation operation) {
+            return this.customerIds.contains(operation.customerId()) ? OperationResult.CURRENCY_MISMATCH : OperationResult.UNKNOWN_ACCOUNT;
+        }
+
+        /**
+         * @throws WalletOperationException if there is no account for the operation
+         */
+        WalletAccount get(WalletOperation operation) {
+            WalletAccount account = find(operation);
+            if (account == null) {
+                throw WalletOperationException.of(missing(operation), operation);
+            }
+            return account;
+        }
+    }
+
+    /**
+     * Loads the accounts of the customers with a single query.
+     */
+    private CustomerAccounts findAllAccounts(List<Long> customerIds) {
+        CustomerAccounts accounts = new CustomerAccounts(new HashMap<>(), new HashSet<>());
+        for (WalletAccount account : this.accountRepository.findAllByCustomerIdIn(customerIds)) {
+            accounts.byKey().put(AccountKey.of(account), account);
+            accounts.customerIds().add(account.getCustomerId());
+        }
+        return accounts;
+    }
+
+    private static OperationResult checkWithdrawalAmount(long amount, Balance accountBalance, int scale) {
+        OperationResult result = checkWithdrawalAmount(amount, scale);
+        return result.isOk() ? checkBalance(amount, accountBalance) : result;
+    }
+
+    private static OperationResult checkBalance(long amount, Balance accountBalance) {
+        return amount > accountBalance.units ? OperationResult.insufficientFunds(accountBalance.toBigDecimal()) : OperationResult.OK;
+    }
+
+    /**
+     * Same as {@link #checkBalance(long, Balance)} for a single operation: without the ledger write mode, the amount of
+     * the account is compared in minor units and only a rejection allocates.
+     */
+    private OperationResult checkBalance(long amount, WalletAccount account, int scale) {
+        if (this.ledgerWriteMode) {
+            return checkBalance(amount, balanceOf(account, scale));
+        }
+        if (amount > account.getBalance().minorUnits(scale)) {
+            return OperationResult.insufficientFunds(account.getAmount());
+        }
+        return OperationResult.OK;
+    }
+
+    /**
+     * The balance plus an amount, see {@link Balance#toMoney}. The only allocation is the new balance of the entity.
+     *
+     * @param units       minor units in the scale of the currency, negative for a debit
+     * @param amountScale the scale of the {@link BigDecimal} amount
+     */
+    private static Money plus(Money balance, long units, int amountScale, int scale) {
+        return Balance.toMoney(Math.addExact(balance.minorUnits(scale), units), scale, Math.max(balance.getScale(), amountScale));
+    }
+
+    private static OperationResult checkWithdrawalAmount(long amount, int scale) {
+        if (amount > Money.toMinorUnits(MAXIMUM_WITHDRAWAL, scale)) {
+            return OperationResult.ABOVE_MAX;
+        } else if (amount < 0) {
+            return OperationResult.BELOW_MIN;
+        }
+        return OperationResult.OK;
+    }
+
+    /**
+     * Single statement version of the deposit and withdrawal. If nothing has been written, the account is read to tell
+     * why, as the entity version would have.
+     */
+    private OperationResult applyTransaction(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        TransactionType transactionType
+    ) {
+        if (this.accountRepository.applyTransaction(customerId, currency, amount, transactionType, remark).isPresent()) {
+            return OperationResult.OK;
+        }
+        WalletAccount account = this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElse(null);
+        if (account == null) {
+            return missingAccount(customerId);
+        }
+        // Only a withdrawal can be refused by the statement, the caller holds the lock of the account
+        return OperationResult.insufficientFunds(account.getAmount());
+    }
+
+    /**
+     * The result of a withdrawal whose amount has been rejected before the statement, as the entity version would
+     * have returned it.
+     */
+    private OperationResult rejectWithdrawal(Long customerId, String currency, OperationResult amountRejection) {
+        if (this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).isEmpty()) {
+            return missingAccount(customerId);
         }
+        return amountRejection;
     }
 
     private void saveTrx(Long customerId, String currency, BigDecimal amount, String remark, TransactionType transactionType) {
+        this.transactionRepository.save(newTrx(customerId, currency, amount, remark, transactionType));
+    }
+
+    private static WalletTransaction newTrx(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        TransactionType transactionType
+    ) {
         WalletTransaction trx = new WalletTransaction();
         trx.setCustomerId(customerId);
         trx.setAmount(amount);
         trx.setCurrencyCode(currency);
         trx.setRemarks(remark);
         trx.setTransactionType(transactionType);
-        this.transactionRepository.save(trx);
+        return trx;
+    }
+
+    /**
+     * Executes the operations in a single database transaction. Callers are expected to hold the locks of all the
+     * accounts of the batch and to keep batches reasonably small, see {@link SafeDigitalWalletService#executeBatch}.
+     * Rejected operations are reported without exception.
+     */
+    @Override
+    @Transactional
+    public List<WalletOperationResult> executeBatch(List<WalletOperation> operations) {
+        lockAccounts(operations.stream().map(WalletOperation::accountKey).collect(Collectors.toSet()));
+        CustomerAccounts accounts = findAllAccounts(operations.stream().map(WalletOperation::customerId).distinct().toList());
+        // The balances of the accounts operated on. Entities are unique in the persistence context and not immutable.
+        Map<WalletAccount, Balance> balances = new IdentityHashMap<>();
+
+        List<WalletOperationResult> results = new ArrayList<>(operations.size());
+        List<WalletTransaction> transactions = new ArrayList<>(operations.size());
+        Map<IdempotencyKeyService.Key, WalletOperation> keyed = new HashMap<>();
+        for (WalletOperation operation : operations) {
+            try {
+                if (this.idempotencyKeys.isReplay(operation, keyed)) {
+                    results.add(WalletOperationResult.success(operation));
+                    continue;
+                }
+                WalletAccount account = accounts.find(operation);
+                OperationResult result = account == null ? accounts.missing(operation) : apply(account, balances, operation);
+                if (result.isOk()) {
+                    transactions.add(
+                        newTrx(operation.customerId(), operation.currency(), operation.amount(), operation.remark(), operation.type())
+                    );
+                    putIfKeyed(keyed, operation);
+                }
+                results.add(WalletOperationResult.of(operation, result));
+            } catch (IllegalArgumentException e) {
+                results.add(WalletOperationResult.failure(operation, e.getMessage()));
+            }
+        }
+        if (!this.ledgerWriteMode) {
+            // Accounts are managed, their update is flushed at commit time along with the inserts
+            balances.forEach((account, balance) -> account.setBalance(balance.toMoney()));
+        }
+        this.transactionRepository.saveAll(transactions);
+        this.idempotencyKeys.record(keyed.values());
+        return results;
+    }
+
+    private static void putIfKeyed(Map<IdempotencyKeyService.Key, WalletOperation> keyed, WalletOperation operation) {
+        if (operation.idempotencyKey() != null) {
+            keyed.put(IdempotencyKeyService.Key.of(operation), operation);
+        }
+    }
+
+    /**
+     * Executes operations of the same account in a single database transaction: one balance update and batched
+     * transaction inserts. Unlike {@link #executeBatch}, each operation behaves as {@link #applyDeposit} or
+     * {@link #applyWithdrawal} would: same checks, in the same order. The caller is expected to hold the lock of the
+     * account, see {@link GroupCommitDigitalWalletService}.
+     *
+     * @return the result of each operation, with a null {@link WalletOperationResult#result()} if the operation has
+     * been rejected with an exception (idempotency key reused...)
+     */
+    @Transactional
+    public List<WalletOperationResult> executeGroup(AccountKey accountKey, List<WalletOperation> operations) {
+        List<WalletOperationResult> results = new ArrayList<>(operations.size());
+        lockAccounts(List.of(accountKey));
+        Long customerId = accountKey.customerId();
+        WalletAccount account = this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, accountKey.currencyCode()).orElse(null);
+        OperationResult missing = account == null ? missingAccount(customerId) : null;
+        int scale = Money.scaleOf(accountKey.currencyCode());
+        Balance balance = account == null ? null : balanceOf(account, scale);
+        List<WalletTransaction> transactions = new ArrayList<>(operations.size());
+        Map<IdempotencyKeyService.Key, WalletOperation> keyed = new HashMap<>();
+        for (WalletOperation operation : operations) {
+            try {
+                if (this.idempotencyKeys.isReplay(operation, keyed)) {
+                    results.add(WalletOperationResult.success(operation));
+                    continue;
+                }
+                OperationResult result = checkDecimals(operation.amount(), scale);
+                long amount = 0;
+                if (result.isOk()) {
+                    amount = minorUnits(operation.amount(), scale);
+                    result = checkInGroup(missing, balance, amount, scale, operation);
+                }
+                if (result.isOk()) {
+                    balance.add(operation, amount);
+                    transactions.add(newTrx(customerId, operation.currency(), operation.amount(), operation.remark(), operation.type()));
+                    putIfKeyed(keyed, operation);
+                }
+                results.add(WalletOperationResult.of(operation, result));
+            } catch (IllegalArgumentException e) {
+                results.add(WalletOperationResult.failure(operation, e.getMessage()));
+            }
+        }
+        if (account != null && !this.ledgerWriteMode) {
+            account.setBalance(balance.toMoney());
+        }
+        this.transactionRepository.saveAll(transactions);
+        this.idempotencyKeys.record(keyed.values());
+        return results;
+    }
+
+    /**
+     * Same checks, in the same order, as {@link #applyDeposit} and {@link #applyWithdrawal}.
+     *
+     * @param missing why there is no account for the operation, null if there is one
+     * @param balance the balance of the account before the operation
+     * @param amount  the amount of the operation, in minor units
+     */
+    private static OperationResult checkInGroup(
+        OperationResult missing,
+        Balance balance,
+        long amount,
+        int scale,
+        WalletOperation operation
+    ) {
+        if (operation.type() == TransactionType.CREDIT) {
+            OperationResult result = checkDepositAmount(amount, scale);
+            if (!result.isOk()) {
+                return result;
+            }
+        }
+        if (missing != null) {
+            return missing;
+        }
+        return operation.type() == TransactionType.CREDIT ? OperationResult.OK : checkWithdrawalAmount(amount, balance, scale);
+    }
+
+    /**
+     * The balance of an account being computed: minor units in the scale of its currency, for the checks and the
+     * arithmetic on longs. The balance is stored with the largest scale of the amounts added, as {@link BigDecimal#add}
+     * would have.
+     */
+    private static final class Balance {
+
+        private final int scale;
+
+        private long units;
+
+        private int storedScale;
+
+        private Balance(int scale, long units, int storedScale) {
+            this.scale = scale;
+            this.units = units;
+            this.storedScale = storedScale;
+        }
+
+        /**
+         * The amount of the account, without the transactions of the ledger.
+         */
+        static Balance of(WalletAccount account, int scale) {
+            Money amount = account.getBalance();
+            return new Balance(scale, amount.minorUnits(scale), amount.getScale());
+        }
+
+        /**
+         * @param units       minor units in the scale of the currency, negative for a debit
+         * @param amountScale the scale of the {@link BigDecimal} amount
+         */
+        void add(long units, int amountScale) {
+            this.units = Math.addExact(this.units, units);
+            this.storedScale = Math.max(this.storedScale, amountScale);
+        }
+
+        void add(WalletOperation operation, long units) {
+            add(operation.type() == TransactionType.CREDIT ? units : -units, operation.amount().scale());
+        }
+
+        /**
+         * Exact: the balance has no more decimals than the amounts added.
+         */
+        Money toMoney() {
+            return toMoney(this.units, this.scale, this.storedScale);
+        }
+
+        static Money toMoney(long units, int scale, int storedScale) {
+            int toScale = Math.max(0, storedScale);
+            return Money.ofMinor(Money.rescale(units, scale, toScale), toScale);
+        }
+
+        BigDecimal toBigDecimal() {
+            return toMoney().toBigDecimal();
+        }
+    }
+
+    /**
+     * Checks the operation and updates the balance of the account in the given map if it is accepted.
+     */
+    private OperationResult apply(WalletAccount account, Map<WalletAccount, Balance> balances, WalletOperation operation) {
+        Balance balance = balances.computeIfAbsent(account, this::newBalance);
+        OperationResult result = checkDecimals(operation.amount(), balance.scale);
+        if (!result.isOk()) {
+            return result;
+        }
+        long amount = minorUnits(operation.amount(), balance.scale);
+        result = operation.type() == TransactionType.CREDIT
+            ? checkDepositAmount(amount, balance.scale)
+            : checkWithdrawalAmount(amount, balance, balance.scale);
+        if (result.isOk()) {
+            balance.add(operation, amount);
+        }
+        return result;
+    }
+
+    private Balance newBalance(WalletAccount account) {
+        return balanceOf(account, Money.scaleOf(account.getCurrencyCode()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BigDecimal> getBalance(Long customerId, String currency) {
+        int scale = Money.scaleOf(currency);
+        return this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency)
+            .map(account -> balanceOf(account, scale).toBigDecimal());
+    }
+
+    /**
+     * The balance of the account: its amount, plus the transactions after its snapshot with the ledger write mode.
+     */
+    private Balance balanceOf(WalletAccount account, int scale) {
+        Balance balance = Balance.of(account, scale);
+        if (this.ledgerWriteMode) {
+            LedgerDelta delta = findLedgerDelta(account);
+            if (delta.amount() != null) {
+                balance.add(Money.toMinorUnits(delta.amount(), scale), delta.amount().scale());
+            }
+        }
+        return balance;
+    }
+
+    private LedgerDelta findLedgerDelta(WalletAccount account) {
+        long snapshotId = account.getLedgerSnapshotId() == null ? 0 : account.getLedgerSnapshotId();
+        return this.transactionRepository.findLedgerDelta(account.getCustomerId(), account.getCurrencyCode(), snapshotId);
+    }
+
+    /**
+     * Folds the transactions after the ledger snapshot of the account into its amount, see
+     * {@link LedgerCompactionService}. The caller must hold the lock of the account: transaction ids are not
+     * committed in order, a transaction being written concurrently could get an id lower than the new snapshot one.
+     *
+     * @param accountId the id of the account (not of its customer)
+     */
+    @Transactional
+    public void compactLedger(Long accountId) {
+        this.accountRepository.findById(accountId)
+            .ifPresent(account -> {
+                // Not with several instances, see DigitalWalletServiceConfiguration: their ids could be lower than the snapshot
+                lockAccounts(List.of(AccountKey.of(account)));
+                LedgerDelta delta = findLedgerDelta(account);
+                if (delta.lastTransactionId() != null) {
+                    account.setBalance(account.getBalance().plus(Money.of(delta.amount())));
+                    account.setLedgerSnapshotId(delta.lastTransactionId());
+                    this.accountRepository.save(account);
+                }
+            });
     }
 
     @Override
@@ -92,4 +715,34 @@ public class DigitalWalletServiceInternal implements DigitalWalletService {
     public Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable) {
         return this.transactionRepository.findAllByCustomerId(customerId, pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable) {
+        return this.transactionRepository.findAllByCustomerIdAndCreatedDateRange(customerId, from, to, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable) {
+        return this.transactionRepository.findSliceByCustomerId(customerId, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The size must be positive: " + size);
+        }
+        // One more transaction is read to know if there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<WalletTransaction> transactions = after == null
+            ? this.transactionRepository.findAllByCustomerIdOrderByCreatedDateDescIdDesc(customerId, limit)
+            : this.transactionRepository.findAllByCustomerIdBefore(customerId, after.createdDate(), after.id(), limit);
+        if (transactions.size() <= size) {
+            return new TransactionHistory(transactions, null);
+        }
+        transactions = transactions.subList(0, size);
+        return new TransactionHistory(transactions, TransactionCursor.of(transactions.get(size - 1)));
+    }
 }
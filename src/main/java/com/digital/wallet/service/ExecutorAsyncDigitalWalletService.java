@@ -0,0 +1,86 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.domain.WalletTransaction;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+/**
+ * An implementation of {@link AsyncDigitalWalletService} that runs the blocking operations of the primary
+ * {@link DigitalWalletService} on the {@code walletTaskExecutor}: one virtual thread per operation when virtual threads
+ * are enabled and supported, a bounded pool of platform threads otherwise (see
+ * {@link com.digital.wallet.config.AsyncConfiguration}).
+ */
+@Service
+public class ExecutorAsyncDigitalWalletService implements AsyncDigitalWalletService {
+
+    private final DigitalWalletService delegate;
+
+    private final Executor executor;
+
+    public ExecutorAsyncDigitalWalletService(DigitalWalletService delegate, @Qualifier("walletTaskExecutor") Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> executeDepositAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return submit(() -> {
+            this.delegate.executeDeposit(customerId, currency, amount, remark, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> executeWithdrawalAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return submit(() -> {
+            this.delegate.executeWithdrawal(customerId, currency, amount, remark, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Page<WalletTransaction>> getTransactionsAsync(Long customerId, Pageable pageable) {
+        return submit(() -> this.delegate.getTransactions(customerId, pageable));
+    }
+
+    /**
+     * Unlike {@link CompletableFuture#supplyAsync}, the future is completed with the exception of the operation as is.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                future.complete(operation.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            // The security context is propagated for auditing
+            this.executor.execute(DelegatingSecurityContextRunnable.create(task, null));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
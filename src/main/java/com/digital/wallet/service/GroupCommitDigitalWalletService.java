@@ -0,0 +1,224 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import com.digital.wallet.service.lock.LockTable;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+/**
+ * An implementation of {@link DigitalWalletService} that coalesces the deposits and withdrawals waiting for the lock
+ * of the same account into a single database transaction: one balance update, batched transaction inserts and one
+ * commit, instead of one of each per operation.
+ * <p>
+ * A caller queues its operation on the account then takes the account lock. If its operation has not been applied in
+ * the meantime by the previous lock holder, it drains the queue in FIFO order, up to
+ * {@link ApplicationProperties.GroupCommit#getMaxBatchSize()} operations, applies them with
+ * {@link DigitalWalletServiceInternal#executeGroup} and hands every caller its own outcome. The lock holder can wait
+ * {@link ApplicationProperties.GroupCommit#getLinger()} for more operations before applying them.
+ * <p>
+ * The size of the groups is published as the {@code wallet.group-commit.size} metric. Batches and transfers are
+ * executed as by {@link SafeDigitalWalletService}.
+ */
+@Service
+@Qualifier("GroupCommitDigitalWalletService")
+@ConditionalOnProperty(prefix = "application.wallet", name = "mode", havingValue = "group-commit")
+public class GroupCommitDigitalWalletService implements DigitalWalletService {
+
+    private record Pending(WalletOperation operation, CompletableFuture<OperationResult> result) {}
+
+    private final ConcurrentMap<AccountKey, Queue<Pending>> queues = new ConcurrentHashMap<>();
+
+    private final DigitalWalletServiceInternal underlying;
+
+    private final SafeDigitalWalletService safe;
+
+    private final LockTable sync;
+
+    private final IdempotencyKeyService idempotencyKeys;
+
+    private final int maxBatchSize;
+
+    private final long lingerNanos;
+
+    private final DistributionSummary groupSize;
+
+    public GroupCommitDigitalWalletService(
+        DigitalWalletServiceInternal underlying,
+        SafeDigitalWalletService safe,
+        LockTable sync,
+        IdempotencyKeyService idempotencyKeys,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.underlying = underlying;
+        this.safe = safe;
+        this.sync = sync;
+        this.idempotencyKeys = idempotencyKeys;
+        ApplicationProperties.GroupCommit config = applicationProperties.getWallet().getGroupCommit();
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.lingerNanos = config.getLinger().toNanos();
+        this.groupSize =
+            DistributionSummary
+                .builder("wallet.group-commit.size")
+                .description("Number of operations applied in one database transaction")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return execute(WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    @Override
+    public OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return execute(WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    private OperationResult execute(WalletOperation operation) {
+        Pending pending = new Pending(operation, new CompletableFuture<>());
+        AccountKey accountKey = operation.accountKey();
+        Queue<Pending> queue = this.queues.computeIfAbsent(accountKey, k -> new ConcurrentLinkedQueue<>());
+        queue.add(pending);
+        try (LockTable.Handle ignored = this.sync.lock(accountKey)) {
+            // More than a group can be ahead of this operation
+            while (!pending.result().isDone()) {
+                applyGroup(accountKey, queue);
+            }
+            if (queue.isEmpty()) {
+                // Operations queued concurrently on a removed queue are applied by their own caller
+                this.queues.remove(accountKey, queue);
+            }
+        }
+        return PartitionedDigitalWalletService.await(pending.result());
+    }
+
+    /**
+     * Applies the next operations of the queue. Must be called with the lock of the account held.
+     */
+    private void applyGroup(AccountKey accountKey, Queue<Pending> queue) {
+        linger(queue);
+        List<Pending> group = new ArrayList<>(this.maxBatchSize);
+        Pending next;
+        while (group.size() < this.maxBatchSize && (next = queue.poll()) != null) {
+            group.add(next);
+        }
+        this.groupSize.record(group.size());
+        try {
+            List<WalletOperation> operations = group.stream().map(Pending::operation).toList();
+            complete(group, this.underlying.executeGroup(accountKey, operations));
+        } catch (DuplicateKeyException e) {
+            // The group has been rolled back because of an idempotency key unknown in memory: the operations are
+            // applied one by one to replay the ones already applied
+            group.forEach(pending -> applyAlone(accountKey, pending));
+        } catch (Throwable e) {
+            // Nothing has been committed, the callers must not wait for a result that will never come
+            group.forEach(pending -> pending.result().completeExceptionally(e));
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private void applyAlone(AccountKey accountKey, Pending pending) {
+        try {
+            this.idempotencyKeys.execute(
+                    pending.operation(),
+                    () -> complete(List.of(pending), this.underlying.executeGroup(accountKey, List.of(pending.operation())))
+                );
+            // Completed by the line above unless replayed
+            pending.result().complete(OperationResult.OK);
+        } catch (Throwable e) {
+            pending.result().completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private static void complete(List<Pending> group, List<WalletOperationResult> results) {
+        for (int i = 0; i < group.size(); i++) {
+            WalletOperationResult result = results.get(i);
+            if (result.result() == null) {
+                // Rejected with an exception by the underlying service (idempotency key reused...)
+                group.get(i).result().completeExceptionally(new IllegalArgumentException(result.error()));
+            } else {
+                group.get(i).result().complete(result.result());
+            }
+        }
+    }
+
+    private void linger(Queue<Pending> queue) {
+        if (this.lingerNanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + this.lingerNanos;
+        long remaining;
+        while (queue.size() < this.maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(remaining, 100_000L));
+        }
+    }
+
+    /**
+     * Holding the locks of both accounts, see {@link SafeDigitalWalletService#transfer}, excludes the groups of their
+     * accounts.
+     */
+    @Override
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        this.safe.transfer(fromCustomerId, toCustomerId, currency, amount, remark, idempotencyKey);
+    }
+
+    @Override
+    public List<WalletOperationResult> executeBatch(List<WalletOperation> operations) {
+        return this.safe.executeBatch(operations);
+    }
+
+    @Override
+    public Optional<BigDecimal> getBalance(Long customerId, String currency) {
+        return this.underlying.getBalance(customerId, currency);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, pageable);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, from, to, pageable);
+    }
+
+    @Override
+    public Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactionSlice(customerId, pageable);
+    }
+
+    @Override
+    public TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size) {
+        return this.underlying.getTransactionHistory(customerId, after, size);
+    }
+}
@@ -0,0 +1,274 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.repository.IdempotencyKey;
+import com.digital.wallet.repository.WalletIdempotencyKeyRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies the deposits and withdrawals given with an idempotency key at most once per key and customer, so that a
+ * client can retry an operation whose outcome it does not know (timeout...).
+ * <p>
+ * Keys are recorded by {@link DigitalWalletServiceInternal} in the database transaction of their operation and the
+ * unique constraint of {@link WalletIdempotencyKeyRepository} is what guarantees that an operation is applied once. In
+ * front of it, so that a new key, the usual case, costs no additional query:
+ * <ul>
+ *     <li>the keys recently recorded by this instance are kept in memory
+ *     ({@link ApplicationProperties.Idempotency#getRecentKeys()}): a retry is answered without a database round trip,</li>
+ *     <li>an optional Bloom filter of the keys recorded since startup
+ *     ({@link ApplicationProperties.Idempotency#getBloomFilterExpectedKeys()}) tells the keys that cannot have been
+ *     recorded. The other ones are looked up in the database before the operation.</li>
+ * </ul>
+ * A retry of a key that is not known in memory fails on the unique constraint: the transaction of the operation is
+ * rolled back and {@link #execute} replays it instead.
+ * <p>
+ * A replay returns without applying the operation again, as the original call did. Reusing a key for another operation
+ * is rejected with an {@link IllegalArgumentException}. A rejected operation (amount out of bounds...) does not record
+ * its key. Replays are counted by the {@code wallet.idempotency.replays} metric, tagged with where the key was found.
+ */
+@Service
+public class IdempotencyKeyService {
+
+    static final int MAX_KEY_LENGTH = 64;
+
+    /**
+     * Identifies an idempotency key: keys are unique per customer.
+     */
+    record Key(Long customerId, String idempotencyKey) {
+        static Key of(WalletOperation operation) {
+            return new Key(operation.customerId(), operation.idempotencyKey());
+        }
+    }
+
+    private static final Funnel<Key> KEY_FUNNEL = (key, into) ->
+        into.putLong(key.customerId()).putString(key.idempotencyKey(), StandardCharsets.UTF_8);
+
+    private final WalletIdempotencyKeyRepository repository;
+
+    private final Cache<Key, IdempotencyKey> recentKeys;
+
+    private final long bloomFilterExpectedKeys;
+
+    private final double bloomFilterFpp;
+
+    /**
+     * The keys recorded since startup, or since the filter has been renewed because it was full. Null if disabled.
+     */
+    private final AtomicReference<BloomFilter<Key>> recordedKeys;
+
+    private final Counter memoryReplays;
+
+    private final Counter databaseReplays;
+
+    private final Counter constraintReplays;
+
+    public IdempotencyKeyService(
+        WalletIdempotencyKeyRepository repository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        ApplicationProperties.Idempotency config = applicationProperties.getWallet().getIdempotency();
+        // Evictions are done by the calling thread: a few entries at a time, and the size bound is exact
+        this.recentKeys = Caffeine.newBuilder().maximumSize(config.getRecentKeys()).executor(Runnable::run).build();
+        this.bloomFilterExpectedKeys = config.getBloomFilterExpectedKeys();
+        this.bloomFilterFpp = config.getBloomFilterFpp();
+        this.recordedKeys = this.bloomFilterExpectedKeys > 0 ? new AtomicReference<>(newBloomFilter()) : null;
+        this.memoryReplays = replayCounter("memory", meterRegistry);
+        this.databaseReplays = replayCounter("database", meterRegistry);
+        this.constraintReplays = replayCounter("constraint", meterRegistry);
+    }
+
+    private static Counter replayCounter(String source, MeterRegistry meterRegistry) {
+        return Counter
+            .builder("wallet.idempotency.replays")
+            .description("Number of operations not applied because their idempotency key had already been recorded")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    private BloomFilter<Key> newBloomFilter() {
+        return BloomFilter.create(KEY_FUNNEL, this.bloomFilterExpectedKeys, this.bloomFilterFpp);
+    }
+
+    /**
+     * Same as {@link #isReplay(WalletOperation, Map)} for an operation applied alone.
+     */
+    boolean isReplay(WalletOperation operation) {
+        return isReplay(operation, Map.of());
+    }
+
+    /**
+     * Whether the key of the operation has already been recorded, in which case the operation must not be applied.
+     * Must be called in the database transaction of the operation, before applying it.
+     *
+     * @param operation            the operation to apply
+     * @param appliedInTransaction the operations with a key applied earlier in the same database transaction, by key
+     * @throws IllegalArgumentException if the key is invalid or has already been used for another operation
+     */
+    boolean isReplay(WalletOperation operation, Map<Key, WalletOperation> appliedInTransaction) {
+        if (operation.idempotencyKey() == null) {
+            return false;
+        }
+        checkKey(operation.idempotencyKey());
+        Key key = Key.of(operation);
+        WalletOperation applied = appliedInTransaction.get(key);
+        if (applied != null) {
+            // Not remembered: it has not been committed yet
+            checkSameOperation(toIdempotencyKey(operation), toIdempotencyKey(applied));
+            this.memoryReplays.increment();
+            return true;
+        }
+        IdempotencyKey recorded = this.recentKeys.getIfPresent(key);
+        Counter replays = this.memoryReplays;
+        if (recorded == null && mightHaveBeenRecorded(key)) {
+            recorded = this.repository.findById(key.customerId(), key.idempotencyKey()).orElse(null);
+            replays = this.databaseReplays;
+        }
+        if (recorded == null) {
+            return false;
+        }
+        replay(toIdempotencyKey(operation), recorded, replays);
+        return true;
+    }
+
+    private static void checkKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                "The idempotency key must be a non blank string of at most " + MAX_KEY_LENGTH + " characters"
+            );
+        }
+    }
+
+    private boolean mightHaveBeenRecorded(Key key) {
+        return this.recordedKeys != null && this.recordedKeys.get().mightContain(key);
+    }
+
+    /**
+     * Records the keys of the operations applied in the current database transaction. They are remembered in memory
+     * once it has been committed.
+     *
+     * @throws DuplicateKeyException if one of the keys has already been recorded
+     */
+    void record(Collection<WalletOperation> operations) {
+        List<IdempotencyKey> keys = operations
+            .stream()
+            .filter(operation -> operation.idempotencyKey() != null)
+            .map(IdempotencyKeyService::toIdempotencyKey)
+            .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        this.repository.insertAll(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        keys.forEach(IdempotencyKeyService.this::remember);
+                    }
+                }
+            );
+        } else {
+            keys.forEach(this::remember);
+        }
+    }
+
+    /**
+     * Runs the action applying the operation in its own database transaction. If the transaction has been rolled back
+     * because the key of the operation had already been recorded, returns as if the operation had been applied.
+     *
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    void execute(WalletOperation operation, Runnable action) {
+        try {
+            action.run();
+        } catch (DuplicateKeyException e) {
+            replayConflict(operation, e);
+        }
+    }
+
+    /**
+     * Same as {@link #execute(WalletOperation, Runnable)} for an action returning the result of the operation.
+     *
+     * @return the result of the action, {@link OperationResult#OK} if the operation has been replayed
+     */
+    OperationResult apply(WalletOperation operation, Supplier<OperationResult> action) {
+        try {
+            return action.get();
+        } catch (DuplicateKeyException e) {
+            replayConflict(operation, e);
+            return OperationResult.OK;
+        }
+    }
+
+    /**
+     * Handles the failure of the database transaction that applied the operation: returns if the key of the
+     * operation had already been recorded for the same operation.
+     *
+     * @param e the failure
+     * @throws DuplicateKeyException    e if it was not caused by the key of the operation
+     * @throws IllegalArgumentException if the key has already been used for another operation
+     */
+    void replayConflict(WalletOperation operation, DuplicateKeyException e) {
+        if (operation.idempotencyKey() == null) {
+            throw e;
+        }
+        IdempotencyKey recorded = this.repository.findById(operation.customerId(), operation.idempotencyKey()).orElseThrow(() -> e);
+        replay(toIdempotencyKey(operation), recorded, this.constraintReplays);
+    }
+
+    private void replay(IdempotencyKey requested, IdempotencyKey recorded, Counter replays) {
+        checkSameOperation(requested, recorded);
+        remember(recorded);
+        replays.increment();
+    }
+
+    private static void checkSameOperation(IdempotencyKey requested, IdempotencyKey recorded) {
+        if (!requested.isSameOperation(recorded)) {
+            throw new IllegalArgumentException(
+                "The idempotency key " + requested.idempotencyKey() + " has already been used for another operation"
+            );
+        }
+    }
+
+    private void remember(IdempotencyKey recorded) {
+        Key key = new Key(recorded.customerId(), recorded.idempotencyKey());
+        this.recentKeys.put(key, recorded);
+        if (this.recordedKeys != null) {
+            BloomFilter<Key> filter = this.recordedKeys.get();
+            filter.put(key);
+            if (filter.approximateElementCount() > this.bloomFilterExpectedKeys) {
+                // Its false positive probability would keep growing. The keys it forgets are caught by the constraint.
+                this.recordedKeys.compareAndSet(filter, newBloomFilter());
+            }
+        }
+    }
+
+    private static IdempotencyKey toIdempotencyKey(WalletOperation operation) {
+        return new IdempotencyKey(
+            operation.customerId(),
+            operation.idempotencyKey(),
+            operation.type(),
+            operation.currency(),
+            operation.amount()
+        );
+    }
+}
@@ -0,0 +1,85 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.service.lock.LockTable;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Compacts the ledger of the accounts in the background when the write mode is
+ * {@link ApplicationProperties.Wallet.WriteMode#LEDGER}: the transactions inserted since the last snapshot of an
+ * account are folded into its amount so that reading a balance only sums the recent ones.
+ * <p>
+ * Each account is compacted in its own database transaction while holding its lock, one at a time, so that the
+ * operations on the other accounts are not delayed.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.wallet", name = "write-mode", havingValue = "ledger")
+public class LedgerCompactionService {
+
+    private final Logger log = LoggerFactory.getLogger(LedgerCompactionService.class);
+
+    private final DigitalWalletServiceInternal underlying;
+
+    private final WalletAccountRepository accountRepository;
+
+    private final LockTable sync;
+
+    private final int batchSize;
+
+    public LedgerCompactionService(
+        DigitalWalletServiceInternal underlying,
+        WalletAccountRepository accountRepository,
+        LockTable sync,
+        ApplicationProperties applicationProperties
+    ) {
+        this.underlying = underlying;
+        this.accountRepository = accountRepository;
+        this.sync = sync;
+        this.batchSize = applicationProperties.getWallet().getLedger().getCompactionBatchSize();
+    }
+
+    @Scheduled(
+        initialDelayString = "${application.wallet.ledger.compaction-interval:PT10S}",
+        fixedDelayString = "${application.wallet.ledger.compaction-interval:PT10S}"
+    )
+    public void scheduledCompaction() {
+        int compacted = compact();
+        log.debug("Compacted the ledger of {} accounts", compacted);
+    }
+
+    /**
+     * Compacts the ledger of every account with transactions after its snapshot.
+     *
+     * @return the number of compacted accounts
+     */
+    public int compact() {
+        int compacted = 0;
+        long lastId = 0;
+        List<WalletAccount> accounts;
+        do {
+            // Keyset pagination so that a busy account is compacted once per run
+            accounts = this.accountRepository.findAllWithLedgerEntries(lastId, Limit.of(this.batchSize));
+            for (WalletAccount account : accounts) {
+                try (LockTable.Handle ignored = this.sync.lock(AccountKey.of(account))) {
+                    this.underlying.compactLedger(account.getId());
+                } catch (ConcurrencyFailureException e) {
+                    // Written by a bulk import meanwhile, see WalletBulkLoadRepository#loadTransactions
+                    log.debug("The ledger of the account {} is compacted by the next run: {}", account.getId(), e.getMessage());
+                }
+                lastId = account.getId();
+            }
+            compacted += accounts.size();
+        } while (accounts.size() == this.batchSize);
+        return compacted;
+    }
+}
@@ -0,0 +1,282 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+/**
+ * An implementation of {@link DigitalWalletService} that takes no lock at all, neither in the application nor in the
+ * database (unless {@link ApplicationProperties.Lock#getDatabase()} says so). Concurrent updates of an account are
+ * detected by its version: the transaction committed last fails with an {@link OptimisticLockingFailureException} and
+ * is rolled back. The operation is then attempted again, up to {@link ApplicationProperties.Optimistic#getMaxAttempts()}
+ * times, after a random wait below an exponentially growing bound (see
+ * {@link ApplicationProperties.Optimistic#getInitialBackoff()}).
+ * <p>
+ * Operations on different accounts never wait for each other, in this instance or in another one sharing the
+ * database: this mode suits workloads where the same account is rarely updated concurrently. With the
+ * {@link ApplicationProperties.Wallet.WriteMode#SQL} write mode the balance is updated by a single statement, that does
+ * not conflict.
+ * <p>
+ * Transfers and batch chunks are retried as a whole. Three metrics, tagged with the operation, tell how often the
+ * accounts conflict:
+ * <ul>
+ *     <li>{@code wallet.optimistic.conflicts}: the attempts that failed on a version</li>
+ *     <li>{@code wallet.optimistic.retries}: the number of retries of each operation, 0 for most of them. Its count is
+ *     the number of operations, the conflict rate is the conflicts over its count plus its total</li>
+ *     <li>{@code wallet.optimistic.exhausted}: the operations that failed after their last attempt</li>
+ * </ul>
+ */
+@Service
+@Qualifier("OptimisticDigitalWalletService")
+@ConditionalOnProperty(prefix = "application.wallet", name = "mode", havingValue = "optimistic")
+public class OptimisticDigitalWalletService implements DigitalWalletService {
+
+    private final DigitalWalletServiceInternal underlying;
+
+    private final IdempotencyKeyService idempotencyKeys;
+
+    private final WalletOperationMetrics metrics;
+
+    private final int batchChunkSize;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final Retries depositRetries;
+
+    private final Retries withdrawalRetries;
+
+    private final Retries transferRetries;
+
+    private final Retries batchRetries;
+
+    public OptimisticDigitalWalletService(
+        DigitalWalletServiceInternal underlying,
+        IdempotencyKeyService idempotencyKeys,
+        WalletOperationMetrics metrics,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.underlying = underlying;
+        this.idempotencyKeys = idempotencyKeys;
+        this.metrics = metrics;
+        this.batchChunkSize = applicationProperties.getWallet().getBatch().getChunkSize();
+        ApplicationProperties.Optimistic config = applicationProperties.getWallet().getOptimistic();
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.initialBackoffNanos = config.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = config.getMaxBackoff().toNanos();
+        this.depositRetries = new Retries("deposit", meterRegistry);
+        this.withdrawalRetries = new Retries("withdrawal", meterRegistry);
+        this.transferRetries = new Retries("transfer", meterRegistry);
+        this.batchRetries = new Retries("batch", meterRegistry);
+    }
+
+    /**
+     * The meters of an operation.
+     */
+    private static final class Retries {
+
+        private final Counter conflicts;
+
+        private final DistributionSummary retries;
+
+        private final Counter exhausted;
+
+        private Retries(String operation, MeterRegistry meterRegistry) {
+            this.conflicts =
+                Counter
+                    .builder("wallet.optimistic.conflicts")
+                    .description("Attempts that failed on the version of an account")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.retries =
+                DistributionSummary
+                    .builder("wallet.optimistic.retries")
+                    .description("Number of retries of an operation")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.exhausted =
+                Counter
+                    .builder("wallet.optimistic.exhausted")
+                    .description("Operations that still conflicted after their last attempt")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return execute(
+            WalletOperationMetrics.Operation.DEPOSIT,
+            this.depositRetries,
+            WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyDeposit(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    @Override
+    public OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return execute(
+            WalletOperationMetrics.Operation.WITHDRAWAL,
+            this.withdrawalRetries,
+            WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyWithdrawal(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    /**
+     * The transaction time recorded by {@link WalletOperationMetrics} includes every attempt and the waits between
+     * them. No lock time is recorded.
+     */
+    private OperationResult execute(
+        WalletOperationMetrics.Operation type,
+        Retries retries,
+        WalletOperation operation,
+        Supplier<OperationResult> action
+    ) {
+        WalletOperationMetrics.Sample sample = this.metrics.start(type);
+        Throwable failure = null;
+        try {
+            sample.transaction(() -> sample.setResult(retry(retries, () -> this.idempotencyKeys.apply(operation, action))));
+            return sample.getResult();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            sample.stop(failure);
+        }
+    }
+
+    @Override
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        WalletOperation withdrawal = WalletOperation.withdrawal(fromCustomerId, currency, amount, remark, idempotencyKey);
+        WalletOperationMetrics.Sample sample = this.metrics.start(WalletOperationMetrics.Operation.TRANSFER);
+        Throwable failure = null;
+        try {
+            sample.transaction(() ->
+                retry(
+                    this.transferRetries,
+                    () -> {
+                        this.idempotencyKeys.execute(
+                                withdrawal,
+                                () -> this.underlying.transfer(fromCustomerId, toCustomerId, currency, amount, remark, idempotencyKey)
+                            );
+                        return null;
+                    }
+                )
+            );
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            sample.stop(failure);
+        }
+    }
+
+    @Override
+    public List<WalletOperationResult> executeBatch(List<WalletOperation> operations) {
+        WalletOperationResult[] results = new WalletOperationResult[operations.size()];
+        List<Integer> indices = IntStream.range(0, operations.size()).boxed().toList();
+        for (List<Integer> chunk : WalletOperationChunks.split(operations, indices, this.batchChunkSize)) {
+            List<WalletOperationResult> chunkResults = WalletOperationChunks.execute(
+                WalletOperationChunks.operations(operations, chunk),
+                chunkOperations -> retry(this.batchRetries, () -> this.underlying.executeBatch(chunkOperations)),
+                this.idempotencyKeys
+            );
+            WalletOperationChunks.collect(results, chunk, chunkResults);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Runs the action, that executes an operation in its own database transaction, until it does not fail on the
+     * version of an account or its last attempt has failed.
+     *
+     * @throws OptimisticLockingFailureException the conflict of the last attempt
+     */
+    private <T> T retry(Retries retries, Supplier<T> action) {
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = action.get();
+                retries.retries.record(attempt - 1);
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                retries.conflicts.increment();
+                if (attempt == this.maxAttempts) {
+                    retries.retries.record(attempt - 1);
+                    retries.exhausted.increment();
+                    throw e;
+                }
+                backOff(attempt);
+                if (Thread.currentThread().isInterrupted()) {
+                    retries.retries.record(attempt - 1);
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Waits a random time below the initial backoff doubled for every previous retry, capped by the maximum backoff
+     * ("full jitter").
+     */
+    private void backOff(int attempt) {
+        long bound = Math.min(this.maxBackoffNanos, this.initialBackoffNanos << Math.min(attempt - 1, 20));
+        if (bound > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound));
+        }
+    }
+
+    @Override
+    public Optional<BigDecimal> getBalance(Long customerId, String currency) {
+        return this.underlying.getBalance(customerId, currency);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, pageable);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, from, to, pageable);
+    }
+
+    @Override
+    public Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactionSlice(customerId, pageable);
+    }
+
+    @Override
+    public TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size) {
+        return this.underlying.getTransactionHistory(customerId, after, size);
+    }
+}
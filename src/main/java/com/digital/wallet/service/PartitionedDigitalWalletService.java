@@ -0,0 +1,384 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+/**
+ * An implementation of {@link DigitalWalletService} that routes the operations of each account (see {@link AccountKey})
+ * to one of N single-threaded partitions instead of blocking the calling thread on a lock. <br>
+ * Each partition applies the deposits and withdrawals of its accounts one at a time in FIFO order so operations on the
+ * same account are never executed concurrently and are applied in the order they were submitted.
+ * <p>
+ * {@link #executeDepositAsync} and {@link #executeWithdrawalAsync} return a future completed when the operation has
+ * been applied, {@link #applyDepositAsync} and {@link #applyWithdrawalAsync} a future completed with its result. The
+ * blocking methods of {@link DigitalWalletService} wait for it.
+ * <p>
+ * Batches are split by partition, then into chunks of whole account groups executed by the partition in their own
+ * database transaction. A transfer between accounts of two partitions stops both while it is applied, see
+ * {@link #transferAsync}.
+ */
+@Service
+@Qualifier("PartitionedDigitalWalletService")
+@ConditionalOnProperty(prefix = "application.wallet", name = "mode", havingValue = "partitioned")
+public class PartitionedDigitalWalletService implements DigitalWalletService {
+
+    private final Logger log = LoggerFactory.getLogger(PartitionedDigitalWalletService.class);
+
+    private final ExecutorService[] partitions;
+
+    /**
+     * Held while a transfer between two partitions is queued on both, see {@link #transferAsync}.
+     */
+    private final Lock transferSubmission = new ReentrantLock();
+
+    private final DigitalWalletServiceInternal underlying;
+
+    private final IdempotencyKeyService idempotencyKeys;
+
+    private final int batchChunkSize;
+
+    public PartitionedDigitalWalletService(
+        DigitalWalletServiceInternal underlying,
+        IdempotencyKeyService idempotencyKeys,
+        ApplicationProperties applicationProperties
+    ) {
+        this.underlying = underlying;
+        this.idempotencyKeys = idempotencyKeys;
+        this.batchChunkSize = applicationProperties.getWallet().getBatch().getChunkSize();
+        ApplicationProperties.Partitioned config = applicationProperties.getWallet().getPartitioned();
+        log.debug("Creating {} partitions with a capacity of {} operations", config.getPartitions(), config.getQueueCapacity());
+        this.partitions = new ExecutorService[config.getPartitions()];
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] =
+                new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(config.getQueueCapacity()),
+                    new CustomizableThreadFactory("wallet-partition-" + i + "-")
+                );
+        }
+    }
+
+    @Override
+    public OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return await(applyDepositAsync(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    @Override
+    public OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return await(applyWithdrawalAsync(customerId, currency, amount, remark, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous version of {@link #executeDeposit(Long, String, BigDecimal, String)}.
+     *
+     * @return a future completed when the deposit has been applied, or completed exceptionally if the deposit is
+     * invalid or if the partition of the customer is full ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<Void> executeDepositAsync(Long customerId, String currency, BigDecimal amount, String remark) {
+        return executeDepositAsync(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #executeDeposit(Long, String, BigDecimal, String, String)}.
+     */
+    public CompletableFuture<Void> executeDepositAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return submit(
+            WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.executeDeposit(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    /**
+     * Asynchronous version of {@link #applyDeposit}.
+     *
+     * @return a future completed with the result of the deposit, or completed exceptionally if the partition of the
+     * customer is full ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<OperationResult> applyDepositAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return apply(
+            WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyDeposit(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    /**
+     * Asynchronous version of {@link #executeWithdrawal(Long, String, BigDecimal, String)}.
+     *
+     * @return a future completed when the withdrawal has been applied, or completed exceptionally if the withdrawal is
+     * invalid or if the partition of the customer is full ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<Void> executeWithdrawalAsync(Long customerId, String currency, BigDecimal amount, String remark) {
+        return executeWithdrawalAsync(customerId, currency, amount, remark, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #executeWithdrawal(Long, String, BigDecimal, String, String)}.
+     */
+    public CompletableFuture<Void> executeWithdrawalAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return submit(
+            WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.executeWithdrawal(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    /**
+     * Asynchronous version of {@link #applyWithdrawal}.
+     *
+     * @return a future completed with the result of the withdrawal, or completed exceptionally if the partition of the
+     * customer is full ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<OperationResult> applyWithdrawalAsync(
+        Long customerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        return apply(
+            WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyWithdrawal(customerId, currency, amount, remark, idempotencyKey)
+        );
+    }
+
+    @Override
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        await(transferAsync(fromCustomerId, toCustomerId, currency, amount, remark, idempotencyKey));
+    }
+
+    /**
+     * Asynchronous version of {@link #transfer(Long, Long, String, BigDecimal, String, String)}. If both accounts
+     * belong to the same partition, the transfer is applied by it as any other operation. Otherwise it is queued on both
+     * partitions: the partition of the second account stops when it reaches it, and the partition of the first one
+     * applies it once the other one has stopped, so that neither applies another operation of the accounts meanwhile.
+     * Both are queued under {@link #transferSubmission} so that transfers are queued in the same order on every
+     * partition: two transfers cannot wait for each other.
+     *
+     * @return a future completed when the transfer has been applied, or completed exceptionally if the transfer is
+     * invalid or if one of the partitions is full ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<Void> transferAsync(
+        Long fromCustomerId,
+        Long toCustomerId,
+        String currency,
+        BigDecimal amount,
+        String remark,
+        String idempotencyKey
+    ) {
+        WalletOperation withdrawal = WalletOperation.withdrawal(fromCustomerId, currency, amount, remark, idempotencyKey);
+        Runnable transfer = () ->
+            this.idempotencyKeys.execute(
+                    withdrawal,
+                    () -> this.underlying.transfer(fromCustomerId, toCustomerId, currency, amount, remark, idempotencyKey)
+                );
+        int from = partitionIndexFor(new AccountKey(fromCustomerId, currency));
+        int to = partitionIndexFor(new AccountKey(toCustomerId, currency));
+        if (from == to) {
+            return submit(from, transfer);
+        }
+        CompletableFuture<Void> stopped = new CompletableFuture<>();
+        this.transferSubmission.lock();
+        try {
+            CompletableFuture<Void> applied = submit(
+                from,
+                () -> {
+                    stopped.join();
+                    transfer.run();
+                }
+            );
+            if (!applied.isCompletedExceptionally()) {
+                submit(
+                    to,
+                    () -> {
+                        stopped.complete(null);
+                        applied.exceptionally(e -> null).join();
+                    }
+                )
+                    .exceptionally(e -> {
+                        stopped.completeExceptionally(e);
+                        return null;
+                    });
+            }
+            return applied;
+        } finally {
+            this.transferSubmission.unlock();
+        }
+    }
+
+    @Override
+    public List<WalletOperationResult> executeBatch(List<WalletOperation> operations) {
+        return await(executeBatchAsync(operations));
+    }
+
+    /**
+     * Asynchronous version of {@link #executeBatch(List)}.
+     *
+     * @return a future completed when all the operations have been processed. The operations of a chunk rejected
+     * because its partition is full are reported as failed.
+     */
+    public CompletableFuture<List<WalletOperationResult>> executeBatchAsync(List<WalletOperation> operations) {
+        List<List<Integer>> indicesByPartition = new ArrayList<>(this.partitions.length);
+        for (int i = 0; i < this.partitions.length; i++) {
+            indicesByPartition.add(new ArrayList<>());
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            indicesByPartition.get(partitionIndexFor(operations.get(i).accountKey())).add(i);
+        }
+
+        WalletOperationResult[] results = new WalletOperationResult[operations.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int p = 0; p < this.partitions.length; p++) {
+            for (List<Integer> chunk : WalletOperationChunks.split(operations, indicesByPartition.get(p), this.batchChunkSize)) {
+                List<WalletOperation> chunkOperations = WalletOperationChunks.operations(operations, chunk);
+                futures.add(
+                    submit(this.partitions[p], () -> WalletOperationChunks.execute(chunkOperations, this.underlying, this.idempotencyKeys))
+                        .exceptionally(e ->
+                            chunkOperations.stream().map(operation -> WalletOperationResult.failure(operation, e.getMessage())).toList()
+                        )
+                        .thenAccept(chunkResults -> WalletOperationChunks.collect(results, chunk, chunkResults))
+                );
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> Arrays.asList(results));
+    }
+
+    @Override
+    public Optional<BigDecimal> getBalance(Long customerId, String currency) {
+        return this.underlying.getBalance(customerId, currency);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, pageable);
+    }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, from, to, pageable);
+    }
+
+    @Override
+    public Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactionSlice(customerId, pageable);
+    }
+
+    @Override
+    public TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size) {
+        return this.underlying.getTransactionHistory(customerId, after, size);
+    }
+
+    private CompletableFuture<Void> submit(WalletOperation operation, Runnable action) {
+        return submit(partitionIndexFor(operation.accountKey()), () -> this.idempotencyKeys.execute(operation, action));
+    }
+
+    private CompletableFuture<OperationResult> apply(WalletOperation operation, Supplier<OperationResult> action) {
+        return submit(this.partitions[partitionIndexFor(operation.accountKey())], () -> this.idempotencyKeys.apply(operation, action));
+    }
+
+    private CompletableFuture<Void> submit(int partition, Runnable action) {
+        try {
+            // The security context is propagated for auditing
+            return CompletableFuture.runAsync(DelegatingSecurityContextRunnable.create(action, null), this.partitions[partition]);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(ExecutorService partition, Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, new DelegatingSecurityContextExecutor(partition));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private int partitionIndexFor(AccountKey accountKey) {
+        int h = accountKey.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), this.partitions.length);
+    }
+
+    /**
+     * Waits for the given future and rethrows the exception of the operation, if any, as is.
+     */
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting operations and waits for the pending ones to be applied.
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        for (ExecutorService partition : this.partitions) {
+            partition.shutdown();
+        }
+        for (ExecutorService partition : this.partitions) {
+            if (!partition.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Some operations have not been applied before shutdown");
+            }
+        }
+    }
+}
@@ -1,53 +1,166 @@
 package com.digital.wallet.service;
 
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.AccountKey;
 import com.digital.wallet.domain.WalletTransaction;
-import com.google.common.util.concurrent.Striped;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionCursor;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import com.digital.wallet.service.lock.LockTable;
 import java.math.BigDecimal;
-import java.util.concurrent.locks.Lock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 /**
  * This class is a safe implementation of the DigitalWalletService interface. <br>
- * It ensures thread safety by using striped locks for executing deposit and withdrawal operations and prevent from
- * executing concurrent requests simultaneously for the same customer.
+ * It ensures thread safety by using a {@link LockTable} (striped locks by default, see
+ * {@link com.digital.wallet.config.ApplicationProperties.Lock}) for executing deposit and withdrawal operations and
+ * prevent from executing concurrent requests simultaneously for the same account. Locks are keyed by
+ * {@link AccountKey}: the accounts of a customer in different currencies do not contend.
+ * <p>
+ * Batches are split into chunks of whole account groups (see {@link ApplicationProperties.Batch#getChunkSize()}),
+ * each chunk being executed in its own database transaction while holding the locks of all its accounts.
+ * <p>
+ * The time deposits, withdrawals and transfers spend waiting for and holding the locks, and in their database
+ * transaction, is recorded by {@link WalletOperationMetrics}.
  */
 @Service
 @Qualifier("SafeDigitalWalletService")
 public class SafeDigitalWalletService implements DigitalWalletService {
 
-    private final Striped<Lock> sync = Striped.lazyWeakLock(32); // This value is subject to be modified it any contention is observed.
+    private final LockTable sync;
 
     private final DigitalWalletServiceInternal underlying;
 
-    public SafeDigitalWalletService(DigitalWalletServiceInternal underlying) {
+    private final IdempotencyKeyService idempotencyKeys;
+
+    private final WalletOperationMetrics metrics;
+
+    private final int batchChunkSize;
+
+    public SafeDigitalWalletService(
+        DigitalWalletServiceInternal underlying,
+        LockTable sync,
+        IdempotencyKeyService idempotencyKeys,
+        WalletOperationMetrics metrics,
+        ApplicationProperties applicationProperties
+    ) {
         this.underlying = underlying;
+        this.sync = sync;
+        this.idempotencyKeys = idempotencyKeys;
+        this.metrics = metrics;
+        this.batchChunkSize = applicationProperties.getWallet().getBatch().getChunkSize();
+    }
+
+    @Override
+    public OperationResult applyDeposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return safelyExecute(
+            WalletOperationMetrics.Operation.DEPOSIT,
+            WalletOperation.deposit(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyDeposit(customerId, currency, amount, remark, idempotencyKey)
+        );
     }
 
     @Override
-    public void executeDeposit(Long customerId, String currency, BigDecimal amount, String remark) {
-        safelyExecute(customerId, () -> this.underlying.executeDeposit(customerId, currency, amount, remark));
+    public OperationResult applyWithdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return safelyExecute(
+            WalletOperationMetrics.Operation.WITHDRAWAL,
+            WalletOperation.withdrawal(customerId, currency, amount, remark, idempotencyKey),
+            () -> this.underlying.applyWithdrawal(customerId, currency, amount, remark, idempotencyKey)
+        );
     }
 
+    /**
+     * Takes the locks of both accounts. They are acquired in a deterministic order, see {@link LockTable#lockAll}, so
+     * two transfers in opposite directions between the same accounts cannot deadlock.
+     */
     @Override
-    public void executeWithdrawal(Long customerId, String currency, BigDecimal amount, String remark) {
-        safelyExecute(customerId, () -> this.underlying.executeWithdrawal(customerId, currency, amount, remark));
+    public void transfer(Long fromCustomerId, Long toCustomerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        List<AccountKey> accounts = List.of(new AccountKey(fromCustomerId, currency), new AccountKey(toCustomerId, currency));
+        WalletOperation withdrawal = WalletOperation.withdrawal(fromCustomerId, currency, amount, remark, idempotencyKey);
+        WalletOperationMetrics.Sample sample = this.metrics.start(WalletOperationMetrics.Operation.TRANSFER);
+        Throwable failure = null;
+        try (LockTable.Handle ignored = sample.lockAll(this.sync, accounts)) {
+            sample.transaction(() ->
+                this.idempotencyKeys.execute(
+                        withdrawal,
+                        () -> this.underlying.transfer(fromCustomerId, toCustomerId, currency, amount, remark, idempotencyKey)
+                    )
+            );
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            sample.stop(failure);
+        }
     }
 
-    private void safelyExecute(Long customerId, Runnable runnable) {
-        Lock lock = this.sync.get(customerId);
-        lock.lock();
-        try {
-            runnable.run();
+    private OperationResult safelyExecute(
+        WalletOperationMetrics.Operation type,
+        WalletOperation operation,
+        Supplier<OperationResult> action
+    ) {
+        WalletOperationMetrics.Sample sample = this.metrics.start(type);
+        Throwable failure = null;
+        try (LockTable.Handle ignored = sample.lock(this.sync, operation.accountKey())) {
+            sample.transaction(() -> sample.setResult(this.idempotencyKeys.apply(operation, action)));
+            return sample.getResult();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
         } finally {
-            lock.unlock();
+            sample.stop(failure);
+        }
+    }
+
+    @Override
+    public List<WalletOperationResult> executeBatch(List<WalletOperation> operations) {
+        WalletOperationResult[] results = new WalletOperationResult[operations.size()];
+        List<Integer> indices = IntStream.range(0, operations.size()).boxed().toList();
+        for (List<Integer> chunk : WalletOperationChunks.split(operations, indices, this.batchChunkSize)) {
+            List<WalletOperation> chunkOperations = WalletOperationChunks.operations(operations, chunk);
+            List<WalletOperationResult> chunkResults;
+            try (LockTable.Handle ignored = this.sync.lockAll(WalletOperationChunks.accounts(operations, chunk))) {
+                chunkResults = WalletOperationChunks.execute(chunkOperations, this.underlying, this.idempotencyKeys);
+            }
+            WalletOperationChunks.collect(results, chunk, chunkResults);
         }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Optional<BigDecimal> getBalance(Long customerId, String currency) {
+        return this.underlying.getBalance(customerId, currency);
     }
 
     @Override
     public Page<WalletTransaction> getTransactions(Long customerId, Pageable pageable) {
         return this.underlying.getTransactions(customerId, pageable);
     }
+
+    @Override
+    public Page<WalletTransaction> getTransactions(Long customerId, Instant from, Instant to, Pageable pageable) {
+        return this.underlying.getTransactions(customerId, from, to, pageable);
+    }
+
+    @Override
+    public Slice<WalletTransaction> getTransactionSlice(Long customerId, Pageable pageable) {
+        return this.underlying.getTransactionSlice(customerId, pageable);
+    }
+
+    @Override
+    public TransactionHistory getTransactionHistory(Long customerId, TransactionCursor after, int size) {
+        return this.underlying.getTransactionHistory(customerId, after, size);
+    }
 }
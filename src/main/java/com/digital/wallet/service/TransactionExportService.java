@@ -0,0 +1,147 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Service;
+
+/**
+ * Exports the transactions of a customer (statements, audits...) in constant memory: transactions are read as a stream
+ * (see {@link com.digital.wallet.repository.WalletTransactionStreamRepository}) and written to the output as soon as
+ * they are read. The database connection is released as soon as the last transaction has been written.
+ */
+@Service
+public class TransactionExportService {
+
+    public enum Format {
+        /**
+         * One JSON object per line.
+         */
+        NDJSON,
+        /**
+         * Comma separated values with a header line, see RFC 4180.
+         */
+        CSV,
+    }
+
+    static final String[] COLUMNS = { "id", "customerId", "createdDate", "transactionType", "amount", "currencyCode", "remarks" };
+
+    private final WalletTransactionRepository transactionRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final int fetchSize;
+
+    public TransactionExportService(
+        WalletTransactionRepository transactionRepository,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = applicationProperties.getWallet().getExport().getFetchSize();
+    }
+
+    /**
+     * Streams the transactions of a customer, oldest first. The stream holds a database connection, it must be closed.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from       the inclusive lower bound of the creation date, null for no lower bound
+     * @param to         the exclusive upper bound of the creation date, null for no upper bound
+     * @return the transactions
+     */
+    public Stream<WalletTransaction> streamTransactions(Long customerId, Instant from, Instant to) {
+        return this.transactionRepository.streamAllByCustomerId(customerId, from, to, this.fetchSize);
+    }
+
+    /**
+     * Writes the transactions of a customer, oldest first, to the given output. The output is flushed but not closed.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from       the inclusive lower bound of the creation date, null for no lower bound
+     * @param to         the exclusive upper bound of the creation date, null for no upper bound
+     * @param format     the output format
+     * @param out        the output
+     * @return the number of transactions written
+     */
+    public long exportTransactions(Long customerId, Instant from, Instant to, Format format, OutputStream out) throws IOException {
+        try (Stream<WalletTransaction> transactions = streamTransactions(customerId, from, to)) {
+            return switch (format) {
+                case NDJSON -> writeNdjson(transactions.iterator(), out);
+                case CSV -> writeCsv(transactions.iterator(), out);
+            };
+        }
+    }
+
+    private long writeNdjson(Iterator<WalletTransaction> transactions, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (transactions.hasNext()) {
+                WalletTransaction trx = transactions.next();
+                generator.writeStartObject();
+                generator.writeNumberField(COLUMNS[0], trx.getId());
+                generator.writeNumberField(COLUMNS[1], trx.getCustomerId());
+                generator.writeStringField(COLUMNS[2], String.valueOf(trx.getCreatedDate()));
+                generator.writeStringField(COLUMNS[3], trx.getTransactionType().name());
+                generator.writeNumberField(COLUMNS[4], trx.getAmount());
+                generator.writeStringField(COLUMNS[5], trx.getCurrencyCode());
+                generator.writeStringField(COLUMNS[6], trx.getRemarks());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long writeCsv(Iterator<WalletTransaction> transactions, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+        while (transactions.hasNext()) {
+            WalletTransaction trx = transactions.next();
+            writer.write(String.valueOf(trx.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(trx.getCustomerId()));
+            writer.write(',');
+            writer.write(String.valueOf(trx.getCreatedDate()));
+            writer.write(',');
+            writer.write(trx.getTransactionType().name());
+            writer.write(',');
+            writer.write(trx.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(escapeCsv(trx.getCurrencyCode()));
+            writer.write(',');
+            writer.write(escapeCsv(trx.getRemarks()));
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Quotes the value if it contains a separator, a quote or a line break.
+     */
+    static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        } else if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
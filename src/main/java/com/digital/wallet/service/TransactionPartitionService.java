@@ -0,0 +1,133 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.repository.TransactionPartition;
+import com.digital.wallet.repository.WalletTransactionPartitionRepository;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maintains the monthly partitions of the {@code wallet_transaction} table on Postgresql, at startup and every day:
+ * <ul>
+ *     <li>creates the partitions of the next {@link ApplicationProperties.TransactionPartitions#getMonthsAhead()}
+ *     months, after the last existing one, so that inserts never miss a partition</li>
+ *     <li>detaches or drops the partitions older than
+ *     {@link ApplicationProperties.TransactionPartitions#getRetentionMonths()} months, which is a catalog operation
+ *     instead of deleting and vacuuming the rows. With the ledger write mode, a partition is kept as long as it
+ *     contains transactions not included in the snapshot of their account.</li>
+ * </ul>
+ * Nothing is done if the table is not partitioned (H2).
+ */
+@Service
+public class TransactionPartitionService {
+
+    static final String PARTITION_PREFIX = "wallet_transaction_p";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final Logger log = LoggerFactory.getLogger(TransactionPartitionService.class);
+
+    private final WalletTransactionPartitionRepository partitionRepository;
+
+    private final ApplicationProperties.TransactionPartitions config;
+
+    private final boolean ledgerWriteMode;
+
+    public TransactionPartitionService(
+        WalletTransactionPartitionRepository partitionRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        this.partitionRepository = partitionRepository;
+        this.config = applicationProperties.getWallet().getTransactionPartitions();
+        this.ledgerWriteMode = applicationProperties.getWallet().getWriteMode() == ApplicationProperties.Wallet.WriteMode.LEDGER;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 1 * * *")
+    public void maintain() {
+        maintain(LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * @param now the current date, in UTC
+     */
+    void maintain(LocalDateTime now) {
+        if (!this.partitionRepository.isPartitioned()) {
+            log.debug("The transaction table is not partitioned");
+            return;
+        }
+        List<TransactionPartition> partitions = this.partitionRepository.findPartitions();
+        YearMonth month = YearMonth.from(now);
+        YearMonth until = month.plusMonths(this.config.getMonthsAhead());
+        for (TransactionPartition partition : partitionsToCreate(partitions, month, until)) {
+            try {
+                this.partitionRepository.createPartition(partition);
+                log.info("Created transaction partition {} from {} to {}", partition.name(), partition.from(), partition.to());
+            } catch (DataAccessException e) {
+                // Most likely created concurrently by another instance
+                log.warn("Could not create transaction partition {}: {}", partition.name(), e.getMessage());
+                return;
+            }
+        }
+        if (this.config.getRetentionMonths() > 0) {
+            LocalDateTime cutoff = month.minusMonths(this.config.getRetentionMonths()).atDay(1).atStartOfDay();
+            expiredPartitions(partitions, cutoff).forEach(this::remove);
+        }
+    }
+
+    private void remove(TransactionPartition partition) {
+        if (this.ledgerWriteMode && this.partitionRepository.hasUncompactedTransactions(partition.name())) {
+            log.warn("Transaction partition {} is expired but contains transactions not compacted yet", partition.name());
+            return;
+        }
+        switch (this.config.getRetentionAction()) {
+            case DETACH -> this.partitionRepository.detachPartition(partition.name());
+            case DROP -> this.partitionRepository.dropPartition(partition.name());
+        }
+        log.info("Transaction partition {} until {} expired: {}", partition.name(), partition.to(), this.config.getRetentionAction());
+    }
+
+    /**
+     * @param existing the existing partitions
+     * @param from     the first month that must have a partition
+     * @param until    the last month that must have a partition
+     * @return the monthly partitions to create after the last existing one, the first one can start in the middle of a
+     * month if the last existing one does not end at the end of a month
+     */
+    static List<TransactionPartition> partitionsToCreate(List<TransactionPartition> existing, YearMonth from, YearMonth until) {
+        LocalDateTime start = from.atDay(1).atStartOfDay();
+        for (TransactionPartition partition : existing) {
+            if (partition.to() == null) {
+                // Unbounded, nothing can be added after it
+                return List.of();
+            } else if (partition.to().isAfter(start)) {
+                start = partition.to();
+            }
+        }
+        List<TransactionPartition> partitions = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(start); !month.isAfter(until); month = month.plusMonths(1)) {
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+            partitions.add(new TransactionPartition(PARTITION_PREFIX + PARTITION_SUFFIX.format(month), start, end));
+            start = end;
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the partitions whose transactions have all been created before the cutoff
+     */
+    static List<TransactionPartition> expiredPartitions(List<TransactionPartition> existing, LocalDateTime cutoff) {
+        return existing.stream().filter(p -> p.to() != null && !p.to().isAfter(cutoff)).toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * Splits a batch of {@link WalletOperation}s into chunks executed in their own database transaction. Operations are
+ * grouped by account, in the order they were given, and a group is never split across chunks so that the lock of an
+ * account is taken once.
+ */
+final class WalletOperationChunks {
+
+    private WalletOperationChunks() {}
+
+    /**
+     * @param operations the operations of the batch
+     * @param indices    the indices of the operations to split
+     * @param chunkSize  the number of operations above which a chunk is closed
+     * @return the chunks, as indices of operations
+     */
+    static List<List<Integer>> split(List<WalletOperation> operations, List<Integer> indices, int chunkSize) {
+        Map<AccountKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (Integer index : indices) {
+            groups.computeIfAbsent(operations.get(index).accountKey(), k -> new ArrayList<>()).add(index);
+        }
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            chunk.addAll(group);
+            if (chunk.size() >= chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static List<WalletOperation> operations(List<WalletOperation> operations, List<Integer> chunk) {
+        return chunk.stream().map(operations::get).toList();
+    }
+
+    static List<AccountKey> accounts(List<WalletOperation> operations, List<Integer> chunk) {
+        LinkedHashSet<AccountKey> accounts = new LinkedHashSet<>();
+        chunk.forEach(index -> accounts.add(operations.get(index).accountKey()));
+        return new ArrayList<>(accounts);
+    }
+
+    /**
+     * Executes the operations of a chunk. If the chunk cannot be executed at all (e.g. the transaction fails to
+     * commit), all its operations are reported as failed.
+     */
+    static List<WalletOperationResult> execute(
+        List<WalletOperation> chunk,
+        DigitalWalletServiceInternal underlying,
+        IdempotencyKeyService idempotencyKeys
+    ) {
+        return execute(chunk, underlying::executeBatch, idempotencyKeys);
+    }
+
+    /**
+     * Same as {@link #execute(List, DigitalWalletServiceInternal, IdempotencyKeyService)} with the function executing
+     * operations in one database transaction, e.g. {@link DigitalWalletServiceInternal#executeBatch} retried on
+     * conflicts.
+     */
+    static List<WalletOperationResult> execute(
+        List<WalletOperation> chunk,
+        Function<List<WalletOperation>, List<WalletOperationResult>> executor,
+        IdempotencyKeyService idempotencyKeys
+    ) {
+        try {
+            return executor.apply(chunk);
+        } catch (DuplicateKeyException e) {
+            // The chunk has been rolled back because of an idempotency key unknown in memory: the operations are
+            // executed one by one to replay the ones already applied
+            return chunk.stream().map(operation -> executeAlone(operation, executor, idempotencyKeys)).toList();
+        } catch (RuntimeException e) {
+            return chunk.stream().map(operation -> WalletOperationResult.failure(operation, e.getMessage())).toList();
+        }
+    }
+
+    private static WalletOperationResult executeAlone(
+        WalletOperation operation,
+        Function<List<WalletOperation>, List<WalletOperationResult>> executor,
+        IdempotencyKeyService idempotencyKeys
+    ) {
+        try {
+            try {
+                return executor.apply(List.of(operation)).get(0);
+            } catch (DuplicateKeyException e) {
+                idempotencyKeys.replayConflict(operation, e);
+                return WalletOperationResult.success(operation);
+            }
+        } catch (RuntimeException e) {
+            return WalletOperationResult.failure(operation, e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the results of a chunk at the position of their operation in the batch.
+     */
+    static void collect(WalletOperationResult[] results, List<Integer> chunk, List<WalletOperationResult> chunkResults) {
+        for (int i = 0; i < chunk.size(); i++) {
+            results[chunk.get(i)] = chunkResults.get(i);
+        }
+    }
+}
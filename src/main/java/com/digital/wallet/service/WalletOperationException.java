@@ -0,0 +1,33 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.WalletOperation;
+
+/**
+ * Thrown by the methods of {@link DigitalWalletService} that report a rejected deposit, withdrawal or transfer with an
+ * exception rather than an {@link OperationResult}. It is an {@link IllegalArgumentException}, as the other
+ * rejections, that also tells why the operation has been rejected.
+ */
+public class WalletOperationException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final OperationResult.Status status;
+
+    public WalletOperationException(OperationResult.Status status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @param result    the result of the rejected operation
+     * @param operation the rejected operation
+     */
+    public static WalletOperationException of(OperationResult result, WalletOperation operation) {
+        return new WalletOperationException(result.status(), result.message(operation));
+    }
+
+    public OperationResult.Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,205 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.lock.LockTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Breaks the latency of the deposits, withdrawals and transfers down into where the time is spent, so that a latency
+ * spike can be attributed to the lock table, the connection pool or the database. Each operation is recorded into
+ * four timers, all tagged with the {@link Operation} and its {@link Outcome}:
+ * <ul>
+ *     <li>{@code wallet.operation}: total time, from the call to its return</li>
+ *     <li>{@code wallet.operation.lock.wait}: time spent waiting for the locks of the accounts</li>
+ *     <li>{@code wallet.operation.lock.hold}: time the locks have been held</li>
+ *     <li>{@code wallet.operation.transaction}: time spent in the database transaction, from the connection checkout
+ *     to the commit</li>
+ * </ul>
+ * The lock hold time minus the transaction time is the time spent holding the locks outside of the database
+ * transaction (idempotency checks...). Histograms are published as for every other timer, see
+ * {@code management.metrics.distribution}.
+ */
+@Component
+public class WalletOperationMetrics {
+
+    public enum Operation {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+    }
+
+    public enum Outcome {
+        /**
+         * The operation has been applied, or replayed, see {@link IdempotencyKeyService}.
+         */
+        SUCCESS,
+        /**
+         * The amount is out of the bounds of the operation, see {@link com.digital.wallet.config.Constants}.
+         */
+        LIMIT_BREACH,
+        INSUFFICIENT_FUNDS,
+        /**
+         * The customer has no account in the currency of the operation, see {@link OperationResult.Status#UNKNOWN_ACCOUNT}
+         * and {@link OperationResult.Status#CURRENCY_MISMATCH}.
+         */
+        UNKNOWN_ACCOUNT,
+        /**
+         * The operation has been rejected for another reason (idempotency key reused, amount with too many decimals...).
+         */
+        REJECTED,
+        /**
+         * The operation failed with an unexpected exception (database...).
+         */
+        ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        static Outcome of(OperationResult.Status status) {
+            return switch (status) {
+                case OK -> SUCCESS;
+                case BELOW_MIN, ABOVE_MAX -> LIMIT_BREACH;
+                case TOO_MANY_DECIMALS -> REJECTED;
+                case INSUFFICIENT_FUNDS -> INSUFFICIENT_FUNDS;
+                case UNKNOWN_ACCOUNT, CURRENCY_MISMATCH -> UNKNOWN_ACCOUNT;
+            };
+        }
+
+        static Outcome of(Throwable failure) {
+            if (failure instanceof WalletOperationException e) {
+                return of(e.getStatus());
+            } else if (failure instanceof IllegalArgumentException) {
+                return REJECTED;
+            }
+            return ERROR;
+        }
+    }
+
+    /**
+     * The timers by operation then outcome, created once: the hot path does not look them up in the registry.
+     */
+    private final Timer[][] total;
+    private final Timer[][] lockWait;
+    private final Timer[][] lockHold;
+    private final Timer[][] transaction;
+
+    public WalletOperationMetrics(MeterRegistry meterRegistry) {
+        this.total = timers("wallet.operation", "Total time of the wallet operations", meterRegistry);
+        this.lockWait = timers("wallet.operation.lock.wait", "Time spent waiting for the locks of the accounts", meterRegistry);
+        this.lockHold = timers("wallet.operation.lock.hold", "Time the locks of the accounts have been held", meterRegistry);
+        this.transaction = timers("wallet.operation.transaction", "Time spent in the database transaction", meterRegistry);
+    }
+
+    private static Timer[][] timers(String name, String description, MeterRegistry meterRegistry) {
+        Timer[][] timers = new Timer[Operation.values().length][Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                timers[operation.ordinal()][outcome.ordinal()] =
+                    Timer
+                        .builder(name)
+                        .description(description)
+                        .tag("operation", operation.name().toLowerCase(Locale.ROOT))
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry);
+            }
+        }
+        return timers;
+    }
+
+    /**
+     * Starts timing an operation. The sample must be stopped once the operation has returned.
+     */
+    public Sample start(Operation operation) {
+        return new Sample(operation);
+    }
+
+    /**
+     * The timings of a single operation, recorded by the calling thread.
+     */
+    public final class Sample {
+
+        private final Operation operation;
+
+        private final long start = System.nanoTime();
+
+        private long lockWaitNanos;
+
+        private long lockHoldNanos;
+
+        private long transactionNanos;
+
+        private OperationResult result = OperationResult.OK;
+
+        private Sample(Operation operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Acquires the lock of the key, see {@link LockTable#lock}, and records the time waited for it and, once the
+         * returned handle is closed, the time it has been held.
+         */
+        public LockTable.Handle lock(LockTable lockTable, Object key) {
+            long waitStart = System.nanoTime();
+            return timed(lockTable.lock(key), waitStart);
+        }
+
+        /**
+         * Same as {@link #lock} for {@link LockTable#lockAll}.
+         */
+        public <K extends Comparable<? super K>> LockTable.Handle lockAll(LockTable lockTable, Collection<K> keys) {
+            long waitStart = System.nanoTime();
+            return timed(lockTable.lockAll(keys), waitStart);
+        }
+
+        private LockTable.Handle timed(LockTable.Handle handle, long waitStart) {
+            long acquired = System.nanoTime();
+            this.lockWaitNanos = acquired - waitStart;
+            return () -> {
+                handle.close();
+                this.lockHoldNanos = System.nanoTime() - acquired;
+            };
+        }
+
+        /**
+         * Runs the action, that executes the operation in its own database transaction, and records its time.
+         */
+        public void transaction(Runnable action) {
+            long transactionStart = System.nanoTime();
+            try {
+                action.run();
+            } finally {
+                this.transactionNanos = System.nanoTime() - transactionStart;
+            }
+        }
+
+        /**
+         * Sets the result of an operation that returned normally, {@link OperationResult#OK} by default.
+         */
+        public void setResult(OperationResult result) {
+            this.result = result;
+        }
+
+        public OperationResult getResult() {
+            return this.result;
+        }
+
+        /**
+         * Records the timings of the operation.
+         *
+         * @param failure the exception thrown by the operation, null if it returned normally
+         */
+        public void stop(Throwable failure) {
+            long totalNanos = System.nanoTime() - this.start;
+            int op = this.operation.ordinal();
+            int out = (failure == null ? Outcome.of(this.result.status()) : Outcome.of(failure)).ordinal();
+            total[op][out].record(totalNanos, TimeUnit.NANOSECONDS);
+            lockWait[op][out].record(this.lockWaitNanos, TimeUnit.NANOSECONDS);
+            lockHold[op][out].record(this.lockHoldNanos, TimeUnit.NANOSECONDS);
+            transaction[op][out].record(this.transactionNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
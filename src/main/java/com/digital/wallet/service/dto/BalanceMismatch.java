@@ -0,0 +1,43 @@
+package com.digital.wallet.service.dto;
+
+import com.digital.wallet.repository.ReconciledAccount;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * An account whose balance differs from the sum of its transactions, see
+ * {@link com.digital.wallet.service.BalanceReconciliationService}.
+ *
+ * @param accountId         the id of the account
+ * @param customerId        the unique identifier of the customer
+ * @param currencyCode      the currency of the account
+ * @param balance           the balance of the account
+ * @param transactionsTotal the sum of the credits minus the sum of the debits of the account
+ * @param detectedDate      when the difference has been found
+ */
+public record BalanceMismatch(
+    Long accountId,
+    Long customerId,
+    String currencyCode,
+    BigDecimal balance,
+    BigDecimal transactionsTotal,
+    Instant detectedDate
+) {
+    public static BalanceMismatch of(ReconciledAccount account, Instant detectedDate) {
+        return new BalanceMismatch(
+            account.accountId(),
+            account.customerId(),
+            account.currencyCode(),
+            account.balance(),
+            account.transactionsTotal(),
+            detectedDate
+        );
+    }
+
+    /**
+     * @return the balance minus the sum of the transactions
+     */
+    public BigDecimal getDifference() {
+        return this.balance.subtract(this.transactionsTotal);
+    }
+}
@@ -0,0 +1,91 @@
+package com.digital.wallet.service.dto;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.domain.Money;
+import com.digital.wallet.domain.TransactionType;
+import java.math.BigDecimal;
+
+/**
+ * The outcome of a deposit or a withdrawal, see {@link com.digital.wallet.service.DigitalWalletService#applyDeposit}.
+ * A rejection is an ordinary business outcome: it is returned, not thrown, so that a client retrying a rejected
+ * operation costs neither a stack trace nor an error log. Only {@link Status#INSUFFICIENT_FUNDS} allocates a result, the
+ * other ones are constants.
+ *
+ * @param status  whether the operation has been applied, or why it has not
+ * @param balance the balance of the account the withdrawal has been rejected for, null unless
+ *                {@link Status#INSUFFICIENT_FUNDS}
+ */
+public record OperationResult(Status status, BigDecimal balance) {
+    public enum Status {
+        /**
+         * The operation has been applied, or replayed if its idempotency key had already been recorded.
+         */
+        OK,
+        /**
+         * The amount is below {@link com.digital.wallet.config.Constants#MINIMUM_DEPOSIT} for a deposit, negative for a
+         * withdrawal.
+         */
+        BELOW_MIN,
+        /**
+         * The amount is above {@link com.digital.wallet.config.Constants#MAXIMUM_DEPOSIT} or
+         * {@link com.digital.wallet.config.Constants#MAXIMUM_WITHDRAWAL}.
+         */
+        ABOVE_MAX,
+        /**
+         * The amount has more decimals than the currency of the operation, see
+         * {@link com.digital.wallet.domain.Money#scaleOf}.
+         */
+        TOO_MANY_DECIMALS,
+        INSUFFICIENT_FUNDS,
+        /**
+         * The customer has no account at all.
+         */
+        UNKNOWN_ACCOUNT,
+        /**
+         * The customer has accounts, but none in the currency of the operation.
+         */
+        CURRENCY_MISMATCH,
+    }
+
+    public static final OperationResult OK = new OperationResult(Status.OK, null);
+    public static final OperationResult BELOW_MIN = new OperationResult(Status.BELOW_MIN, null);
+    public static final OperationResult ABOVE_MAX = new OperationResult(Status.ABOVE_MAX, null);
+    public static final OperationResult TOO_MANY_DECIMALS = new OperationResult(Status.TOO_MANY_DECIMALS, null);
+    public static final OperationResult UNKNOWN_ACCOUNT = new OperationResult(Status.UNKNOWN_ACCOUNT, null);
+    public static final OperationResult CURRENCY_MISMATCH = new OperationResult(Status.CURRENCY_MISMATCH, null);
+
+    public static OperationResult insufficientFunds(BigDecimal balance) {
+        return new OperationResult(Status.INSUFFICIENT_FUNDS, balance);
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    /**
+     * @param operation the operation this is the result of
+     * @return why the operation has been rejected, null if it has been applied
+     */
+    public String message(WalletOperation operation) {
+        boolean deposit = operation.type() == TransactionType.CREDIT;
+        return switch (status) {
+            case OK -> null;
+            case BELOW_MIN -> deposit ? "Minimum deposit allowed is " + MINIMUM_DEPOSIT : "Withdrawal amount cannot be negative";
+            case ABOVE_MAX -> deposit
+                ? "Maximum deposit allowed is " + MAXIMUM_DEPOSIT
+                : "Maximum withdrawal allowed is " + MAXIMUM_WITHDRAWAL;
+            case TOO_MANY_DECIMALS -> "The amount " +
+                operation.amount().toPlainString() +
+                " has more than " +
+                Money.scaleOf(operation.currency()) +
+                " decimals";
+            case INSUFFICIENT_FUNDS -> "Insufficient balance. You are trying to withdraw " +
+                operation.amount() +
+                " but the balance is " +
+                this.balance;
+            case UNKNOWN_ACCOUNT -> "Unknown customer: " + operation.customerId();
+            case CURRENCY_MISMATCH -> "The user has no account associated to the currency: " + operation.currency();
+        };
+    }
+}
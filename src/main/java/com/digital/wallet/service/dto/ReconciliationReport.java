@@ -0,0 +1,28 @@
+package com.digital.wallet.service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The outcome of a run of the balance reconciliation, see {@link com.digital.wallet.service.BalanceReconciliationService}.
+ *
+ * @param startedDate        when the run started
+ * @param completedDate      when the run completed
+ * @param afterAccountId     the watermark the run started from: the accounts after this id have been reconciled
+ * @param lastAccountId      the id of the last account reconciled by the run
+ * @param passCompleted      true if the run reached the last account, the next one starting over from the first
+ * @param accountsReconciled the number of accounts reconciled by the run
+ * @param mismatchesFound    the number of accounts whose balance differs from the sum of their transactions
+ * @param mismatches         the first accounts found to differ, see
+ *                           {@link com.digital.wallet.config.ApplicationProperties.Reconciliation#getMaxReportedMismatches()}
+ */
+public record ReconciliationReport(
+    Instant startedDate,
+    Instant completedDate,
+    long afterAccountId,
+    long lastAccountId,
+    boolean passCompleted,
+    long accountsReconciled,
+    long mismatchesFound,
+    List<BalanceMismatch> mismatches
+) {}
@@ -0,0 +1,16 @@
+package com.digital.wallet.service.dto;
+
+import com.digital.wallet.domain.WalletTransaction;
+import java.time.Instant;
+
+/**
+ * Position in the transaction history of a customer: the creation date and id of the last transaction read.
+ *
+ * @param createdDate the creation date of the transaction
+ * @param id          the id of the transaction
+ */
+public record TransactionCursor(Instant createdDate, Long id) {
+    public static TransactionCursor of(WalletTransaction transaction) {
+        return new TransactionCursor(transaction.getCreatedDate(), transaction.getId());
+    }
+}
@@ -0,0 +1,16 @@
+package com.digital.wallet.service.dto;
+
+import com.digital.wallet.domain.WalletTransaction;
+import java.util.List;
+
+/**
+ * A page of the transaction history of a customer, most recent first.
+ *
+ * @param transactions the transactions of the page
+ * @param next         the cursor to read the next page, null if this is the last one
+ */
+public record TransactionHistory(List<WalletTransaction> transactions, TransactionCursor next) {
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.digital.wallet.service.dto;
+
+import com.digital.wallet.domain.AccountKey;
+import com.digital.wallet.domain.TransactionType;
+import java.math.BigDecimal;
+
+/**
+ * A deposit ({@link TransactionType#CREDIT}) or a withdrawal ({@link TransactionType#DEBIT}) to execute as part of a
+ * batch, see {@link com.digital.wallet.service.DigitalWalletService#executeBatch}.
+ *
+ * @param customerId     the unique identifier of the customer
+ * @param currency       the currency of the operation. As per ISO 4217.
+ * @param amount         the amount to be deposited or withdrawn
+ * @param remark         a remark or description for the operation
+ * @param type           deposit or withdrawal
+ * @param idempotencyKey the key identifying the operation for the customer, the operation is applied at most once per
+ *                       key. Null if the operation is not idempotent.
+ */
+public record WalletOperation(
+    Long customerId,
+    String currency,
+    BigDecimal amount,
+    String remark,
+    TransactionType type,
+    String idempotencyKey
+) {
+    public static WalletOperation deposit(Long customerId, String currency, BigDecimal amount, String remark) {
+        return deposit(customerId, currency, amount, remark, null);
+    }
+
+    public static WalletOperation deposit(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return new WalletOperation(customerId, currency, amount, remark, TransactionType.CREDIT, idempotencyKey);
+    }
+
+    public static WalletOperation withdrawal(Long customerId, String currency, BigDecimal amount, String remark) {
+        return withdrawal(customerId, currency, amount, remark, null);
+    }
+
+    public static WalletOperation withdrawal(Long customerId, String currency, BigDecimal amount, String remark, String idempotencyKey) {
+        return new WalletOperation(customerId, currency, amount, remark, TransactionType.DEBIT, idempotencyKey);
+    }
+
+    /**
+     * @return the account the operation applies to
+     */
+    public AccountKey accountKey() {
+        return new AccountKey(this.customerId, this.currency);
+    }
+}
@@ -0,0 +1,27 @@
+package com.digital.wallet.service.dto;
+
+/**
+ * The result of a {@link WalletOperation} executed as part of a batch.
+ *
+ * @param operation the operation
+ * @param result    whether the operation has been applied or why it has been rejected, null if it failed for another
+ *                  reason (idempotency key reused, database failure...)
+ * @param error     the reason why the operation has not been applied, null if it has been applied
+ */
+public record WalletOperationResult(WalletOperation operation, OperationResult result, String error) {
+    public static WalletOperationResult success(WalletOperation operation) {
+        return new WalletOperationResult(operation, OperationResult.OK, null);
+    }
+
+    public static WalletOperationResult of(WalletOperation operation, OperationResult result) {
+        return new WalletOperationResult(operation, result, result.message(operation));
+    }
+
+    public static WalletOperationResult failure(WalletOperation operation, String error) {
+        return new WalletOperationResult(operation, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.digital.wallet.service.lock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base class of the {@link LockTable} implementations backed by {@link ReentrantLock}s. It keeps, per stripe, the number
+ * of acquisitions, the number of contended acquisitions and the time spent waiting for them, and the number of
+ * threads currently waiting. They are published as Micrometer metrics:
+ * <ul>
+ *     <li>{@code wallet.lock.acquisitions}: number of acquisitions</li>
+ *     <li>{@code wallet.lock.wait}: number of acquisitions that had to wait and total wait time</li>
+ *     <li>{@code wallet.lock.queue}: number of threads waiting</li>
+ * </ul>
+ * All of them are tagged with the stripe index so that hot stripes can be spotted.
+ */
+public abstract class AbstractLockTable implements LockTable, MeterBinder {
+
+    private final String type;
+    private final boolean fair;
+    private final Stripe[] stripes;
+
+    protected AbstractLockTable(String type, int stripes, boolean fair) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive: " + stripes);
+        }
+        this.type = type;
+        this.fair = fair;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    protected boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * @return the number of stripes
+     */
+    public int size() {
+        return stripes.length;
+    }
+
+    /**
+     * @return the index of the stripe associated to the given key
+     */
+    protected int indexFor(Object key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), stripes.length);
+    }
+
+    /**
+     * Acquires the given lock and records the statistics in the given stripe.
+     */
+    protected void acquire(ReentrantLock lock, int stripe) {
+        Stripe stats = stripes[stripe];
+        stats.acquisitions.increment();
+        if (tryLockImmediately(lock)) {
+            return;
+        }
+        stats.waiting.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            lock.lock();
+        } finally {
+            stats.waitNanos.add(System.nanoTime() - start);
+            stats.contended.increment();
+            stats.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records an acquisition that did not wait in the given stripe, for the tables that do not actually lock.
+     */
+    protected void acquired(int stripe) {
+        stripes[stripe].acquisitions.increment();
+    }
+
+    private static boolean tryLockImmediately(ReentrantLock lock) {
+        if (!lock.isFair()) {
+            return lock.tryLock();
+        }
+        // tryLock() barges even on fair locks, the timed version honors the fairness policy
+        try {
+            return lock.tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stats = stripes[i];
+            String stripe = String.valueOf(i);
+            FunctionCounter
+                .builder("wallet.lock.acquisitions", stats, s -> s.acquisitions.sum())
+                .description("Number of lock acquisitions")
+                .tags("type", type, "stripe", stripe)
+                .register(registry);
+            FunctionTimer
+                .builder("wallet.lock.wait", stats, s -> s.contended.sum(), s -> s.waitNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Lock acquisitions that had to wait and time spent waiting")
+                .tags("type", type, "stripe", stripe)
+                .register(registry);
+            Gauge
+                .builder("wallet.lock.queue", stats, s -> s.waiting.get())
+                .description("Number of threads waiting for the lock")
+                .tags("type", type, "stripe", stripe)
+                .register(registry);
+        }
+    }
+
+    private static final class Stripe {
+
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicInteger waiting = new AtomicInteger();
+    }
+}
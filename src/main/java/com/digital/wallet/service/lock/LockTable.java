@@ -0,0 +1,38 @@
+package com.digital.wallet.service.lock;
+
+import java.util.Collection;
+
+/**
+ * A table of locks indexed by key (typically an account, see {@link com.digital.wallet.domain.AccountKey}). Operations
+ * holding the lock of a key are executed one at a time, operations on keys associated to different locks can proceed
+ * concurrently.
+ */
+public interface LockTable {
+    /**
+     * Acquires the lock associated to the given key, waiting if necessary.
+     *
+     * @param key the key to lock
+     * @return a handle to close to release the lock
+     */
+    Handle lock(Object key);
+
+    /**
+     * Acquires the locks associated to the given keys, waiting if necessary. Locks are acquired in a deterministic
+     * order so that two threads locking overlapping sets of keys cannot deadlock.
+     *
+     * @param keys the keys to lock
+     * @return a handle to close to release all the locks
+     */
+    <K extends Comparable<? super K>> Handle lockAll(Collection<K> keys);
+
+    /**
+     * A lock held by the current thread.
+     */
+    interface Handle extends AutoCloseable {
+        /**
+         * Releases the lock.
+         */
+        @Override
+        void close();
+    }
+}
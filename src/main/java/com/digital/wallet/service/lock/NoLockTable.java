@@ -0,0 +1,29 @@
+package com.digital.wallet.service.lock;
+
+import java.util.Collection;
+
+/**
+ * A {@link LockTable} that does not lock: every acquisition succeeds immediately. Used when the accounts are only
+ * locked in the database, see {@link com.digital.wallet.config.ApplicationProperties.Lock.Type#NONE}. Acquisitions are
+ * still counted, in a single stripe.
+ */
+public class NoLockTable extends AbstractLockTable {
+
+    private static final Handle RELEASED = () -> {};
+
+    public NoLockTable() {
+        super("none", 1, false);
+    }
+
+    @Override
+    public Handle lock(Object key) {
+        acquired(0);
+        return RELEASED;
+    }
+
+    @Override
+    public <K extends Comparable<? super K>> Handle lockAll(Collection<K> keys) {
+        acquired(0);
+        return RELEASED;
+    }
+}
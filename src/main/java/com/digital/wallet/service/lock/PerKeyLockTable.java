@@ -0,0 +1,90 @@
+package com.digital.wallet.service.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link LockTable} with one lock per key so that unrelated keys never contend. Locks are created on demand and
+ * evicted as soon as no thread holds or waits for them, so the table only contains the keys being operated on.
+ * <p>
+ * {@link #lockAll} acquires the locks by increasing key.
+ * <p>
+ * Statistics are aggregated into a fixed number of stripes (buckets), keys being spread over them by hash.
+ */
+public class PerKeyLockTable extends AbstractLockTable {
+
+    private final ConcurrentHashMap<Object, Entry> locks = new ConcurrentHashMap<>();
+
+    public PerKeyLockTable(int stripes, boolean fair) {
+        super("per-key", stripes, fair);
+    }
+
+    @Override
+    public Handle lock(Object key) {
+        // The number of users is updated atomically with the mapping so that an entry is never evicted while in use.
+        Entry entry = this.locks.compute(key, (k, e) -> {
+            Entry result = e == null ? new Entry(isFair()) : e;
+            result.users++;
+            return result;
+        });
+        try {
+            acquire(entry.lock, indexFor(key));
+        } catch (RuntimeException | Error e) {
+            release(key);
+            throw e;
+        }
+        return () -> {
+            entry.lock.unlock();
+            release(key);
+        };
+    }
+
+    @Override
+    public <K extends Comparable<? super K>> Handle lockAll(Collection<K> keys) {
+        List<Handle> handles = new ArrayList<>(keys.size());
+        try {
+            for (K key : new TreeSet<>(keys)) {
+                handles.add(lock(key));
+            }
+        } catch (RuntimeException | Error e) {
+            closeAll(handles);
+            throw e;
+        }
+        return () -> closeAll(handles);
+    }
+
+    private static void closeAll(List<Handle> handles) {
+        for (int i = handles.size() - 1; i >= 0; i--) {
+            handles.get(i).close();
+        }
+    }
+
+    private void release(Object key) {
+        this.locks.computeIfPresent(key, (k, e) -> --e.users == 0 ? null : e);
+    }
+
+    /**
+     * @return the number of locks currently in the table
+     */
+    public int locksInUse() {
+        return this.locks.size();
+    }
+
+    private static final class Entry {
+
+        private final ReentrantLock lock;
+
+        /**
+         * Number of threads holding or waiting for the lock. Guarded by the map.
+         */
+        private int users;
+
+        private Entry(boolean fair) {
+            this.lock = new ReentrantLock(fair);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.digital.wallet.service.lock;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link LockTable} made of a fixed number of locks (stripes). Keys are spread over the stripes by hash so two
+ * unrelated keys can be associated to the same lock and contend. The more stripes, the less likely it is.
+ * <p>
+ * {@link #lockAll} acquires each stripe once, by increasing index.
+ */
+public class StripedLockTable extends AbstractLockTable {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLockTable(int stripes, boolean fair) {
+        super("striped", stripes, fair);
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new ReentrantLock(fair);
+        }
+    }
+
+    @Override
+    public Handle lock(Object key) {
+        int stripe = indexFor(key);
+        ReentrantLock lock = this.locks[stripe];
+        acquire(lock, stripe);
+        return lock::unlock;
+    }
+
+    @Override
+    public <K extends Comparable<? super K>> Handle lockAll(Collection<K> keys) {
+        int[] stripes = keys.stream().mapToInt(this::indexFor).distinct().sorted().toArray();
+        int acquired = 0;
+        try {
+            for (; acquired < stripes.length; acquired++) {
+                acquire(this.locks[stripes[acquired]], stripes[acquired]);
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(stripes, acquired);
+            throw e;
+        }
+        return () -> unlock(stripes, stripes.length);
+    }
+
+    private void unlock(int[] stripes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            this.locks[stripes[i]].unlock();
+        }
+    }
+}
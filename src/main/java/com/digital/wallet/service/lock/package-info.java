@@ -0,0 +1,4 @@
+/**
+ * Lock tables used to prevent concurrent operations on the same account.
+ */
+package com.digital.wallet.service.lock;
@@ -0,0 +1,31 @@
+package com.digital.wallet;
+
+import static com.tngtech.archunit.lang.syntax.ArchRuleDefinition.noClasses;
+import static com.tngtech.archunit.lang.syntax.ArchRuleDefinition.noMethods;
+
+import com.tngtech.archunit.core.domain.JavaModifier;
+import com.tngtech.archunit.core.importer.ImportOption.DoNotIncludeTests;
+import com.tngtech.archunit.junit.AnalyzeClasses;
+import com.tngtech.archunit.junit.ArchTest;
+import com.tngtech.archunit.lang.ArchRule;
+
+/**
+ * Guards against code pinning virtual threads to their carrier, see
+ * {@link com.digital.wallet.config.VirtualThreadsConfiguration}.
+ */
+@AnalyzeClasses(packagesOf = DigitalWalletApp.class, importOptions = DoNotIncludeTests.class)
+class VirtualThreadsTest {
+
+    @ArchTest
+    static final ArchRule noSynchronizedMethods = noMethods()
+        .should()
+        .haveModifier(JavaModifier.SYNCHRONIZED)
+        .because("a virtual thread blocking in a monitor pins its carrier thread, use a ReentrantLock instead");
+
+    @ArchTest
+    static final ArchRule noGuavaStriped = noClasses()
+        .should()
+        .dependOnClassesThat()
+        .haveFullyQualifiedName("com.google.common.util.concurrent.Striped")
+        .because("the lock table is made of ReentrantLocks, see AbstractLockTable");
+}
@@ -0,0 +1,133 @@
+package com.digital.wallet.config;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.DigitalWalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the second-level cache of {@link WalletAccount}. Every repository call runs in its own
+ * transaction, so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=true")
+class CacheConfigurationIntTest {
+
+    private static final String currency = "GBP";
+
+    private static final String region = WalletAccount.class.getName();
+
+    private static final String naturalIdRegion = region + "##NaturalId";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    @Qualifier("SafeDigitalWalletService")
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    long paulId;
+
+    long paulAccountId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(100));
+        paulAccount = accountRepository.save(paulAccount);
+        paulId = paulAccount.getCustomerId();
+        paulAccountId = paulAccount.getId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testReadsHitTheCache() {
+        entityManagerFactory.getCache().evictAll();
+        double hits = gets(region, "hit");
+        double misses = gets(region, "miss");
+
+        findPaulAccount();
+        // The read-write strategy looks the entry up again before putting it
+        Assertions.assertThat(gets(region, "miss")).isGreaterThan(misses);
+        Assertions.assertThat(entityManagerFactory.getCache().contains(WalletAccount.class, paulAccountId)).isTrue();
+
+        // Resolved to the id by the natural id region, then read from the entity region
+        misses = gets(region, "miss");
+        double naturalIdHits = gets(naturalIdRegion, "hit");
+        double naturalIdMisses = gets(naturalIdRegion, "miss");
+        findPaulAccount();
+        Assertions.assertThat(gets(naturalIdRegion, "hit")).isGreaterThan(naturalIdHits);
+        Assertions.assertThat(gets(naturalIdRegion, "miss")).isEqualTo(naturalIdMisses);
+        Assertions.assertThat(gets(region, "hit")).isEqualTo(hits + 1);
+        Assertions.assertThat(gets(region, "miss")).isEqualTo(misses);
+    }
+
+    @Test
+    void testEntityWriteUpdatesTheCache() {
+        WalletAccount before = findPaulAccount();
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "");
+
+        WalletAccount after = findPaulAccount();
+        Assertions.assertThat(after.getAmount()).isEqualByComparingTo("150");
+        Assertions.assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+    }
+
+    @Test
+    void testSqlWriteEvictsTheCache() {
+        WalletAccount before = findPaulAccount();
+        Assertions.assertThat(entityManagerFactory.getCache().contains(WalletAccount.class, paulAccountId)).isTrue();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            accountRepository.applyTransaction(paulId, currency, new BigDecimal(30), TransactionType.DEBIT, "")
+        );
+        Assertions.assertThat(entityManagerFactory.getCache().contains(WalletAccount.class, paulAccountId)).isFalse();
+
+        WalletAccount after = findPaulAccount();
+        Assertions.assertThat(after.getAmount()).isEqualByComparingTo("70");
+        Assertions.assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+    }
+
+    /**
+     * Looks the account up as the service does.
+     */
+    private WalletAccount findPaulAccount() {
+        return accountRepository.findByCustomerIdAndCurrencyCode(paulId, currency).orElseThrow();
+    }
+
+    private double gets(String cache, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,22 @@
+package com.digital.wallet.domain;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link CurrencyCodeConverter}.
+ */
+class CurrencyCodeConverterTest {
+
+    @Test
+    void testCurrencyCodesAreShared() {
+        CurrencyCodeConverter converter = new CurrencyCodeConverter();
+        // Distinct instances, as read from different rows
+        String first = converter.convertToEntityAttribute(new String("GBP"));
+        String second = converter.convertToEntityAttribute(new String("GBP"));
+
+        Assertions.assertThat(first).isEqualTo("GBP").isSameAs(second);
+        Assertions.assertThat(converter.convertToEntityAttribute("ZZZ")).isEqualTo("ZZZ");
+        Assertions.assertThat(converter.convertToDatabaseColumn("GBP")).isEqualTo("GBP");
+    }
+}
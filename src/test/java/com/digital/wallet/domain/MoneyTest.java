@@ -0,0 +1,81 @@
+package com.digital.wallet.domain;
+
+import java.math.BigDecimal;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Money} and {@link MoneyConverter}.
+ */
+class MoneyTest {
+
+    @Test
+    void testScaleOfCurrencies() {
+        Assertions.assertThat(Money.scaleOf("GBP")).isEqualTo(2);
+        Assertions.assertThat(Money.scaleOf("JPY")).isZero();
+        // Three decimals, limited to the scale of the columns
+        Assertions.assertThat(Money.scaleOf("KWD")).isEqualTo(Money.MAX_SCALE);
+        // No minor unit defined
+        Assertions.assertThat(Money.scaleOf("XAU")).isEqualTo(Money.MAX_SCALE);
+        Assertions.assertThat(Money.scaleOf("unknown")).isEqualTo(Money.MAX_SCALE);
+    }
+
+    @Test
+    void testToMinorUnits() {
+        Assertions.assertThat(Money.toMinorUnits(BigDecimal.valueOf(10), 2)).isEqualTo(1000);
+        Assertions.assertThat(Money.toMinorUnits(new BigDecimal("10.5"), 2)).isEqualTo(1050);
+        Assertions.assertThat(Money.toMinorUnits(new BigDecimal("10.500"), 2)).isEqualTo(1050);
+        Assertions.assertThat(Money.toMinorUnits(new BigDecimal("-0.01"), 2)).isEqualTo(-1);
+        Assertions.assertThat(Money.toMinorUnits(new BigDecimal("1E+3"), 0)).isEqualTo(1000);
+        Assertions
+            .assertThatThrownBy(() -> Money.toMinorUnits(new BigDecimal("10.005"), 2))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("10.005");
+        Assertions
+            .assertThatThrownBy(() -> Money.toMinorUnits(BigDecimal.valueOf(Long.MAX_VALUE), 2))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void testArithmetic() {
+        Money balance = Money.of(new BigDecimal("100.00"), "GBP");
+
+        Assertions.assertThat(balance.getMinorUnits()).isEqualTo(10_000);
+        Assertions.assertThat(balance.plus(Money.of(new BigDecimal("0.5"))).toBigDecimal()).isEqualTo(new BigDecimal("100.50"));
+        Assertions.assertThat(balance.minus(Money.ofMinor(20_000, 2)).signum()).isNegative();
+        Assertions.assertThat(Money.ofMinor(1, 0).plus(Money.ofMinor(1, 2))).isEqualTo(Money.ofMinor(101, 2));
+        Assertions
+            .assertThatThrownBy(() -> Money.ofMinor(Long.MAX_VALUE, 2).plus(Money.ofMinor(1, 2)))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void testRescale() {
+        Assertions.assertThat(Money.rescale(10, 0, 2)).isEqualTo(1000);
+        Assertions.assertThat(Money.ofMinor(1000, 2).minorUnits(0)).isEqualTo(10);
+        Assertions.assertThatThrownBy(() -> Money.ofMinor(1050, 2).minorUnits(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEqualityIgnoresScale() {
+        Money money = Money.ofMinor(1000, 2);
+        Money sameAmount = Money.ofMinor(10, 0);
+
+        Assertions.assertThat(money).isEqualTo(sameAmount).hasSameHashCodeAs(sameAmount).isEqualByComparingTo(sameAmount);
+        Assertions.assertThat(money).isNotEqualTo(Money.ofMinor(1001, 2));
+        Assertions.assertThat(money.compareTo(Money.ofMinor(1001, 2))).isNegative();
+        Assertions.assertThat(money).hasToString("10.00");
+    }
+
+    @Test
+    void testConverter() {
+        MoneyConverter converter = new MoneyConverter();
+        Money money = converter.convertToEntityAttribute(new BigDecimal("12.30"));
+
+        Assertions.assertThat(money.getMinorUnits()).isEqualTo(1230);
+        Assertions.assertThat(money.getScale()).isEqualTo(2);
+        Assertions.assertThat(converter.convertToDatabaseColumn(Money.ofMinor(1230, 2))).isEqualTo(new BigDecimal("12.30"));
+        Assertions.assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        Assertions.assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+}
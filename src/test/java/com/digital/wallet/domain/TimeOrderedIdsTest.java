@@ -0,0 +1,110 @@
+package com.digital.wallet.domain;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TimeOrderedIds}.
+ */
+class TimeOrderedIdsTest {
+
+    private static final long NOW = Instant.parse("2026-10-18T10:00:00Z").toEpochMilli();
+
+    @Test
+    void testLayout() {
+        TimeOrderedIds ids = new TimeOrderedIds(7, () -> NOW);
+
+        long first = ids.next();
+        long second = ids.next();
+
+        Assertions.assertThat(first).isPositive();
+        Assertions.assertThat(TimeOrderedIds.timestampOf(first)).isEqualTo(Instant.ofEpochMilli(NOW));
+        Assertions.assertThat(TimeOrderedIds.nodeIdOf(first)).isEqualTo(7);
+        Assertions.assertThat(second).isEqualTo(first + 1);
+    }
+
+    @Test
+    void testIdsSortByTimeAcrossNodes() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds node1 = new TimeOrderedIds(1, clock::get);
+        TimeOrderedIds node2 = new TimeOrderedIds(TimeOrderedIds.MAX_NODE_ID, clock::get);
+
+        long id1 = node1.next();
+        long id2 = node2.next();
+        clock.incrementAndGet();
+        long id3 = node1.next();
+
+        Assertions.assertThat(id1).isLessThan(id2).isLessThan(id3);
+        Assertions.assertThat(TimeOrderedIds.nodeIdOf(id2)).isEqualTo(TimeOrderedIds.MAX_NODE_ID);
+    }
+
+    @Test
+    void testSequenceOverflowBorrowsTheNextMillisecond() {
+        TimeOrderedIds ids = new TimeOrderedIds(0, () -> NOW);
+        long previous = ids.next();
+        for (int i = 1; i < (1 << TimeOrderedIds.SEQUENCE_BITS) + 10; i++) {
+            long id = ids.next();
+            Assertions.assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        Assertions.assertThat(TimeOrderedIds.timestampOf(previous)).isEqualTo(Instant.ofEpochMilli(NOW + 1));
+        Assertions.assertThat(TimeOrderedIds.nodeIdOf(previous)).isZero();
+    }
+
+    @Test
+    void testClockGoingBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds ids = new TimeOrderedIds(3, clock::get);
+        long before = ids.next();
+        clock.addAndGet(-1000);
+        Assertions.assertThat(ids.next()).isGreaterThan(before);
+    }
+
+    @Test
+    void testInvalidNodeId() {
+        Assertions
+            .assertThatThrownBy(() -> new TimeOrderedIds(TimeOrderedIds.MAX_NODE_ID + 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new TimeOrderedIds(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testConcurrentIdsAreUnique() throws Exception {
+        TimeOrderedIds ids = new TimeOrderedIds(5);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(
+                    executor.submit(() -> {
+                        long[] allocated = new long[10_000];
+                        for (int i = 0; i < allocated.length; i++) {
+                            allocated[i] = ids.next();
+                        }
+                        return allocated;
+                    })
+                );
+            }
+            Set<Long> unique = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                for (long id : future.get(10, TimeUnit.SECONDS)) {
+                    unique.add(id);
+                }
+            }
+            Assertions.assertThat(unique).hasSize(threads * 10_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
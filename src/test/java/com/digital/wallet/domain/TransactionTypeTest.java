@@ -0,0 +1,30 @@
+package com.digital.wallet.domain;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the codes of {@link TransactionType} and {@link TransactionTypeConverter}.
+ */
+class TransactionTypeTest {
+
+    @Test
+    void testCodesAreStable() {
+        Assertions.assertThat(TransactionType.DEBIT.getCode()).isEqualTo((short) 1);
+        Assertions.assertThat(TransactionType.CREDIT.getCode()).isEqualTo((short) 2);
+        for (TransactionType type : TransactionType.values()) {
+            Assertions.assertThat(TransactionType.fromCode(type.getCode())).isSameAs(type);
+        }
+        Assertions.assertThatThrownBy(() -> TransactionType.fromCode((short) 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testConverter() {
+        TransactionTypeConverter converter = new TransactionTypeConverter();
+
+        Assertions.assertThat(converter.convertToDatabaseColumn(TransactionType.CREDIT)).isEqualTo((short) 2);
+        Assertions.assertThat(converter.convertToEntityAttribute((short) 1)).isSameAs(TransactionType.DEBIT);
+        Assertions.assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        Assertions.assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+}
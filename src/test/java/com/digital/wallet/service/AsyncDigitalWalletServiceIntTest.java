@@ -0,0 +1,146 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.config.AsyncConfiguration;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Integration tests for {@link ExecutorAsyncDigitalWalletService}. The operations run on the executor created by
+ * {@link AsyncConfiguration#createWalletTaskExecutor}, in their own transactions, so the test is not transactional and
+ * cleans up after itself.
+ */
+@IntegrationTest
+class AsyncDigitalWalletServiceIntTest {
+
+    private static final String currency = "GBP";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private Environment environment;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private AsyncDigitalWalletService asyncDigitalWalletService;
+
+    long paulId;
+
+    @BeforeEach
+    void setup() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+
+        // Virtual threads are not enabled in tests
+        executor = (ThreadPoolTaskExecutor) AsyncConfiguration.createWalletTaskExecutor(applicationProperties, environment);
+        executor.initialize();
+        asyncDigitalWalletService = new ExecutorAsyncDigitalWalletService(digitalWalletService, executor);
+    }
+
+    @AfterEach
+    void cleanup() {
+        executor.shutdown();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentDeposits() {
+        int count = 200;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(asyncDigitalWalletService.executeDepositAsync(paulId, currency, new BigDecimal(10), "deposit " + i));
+        }
+        Assertions.assertThat(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))).succeedsWithin(TIMEOUT);
+
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("2000");
+        Page<WalletTransaction> transactions = asyncDigitalWalletService
+            .getTransactionsAsync(paulId, Pageable.unpaged())
+            .orTimeout(TIMEOUT.toSeconds(), TimeUnit.SECONDS)
+            .join();
+        Assertions.assertThat(transactions.getTotalElements()).isEqualTo(count);
+    }
+
+    @Test
+    void testWithdrawal() {
+        Assertions
+            .assertThat(asyncDigitalWalletService.executeDepositAsync(paulId, currency, new BigDecimal(100), ""))
+            .succeedsWithin(TIMEOUT);
+        Assertions
+            .assertThat(asyncDigitalWalletService.executeWithdrawalAsync(paulId, currency, new BigDecimal(40), ""))
+            .succeedsWithin(TIMEOUT);
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("60");
+    }
+
+    @Test
+    void testExceptionsAreNotWrapped() {
+        CompletableFuture<Void> belowMinimum = asyncDigitalWalletService.executeDepositAsync(
+            paulId,
+            currency,
+            MINIMUM_DEPOSIT.subtract(BigDecimal.ONE),
+            ""
+        );
+        Assertions
+            .assertThat(belowMinimum)
+            .failsWithin(TIMEOUT)
+            .withThrowableOfType(ExecutionException.class)
+            .havingCause()
+            .isInstanceOf(IllegalArgumentException.class)
+            .withMessageContaining("Minimum deposit allowed is");
+
+        CompletableFuture<Void> insufficient = asyncDigitalWalletService.executeWithdrawalAsync(paulId, currency, new BigDecimal(10), "");
+        Assertions
+            .assertThatThrownBy(insufficient::join)
+            .hasCauseInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 10");
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void testRejectedOperation() {
+        executor.shutdown();
+        Assertions
+            .assertThat(asyncDigitalWalletService.executeDepositAsync(paulId, currency, new BigDecimal(10), ""))
+            .isCompletedExceptionally();
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
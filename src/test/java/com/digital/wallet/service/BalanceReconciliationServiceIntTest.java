@@ -0,0 +1,169 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.BalanceMismatch;
+import com.digital.wallet.service.dto.ReconciliationReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for {@link BalanceReconciliationService}, with ranges and pages of two accounts so that the ranges
+ * are split and scanned in several pages. The runs use their own connections so the test is not transactional and
+ * cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.wallet.reconciliation.parallelism=2",
+        "application.wallet.reconciliation.range-size=2",
+        "application.wallet.reconciliation.page-size=2",
+    }
+)
+class BalanceReconciliationServiceIntTest {
+
+    private static final int ACCOUNTS = 7;
+
+    @Autowired
+    private BalanceReconciliationService reconciliationService;
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @BeforeEach
+    void setupRepositories() {
+        // Balances of 0, 10, 20... equal to the sums of their transactions
+        for (int i = 0; i < ACCOUNTS; i++) {
+            WalletAccount account = new WalletAccount();
+            account.setCustomerId(300L + i);
+            account.setCurrencyCode("GBP");
+            account.setAmount(BigDecimal.valueOf(10L * i));
+            accountIds.add(accountRepository.save(account).getId());
+            if (i > 0) {
+                transactionRepository.save(transaction(account, TransactionType.CREDIT, 15L * i));
+                transactionRepository.save(transaction(account, TransactionType.DEBIT, 5L * i));
+            }
+        }
+        jdbcTemplate.update("DELETE FROM wallet_reconciliation");
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        applicationProperties.getWallet().getReconciliation().setAccountsPerRun(0);
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM wallet_reconciliation");
+    }
+
+    @Test
+    void testReconcileAllAccounts() {
+        setAmount(accountIds.get(2), "25.00");
+        setAmount(accountIds.get(5), "0");
+        double mismatchesFound = meterRegistry.counter("wallet.reconciliation.mismatches.found").count();
+
+        ReconciliationReport report = reconciliationService.reconcile().orElseThrow();
+
+        Assertions.assertThat(report.accountsReconciled()).isEqualTo(ACCOUNTS);
+        Assertions.assertThat(report.passCompleted()).isTrue();
+        Assertions.assertThat(report.lastAccountId()).isEqualTo(accountIds.get(ACCOUNTS - 1));
+        Assertions.assertThat(report.mismatchesFound()).isEqualTo(2);
+        Assertions
+            .assertThat(report.mismatches())
+            .extracting(BalanceMismatch::accountId)
+            .containsExactly(accountIds.get(2), accountIds.get(5));
+        BalanceMismatch mismatch = report.mismatches().get(0);
+        Assertions.assertThat(mismatch.balance()).isEqualByComparingTo("25");
+        Assertions.assertThat(mismatch.transactionsTotal()).isEqualByComparingTo("20");
+        Assertions.assertThat(mismatch.getDifference()).isEqualByComparingTo("5");
+        Assertions.assertThat(reconciliationService.getMismatches()).hasSize(2);
+        Assertions.assertThat(reconciliationService.getLastReport()).isEqualTo(report);
+        Assertions.assertThat(meterRegistry.counter("wallet.reconciliation.mismatches.found").count() - mismatchesFound).isEqualTo(2);
+        Assertions.assertThat(meterRegistry.get("wallet.reconciliation.mismatches").gauge().value()).isEqualTo(2);
+
+        // Fixed accounts are no longer reported once reconciled again
+        setAmount(accountIds.get(2), "20.00");
+        report = reconciliationService.reconcile().orElseThrow();
+
+        Assertions.assertThat(report.mismatchesFound()).isEqualTo(1);
+        Assertions
+            .assertThat(reconciliationService.getMismatches())
+            .extracting(BalanceMismatch::accountId)
+            .containsExactly(accountIds.get(5));
+    }
+
+    @Test
+    void testIncrementalRuns() {
+        applicationProperties.getWallet().getReconciliation().setAccountsPerRun(3);
+        setAmount(accountIds.get(4), "1");
+
+        ReconciliationReport first = reconciliationService.reconcile().orElseThrow();
+        Assertions.assertThat(first.accountsReconciled()).isEqualTo(3);
+        Assertions.assertThat(first.passCompleted()).isFalse();
+        Assertions.assertThat(first.mismatchesFound()).isZero();
+
+        // Resumed from the watermark
+        ReconciliationReport second = reconciliationService.reconcile().orElseThrow();
+        Assertions.assertThat(second.afterAccountId()).isEqualTo(first.lastAccountId());
+        Assertions.assertThat(second.accountsReconciled()).isEqualTo(3);
+        Assertions.assertThat(second.mismatches()).extracting(BalanceMismatch::accountId).containsExactly(accountIds.get(4));
+
+        ReconciliationReport third = reconciliationService.reconcile().orElseThrow();
+        Assertions.assertThat(third.accountsReconciled()).isEqualTo(1);
+        Assertions.assertThat(third.passCompleted()).isTrue();
+
+        // A new pass
+        ReconciliationReport fourth = reconciliationService.reconcile().orElseThrow();
+        Assertions.assertThat(fourth.afterAccountId()).isZero();
+        Assertions.assertThat(fourth.lastAccountId()).isEqualTo(accountIds.get(2));
+    }
+
+    private static WalletTransaction transaction(WalletAccount account, TransactionType type, long amount) {
+        WalletTransaction trx = new WalletTransaction();
+        trx.setCustomerId(account.getCustomerId());
+        trx.setCurrencyCode(account.getCurrencyCode());
+        trx.setAmount(BigDecimal.valueOf(amount));
+        trx.setTransactionType(type);
+        trx.setRemarks("");
+        return trx;
+    }
+
+    private void setAmount(Long accountId, String amount) {
+        // The connections of the pool are not in auto-commit mode
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            jdbcTemplate.update("UPDATE wallet_account SET amount = ? WHERE id = ?", new BigDecimal(amount), accountId)
+        );
+    }
+}
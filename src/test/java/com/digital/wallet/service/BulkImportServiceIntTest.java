@@ -0,0 +1,166 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.ImportJob;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for {@link BulkImportService}, with chunks of two rows. Each chunk is committed in its own
+ * transaction so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(properties = "application.wallet.bulk-import.chunk-size=2")
+class BulkImportServiceIntTest {
+
+    private static final String ACCOUNTS =
+        """
+        currencyCode,customerId,createdDate
+        GBP,201,2020-01-01T10:00:00Z
+        GBP,202,
+        EUR,202,
+        """;
+
+    private static final String TRANSACTIONS =
+        """
+        id,customerId,createdDate,transactionType,amount,currencyCode,remarks\r
+        1,201,2020-01-02T10:00:00Z,CREDIT,100.00,GBP,"salary, ""january""\"\r
+        2,201,2020-01-03T10:00:00Z,DEBIT,30.50,GBP,rent\r
+        3,202,2020-01-02T10:00:00Z,CREDIT,10,GBP,\r
+        4,202,2020-01-02T10:00:00Z,CREDIT,7.25,EUR,"two\r
+        lines"\r
+        5,200,2020-01-04T10:00:00Z,CREDIT,5,GBP,existing account\r
+        """;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM wallet_import_job");
+    }
+
+    @Test
+    void testImport() throws Exception {
+        WalletAccount existing = new WalletAccount();
+        existing.setCustomerId(200L);
+        existing.setCurrencyCode("GBP");
+        existing.setAmount(new BigDecimal("50.00"));
+        accountRepository.save(existing);
+
+        ImportJob job = bulkImportService.importCsv("partner-1", input(ACCOUNTS), input(TRANSACTIONS));
+
+        Assertions.assertThat(job.accountsLoaded()).isEqualTo(3);
+        Assertions.assertThat(job.transactionsLoaded()).isEqualTo(5);
+        Assertions.assertThat(job.isCompleted()).isTrue();
+        Assertions.assertThat(balance(200L, "GBP")).isEqualByComparingTo("55");
+        Assertions.assertThat(balance(201L, "GBP")).isEqualByComparingTo("69.50");
+        Assertions.assertThat(balance(202L, "GBP")).isEqualByComparingTo("10");
+        Assertions.assertThat(balance(202L, "EUR")).isEqualByComparingTo("7.25");
+
+        WalletAccount account = accountRepository.findByCustomerIdAndCurrencyCode(201L, "GBP").orElseThrow();
+        Assertions.assertThat(account.getCreatedDate()).isEqualTo(Instant.parse("2020-01-01T10:00:00Z"));
+        Assertions.assertThat(account.getCreatedBy()).isEqualTo("import:partner-1");
+        List<WalletTransaction> transactions = transactionRepository.findAll(Sort.by("id"));
+        Assertions.assertThat(transactions).hasSize(5).extracting(WalletTransaction::getCreatedBy).containsOnly("import:partner-1");
+        Assertions.assertThat(transactions.get(0).getRemarks()).isEqualTo("salary, \"january\"");
+        Assertions.assertThat(transactions.get(0).getCreatedDate()).isEqualTo(Instant.parse("2020-01-02T10:00:00Z"));
+        Assertions.assertThat(transactions.get(1).getTransactionType()).isEqualTo(TransactionType.DEBIT);
+        Assertions.assertThat(transactions.get(2).getRemarks()).isEmpty();
+        Assertions.assertThat(transactions.get(3).getRemarks()).isEqualTo("two\r\nlines");
+
+        // A completed import is not run again
+        bulkImportService.importCsv("partner-1", input(ACCOUNTS), input(TRANSACTIONS));
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(5);
+        Assertions.assertThat(balance(201L, "GBP")).isEqualByComparingTo("69.50");
+    }
+
+    @Test
+    void testRestartAfterInvalidRow() throws Exception {
+        String invalid = TRANSACTIONS.replace(",DEBIT,30.50,", ",DEBIT,30.505,");
+
+        Assertions
+            .assertThatThrownBy(() -> bulkImportService.importCsv("partner-2", input(ACCOUNTS), input(invalid)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("line 3 of the transactions");
+        ImportJob job = bulkImportService.findJob("partner-2").orElseThrow();
+        Assertions.assertThat(job.accountsLoaded()).isEqualTo(3);
+        Assertions.assertThat(job.transactionsLoaded()).isZero();
+        Assertions.assertThat(job.isCompleted()).isFalse();
+
+        // Restarted with the row fixed: the accounts are not loaded twice
+        job = bulkImportService.importCsv("partner-2", input(ACCOUNTS), input(TRANSACTIONS));
+
+        Assertions.assertThat(job.accountsLoaded()).isEqualTo(3);
+        Assertions.assertThat(job.transactionsLoaded()).isEqualTo(5);
+        Assertions.assertThat(accountRepository.count()).isEqualTo(3);
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(5);
+        Assertions.assertThat(balance(201L, "GBP")).isEqualByComparingTo("69.50");
+    }
+
+    @Test
+    void testRestartAfterPartialLoad() throws Exception {
+        String invalid = TRANSACTIONS.replace("5,200,", "5,not-a-customer,");
+
+        Assertions
+            .assertThatThrownBy(() -> bulkImportService.importCsv("partner-3", null, input(invalid)))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(bulkImportService.findJob("partner-3").orElseThrow().transactionsLoaded()).isEqualTo(4);
+
+        ImportJob job = bulkImportService.importCsv("partner-3", null, input(TRANSACTIONS));
+
+        Assertions.assertThat(job.transactionsLoaded()).isEqualTo(5);
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(5);
+    }
+
+    @Test
+    void testExistingAccount() throws Exception {
+        WalletAccount existing = new WalletAccount();
+        existing.setCustomerId(202L);
+        existing.setCurrencyCode("EUR");
+        existing.setAmount(BigDecimal.ZERO);
+        accountRepository.save(existing);
+
+        Assertions
+            .assertThatThrownBy(() -> bulkImportService.importCsv("partner-4", input(ACCOUNTS), null))
+            .isInstanceOf(DataIntegrityViolationException.class);
+        // The first chunk has been committed
+        Assertions.assertThat(bulkImportService.findJob("partner-4").orElseThrow().accountsLoaded()).isEqualTo(2);
+    }
+
+    private BigDecimal balance(Long customerId, String currency) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow().getAmount();
+    }
+
+    private static InputStream input(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
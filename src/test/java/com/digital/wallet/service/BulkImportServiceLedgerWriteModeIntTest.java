@@ -0,0 +1,102 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for {@link BulkImportService} with the ledger write mode. Each chunk is committed in its own
+ * transaction so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(properties = { "application.wallet.write-mode=ledger", "application.wallet.bulk-import.chunk-size=2" })
+class BulkImportServiceLedgerWriteModeIntTest {
+
+    private static final String ACCOUNTS =
+        """
+        currencyCode,customerId
+        GBP,201
+        """;
+
+    private static final String TRANSACTIONS =
+        """
+        customerId,transactionType,amount,currencyCode
+        201,CREDIT,100.00,GBP
+        201,DEBIT,30.50,GBP
+        200,CREDIT,5,GBP
+        """;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private LedgerCompactionService ledgerCompactionService;
+
+    @Autowired
+    @Qualifier("SafeDigitalWalletService")
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM wallet_import_job");
+    }
+
+    @Test
+    void testDepositAfterImport() throws Exception {
+        WalletAccount existing = new WalletAccount();
+        existing.setCustomerId(200L);
+        existing.setCurrencyCode("GBP");
+        existing.setAmount(new BigDecimal("50.00"));
+        accountRepository.save(existing);
+        // Allocates the block of ids of the transactions, the import reserves the next ones
+        digitalWalletService.executeDeposit(200L, "GBP", BigDecimal.TEN, "before");
+
+        bulkImportService.importCsv("partner-ledger", input(ACCOUNTS), input(TRANSACTIONS));
+
+        // The loaded transactions are ledger entries
+        Assertions.assertThat(balance(200L)).isEqualByComparingTo("65");
+        Assertions.assertThat(balance(201L)).isEqualByComparingTo("69.50");
+
+        // The snapshots are moved to the loaded transactions, the next operations are still counted
+        ledgerCompactionService.compact();
+        digitalWalletService.executeDeposit(200L, "GBP", BigDecimal.TEN, "after");
+        digitalWalletService.executeWithdrawal(201L, "GBP", BigDecimal.TEN, "after");
+
+        Assertions.assertThat(balance(200L)).isEqualByComparingTo("75");
+        Assertions.assertThat(balance(201L)).isEqualByComparingTo("59.50");
+        ledgerCompactionService.compact();
+        Assertions.assertThat(balance(200L)).isEqualByComparingTo("75");
+        Assertions.assertThat(balance(201L)).isEqualByComparingTo("59.50");
+    }
+
+    private BigDecimal balance(Long customerId) {
+        return digitalWalletService.getBalance(customerId, "GBP").orElseThrow();
+    }
+
+    private static InputStream input(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
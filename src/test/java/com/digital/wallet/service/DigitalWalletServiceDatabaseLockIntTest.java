@@ -0,0 +1,159 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.DigitalWalletApp;
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.config.AsyncSyncConfiguration;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.Assumptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+/**
+ * Integration tests of the database locks, see {@link com.digital.wallet.config.ApplicationProperties.Lock#getDatabase()}.
+ * Two application contexts started on the database of the test, as two instances of a cluster, operate concurrently on
+ * the same accounts. The test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+// Each test starts two application contexts
+@Timeout(value = 2, unit = TimeUnit.MINUTES)
+class DigitalWalletServiceDatabaseLockIntTest {
+
+    private static final String currency = "GBP";
+
+    private static final BigDecimal initialBalance = new BigDecimal(10_000);
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private Environment environment;
+
+    long paulId;
+    long peterId;
+
+    @BeforeEach
+    void setupRepositories() {
+        paulId = createAccount(1L);
+        peterId = createAccount(2L);
+    }
+
+    private long createAccount(long customerId) {
+        WalletAccount account = new WalletAccount();
+        account.setCustomerId(customerId);
+        account.setCurrencyCode(currency);
+        account.setAmount(initialBalance);
+        return accountRepository.save(account).getCustomerId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testRowLocks() throws Exception {
+        checkConcurrentInstances("striped", "row");
+    }
+
+    @Test
+    void testRowLocksOnly() throws Exception {
+        checkConcurrentInstances("none", "row");
+    }
+
+    @Test
+    void testAdvisoryLocksOnly() throws Exception {
+        Assumptions.assumeThat(environment.getProperty("spring.datasource.url")).startsWith("jdbc:postgresql");
+        checkConcurrentInstances("none", "advisory");
+    }
+
+    /**
+     * Each instance deposits, withdraws and transfers in both directions concurrently on the same two accounts, with
+     * the entity write mode: without a database lock, the version of the accounts would make some operations fail.
+     */
+    private void checkConcurrentInstances(String type, String database) throws Exception {
+        int threadsPerInstance = 4;
+        int iterations = 25;
+        List<ConfigurableApplicationContext> instances = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2 * threadsPerInstance);
+        try {
+            instances.add(startInstance(type, database));
+            instances.add(startInstance(type, database));
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2 * threadsPerInstance; t++) {
+                DigitalWalletService service = instances.get(t % 2).getBean(DigitalWalletService.class);
+                // Opposite transfers must not deadlock
+                long from = t / 2 % 2 == 0 ? paulId : peterId;
+                long to = from == paulId ? peterId : paulId;
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            service.executeDeposit(from, currency, MINIMUM_DEPOSIT, "deposit");
+                            service.executeWithdrawal(from, currency, MINIMUM_DEPOSIT, "withdrawal");
+                            service.transfer(from, to, currency, MINIMUM_DEPOSIT, "transfer");
+                        }
+                        return null;
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                // Fails if any operation has failed
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            instances.forEach(ConfigurableApplicationContext::close);
+        }
+
+        // As many transfers in each direction
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(initialBalance);
+        Assertions.assertThat(findAccount(peterId).getAmount()).isEqualByComparingTo(initialBalance);
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(2L * threadsPerInstance * iterations * 4);
+    }
+
+    /**
+     * Starts another instance of the application on the database of the test.
+     */
+    private ConfigurableApplicationContext startInstance(String type, String database) {
+        String url = environment.getRequiredProperty("spring.datasource.url");
+        if (url.startsWith("jdbc:h2:")) {
+            // H2 waits 1 second for a row lock by default
+            url += ";LOCK_TIMEOUT=30000";
+        }
+        return new SpringApplicationBuilder(DigitalWalletApp.class, AsyncSyncConfiguration.class)
+            .profiles(environment.getActiveProfiles())
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + environment.getProperty("spring.datasource.username", ""),
+                "--spring.datasource.password=" + environment.getProperty("spring.datasource.password", ""),
+                "--application.wallet.lock.type=" + type,
+                "--application.wallet.lock.database=" + database
+            );
+    }
+
+    private WalletAccount findAccount(long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
@@ -0,0 +1,154 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.IdempotencyKey;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletIdempotencyKeyRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the deposits and withdrawals with an idempotency key, see {@link IdempotencyKeyService}. A
+ * replay detected by the unique constraint rolls back the transaction of the operation, so the test is not
+ * transactional and cleans up after itself.
+ */
+@IntegrationTest
+class DigitalWalletServiceIdempotencyIntTest {
+
+    private static final String currency = "GBP";
+
+    /**
+     * The service remembers the recent keys of each customer: every test has its own customer.
+     */
+    private static final AtomicLong customerIds = new AtomicLong();
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    long paulId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(customerIds.incrementAndGet());
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(100));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            jdbcTemplate.update("DELETE FROM wallet_idempotency_key")
+        );
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testRetriedOperationsAreAppliedOnce() {
+        for (int i = 0; i < 3; i++) {
+            digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "deposit", "deposit-1");
+            digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(30), "withdrawal", "withdrawal-1");
+        }
+        // Without key, every call is applied
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "deposit");
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "deposit");
+
+        checkBalance("220");
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(4);
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(60), "deposit", "deposit-1"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The idempotency key deposit-1 has already been used for another operation");
+    }
+
+    @Test
+    void testRejectedOperationDoesNotRecordItsKey() {
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(150), "", "withdrawal-1"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance");
+        Assertions.assertThat(idempotencyKeyRepository.findById(paulId, "withdrawal-1")).isEmpty();
+
+        // The retry is applied once the balance is sufficient
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(150), "", "withdrawal-1");
+        checkBalance("0");
+        Assertions.assertThat(idempotencyKeyRepository.findById(paulId, "withdrawal-1")).isPresent();
+    }
+
+    @Test
+    void testKeyRecordedByAnotherInstance() {
+        // Unknown in memory: the operation fails on the unique constraint, is rolled back and replayed
+        recordedByAnotherInstance("deposit-1");
+        digitalWalletService.executeDeposit(paulId, currency, BigDecimal.TEN, "deposit", "deposit-1");
+        checkBalance("100");
+        Assertions.assertThat(transactionRepository.count()).isZero();
+    }
+
+    @Test
+    void testBatch() {
+        recordedByAnotherInstance("other-1");
+        List<WalletOperation> operations = List.of(
+            WalletOperation.deposit(paulId, currency, BigDecimal.TEN, "", "deposit-1"),
+            // Duplicate in the same batch
+            WalletOperation.deposit(paulId, currency, BigDecimal.TEN, "", "deposit-1"),
+            WalletOperation.deposit(paulId, currency, new BigDecimal(20), "", "deposit-1"),
+            // Recorded by another instance
+            WalletOperation.deposit(paulId, currency, BigDecimal.TEN, "", "other-1"),
+            WalletOperation.withdrawal(paulId, currency, new BigDecimal(5), "", "withdrawal-1")
+        );
+        List<WalletOperationResult> results = digitalWalletService.executeBatch(operations);
+        Assertions.assertThat(results).extracting(WalletOperationResult::isSuccess).containsExactly(true, true, false, true, true);
+        checkBalance("105");
+
+        // Retry of the whole batch
+        results = digitalWalletService.executeBatch(operations);
+        Assertions.assertThat(results).extracting(WalletOperationResult::isSuccess).containsExactly(true, true, false, true, true);
+        checkBalance("105");
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(2);
+    }
+
+    private void recordedByAnotherInstance(String idempotencyKey) {
+        IdempotencyKey key = new IdempotencyKey(paulId, idempotencyKey, TransactionType.CREDIT, currency, BigDecimal.TEN);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> idempotencyKeyRepository.insertAll(List.of(key)));
+    }
+
+    private void checkBalance(String expected) {
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(expected);
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
@@ -8,9 +8,17 @@ import com.digital.wallet.domain.WalletAccount;
 import com.digital.wallet.domain.WalletTransaction;
 import com.digital.wallet.repository.WalletAccountRepository;
 import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.TransactionHistory;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +27,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -40,6 +50,12 @@ class DigitalWalletServiceIntTest {
     @Qualifier("SafeDigitalWalletService")
     private DigitalWalletService digitalWalletService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     // Two customer ids...
     long paulId;
     long peterId;
@@ -48,14 +64,16 @@ class DigitalWalletServiceIntTest {
     void setupRepositories() {
         // Create the accounts with a balance of 0
         WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
         paulAccount.setCurrencyCode(currency);
         paulAccount.setAmount(new BigDecimal(0));
-        paulId = accountRepository.save(paulAccount).getId();
+        paulId = accountRepository.save(paulAccount).getCustomerId();
 
         WalletAccount peterAccount = new WalletAccount();
+        peterAccount.setCustomerId(2L);
         peterAccount.setCurrencyCode(currency);
         peterAccount.setAmount(new BigDecimal(0));
-        peterId = accountRepository.save(peterAccount).getId();
+        peterId = accountRepository.save(peterAccount).getCustomerId();
     }
 
     @Test
@@ -92,6 +110,48 @@ class DigitalWalletServiceIntTest {
         checkWalletTransaction(transactions.iterator().next(), peterId, fortyTwo, TransactionType.CREDIT);
     }
 
+    @Test
+    void testMultiCurrency() {
+        WalletAccount paulEurAccount = new WalletAccount();
+        paulEurAccount.setCustomerId(paulId);
+        paulEurAccount.setCurrencyCode("EUR");
+        paulEurAccount.setAmount(new BigDecimal(0));
+        this.accountRepository.save(paulEurAccount);
+
+        this.digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+        this.digitalWalletService.executeDeposit(paulId, "EUR", new BigDecimal(30), "");
+        this.digitalWalletService.executeWithdrawal(paulId, "EUR", new BigDecimal(10), "");
+
+        // Each currency has its own balance
+        checkWalletAccount(paulId, new BigDecimal(100));
+        Assertions.assertThat(this.digitalWalletService.getBalance(paulId, "EUR").orElseThrow()).isEqualByComparingTo("20");
+        Assertions.assertThat(this.digitalWalletService.getBalance(paulId, "USD")).isEmpty();
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.executeWithdrawal(paulId, "EUR", new BigDecimal(21), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 21");
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.executeDeposit(paulId, "USD", new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The user has no account associated to the currency: USD");
+        // The transactions of the customer are the ones of all its accounts
+        Assertions
+            .assertThat(this.digitalWalletService.getTransactions(paulId, Pageable.unpaged()))
+            .extracting(WalletTransaction::getCurrencyCode)
+            .containsExactlyInAnyOrder(currency, "EUR", "EUR");
+
+        List<WalletOperationResult> results = this.digitalWalletService.executeBatch(
+            List.of(
+                WalletOperation.deposit(paulId, "EUR", new BigDecimal(10), ""),
+                WalletOperation.withdrawal(paulId, currency, new BigDecimal(50), ""),
+                WalletOperation.deposit(paulId, "USD", new BigDecimal(10), "")
+            )
+        );
+        Assertions.assertThat(results).extracting(WalletOperationResult::isSuccess).containsExactly(true, true, false);
+        checkWalletAccount(paulId, new BigDecimal(50));
+        Assertions.assertThat(this.digitalWalletService.getBalance(paulId, "EUR").orElseThrow()).isEqualByComparingTo("30");
+    }
+
     @Test
     void testDepositBounds() {
         Assertions
@@ -159,6 +219,59 @@ class DigitalWalletServiceIntTest {
         Assertions.assertThat(transactions.getSize()).isEqualTo(1);
     }
 
+    @Test
+    void testOperationResults() {
+        Assertions
+            .assertThat(this.digitalWalletService.applyDeposit(paulId, currency, new BigDecimal(100), "", null))
+            .isEqualTo(OperationResult.OK);
+        Assertions
+            .assertThat(this.digitalWalletService.applyDeposit(paulId, currency, MINIMUM_DEPOSIT.subtract(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.BELOW_MIN);
+        Assertions
+            .assertThat(this.digitalWalletService.applyDeposit(paulId, currency, MAXIMUM_DEPOSIT.add(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.ABOVE_MAX);
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal(-1), "", null))
+            .isEqualTo(OperationResult.BELOW_MIN);
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(paulId, currency, MAXIMUM_WITHDRAWAL.add(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.ABOVE_MAX);
+        Assertions
+            .assertThat(this.digitalWalletService.applyDeposit(paulId, currency, new BigDecimal("10.005"), "", null))
+            .isEqualTo(OperationResult.TOO_MANY_DECIMALS);
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal("10.005"), "", null))
+            .isEqualTo(OperationResult.TOO_MANY_DECIMALS);
+        Assertions
+            .assertThat(OperationResult.TOO_MANY_DECIMALS.message(WalletOperation.deposit(paulId, currency, new BigDecimal("10.005"), "")))
+            .isEqualTo("The amount 10.005 has more than 2 decimals");
+        // Trailing zeros are not decimals
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal("1000.000"), "", null).status())
+            .isEqualTo(OperationResult.Status.INSUFFICIENT_FUNDS);
+
+        OperationResult insufficientFunds = this.digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal(101), "", null);
+        Assertions.assertThat(insufficientFunds.status()).isEqualTo(OperationResult.Status.INSUFFICIENT_FUNDS);
+        Assertions.assertThat(insufficientFunds.balance()).isEqualByComparingTo("100");
+        Assertions
+            .assertThat(insufficientFunds.message(WalletOperation.withdrawal(paulId, currency, new BigDecimal(101), "")))
+            .isEqualTo("Insufficient balance. You are trying to withdraw 101 but the balance is 100");
+
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal(40), "", null))
+            .isEqualTo(OperationResult.OK);
+        Assertions
+            .assertThat(this.digitalWalletService.applyDeposit(paulId, "EUR", new BigDecimal(20), "", null))
+            .isEqualTo(OperationResult.CURRENCY_MISMATCH);
+        Assertions
+            .assertThat(this.digitalWalletService.applyWithdrawal(11111111L, currency, new BigDecimal(20), "", null))
+            .isEqualTo(OperationResult.UNKNOWN_ACCOUNT);
+
+        // Only the accepted operations have been applied
+        checkWalletAccount(paulId, new BigDecimal(60));
+        Assertions.assertThat(this.digitalWalletService.getTransactions(paulId, Pageable.unpaged()).getTotalElements()).isEqualTo(2);
+    }
+
     @Test
     void testTransactionPagination() {
         // Create several trxs and try to fetch them
@@ -183,6 +296,204 @@ class DigitalWalletServiceIntTest {
         }
     }
 
+    @Test
+    void testBatch() {
+        long unknown = 11111111L;
+        List<WalletOperation> operations = List.of(
+            WalletOperation.deposit(paulId, currency, new BigDecimal(100), "salary"),
+            WalletOperation.deposit(peterId, currency, new BigDecimal(50), "salary"),
+            // Applied after the deposit of paul
+            WalletOperation.withdrawal(paulId, currency, new BigDecimal(30), "rent"),
+            WalletOperation.withdrawal(peterId, currency, new BigDecimal(51), "rent"),
+            WalletOperation.deposit(paulId, currency, MAXIMUM_DEPOSIT.add(new BigDecimal(1)), "bonus"),
+            WalletOperation.deposit(peterId, "EUR", new BigDecimal(20), "bonus"),
+            WalletOperation.deposit(unknown, currency, new BigDecimal(20), "bonus")
+        );
+        List<WalletOperationResult> results = this.digitalWalletService.executeBatch(operations);
+
+        Assertions.assertThat(results).extracting(WalletOperationResult::operation).containsExactlyElementsOf(operations);
+        Assertions
+            .assertThat(results)
+            .extracting(WalletOperationResult::isSuccess)
+            .containsExactly(true, true, true, false, false, false, false);
+        Assertions
+            .assertThat(results)
+            .extracting(WalletOperationResult::error)
+            .containsExactly(
+                null,
+                null,
+                null,
+                "Insufficient balance. You are trying to withdraw 51 but the balance is 50",
+                "Maximum deposit allowed is 10000",
+                "The user has no account associated to the currency: EUR",
+                "Unknown customer: " + unknown
+            );
+        Assertions
+            .assertThat(results)
+            .extracting(result -> result.result().status())
+            .containsExactly(
+                OperationResult.Status.OK,
+                OperationResult.Status.OK,
+                OperationResult.Status.OK,
+                OperationResult.Status.INSUFFICIENT_FUNDS,
+                OperationResult.Status.ABOVE_MAX,
+                OperationResult.Status.CURRENCY_MISMATCH,
+                OperationResult.Status.UNKNOWN_ACCOUNT
+            );
+
+        checkWalletAccount(paulId, new BigDecimal(70));
+        checkWalletAccount(peterId, new BigDecimal(50));
+        Iterator<WalletTransaction> iterator = this.digitalWalletService.getTransactions(paulId, Pageable.unpaged()).iterator();
+        checkWalletTransaction(iterator.next(), paulId, new BigDecimal(100), TransactionType.CREDIT);
+        checkWalletTransaction(iterator.next(), paulId, new BigDecimal(30), TransactionType.DEBIT);
+        Assertions.assertThat(iterator.hasNext()).isFalse();
+        Assertions.assertThat(this.digitalWalletService.getTransactions(peterId, Pageable.unpaged()).getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void testTransfer() {
+        this.digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "salary");
+        this.digitalWalletService.transfer(paulId, peterId, currency, new BigDecimal(40), "lunch");
+
+        checkWalletAccount(paulId, new BigDecimal(60));
+        checkWalletAccount(peterId, new BigDecimal(40));
+        Iterator<WalletTransaction> iterator = this.digitalWalletService.getTransactions(paulId, Pageable.unpaged()).iterator();
+        checkWalletTransaction(iterator.next(), paulId, new BigDecimal(100), TransactionType.CREDIT);
+        checkWalletTransaction(iterator.next(), paulId, new BigDecimal(40), TransactionType.DEBIT);
+        Assertions.assertThat(iterator.hasNext()).isFalse();
+        iterator = this.digitalWalletService.getTransactions(peterId, Pageable.unpaged()).iterator();
+        checkWalletTransaction(iterator.next(), peterId, new BigDecimal(40), TransactionType.CREDIT);
+        Assertions.assertThat(iterator.hasNext()).isFalse();
+
+        long unknown = 11111111L;
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.transfer(paulId, peterId, currency, new BigDecimal(61), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 61");
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.transfer(paulId, peterId, currency, new BigDecimal(5), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Minimum deposit allowed is " + MINIMUM_DEPOSIT);
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.transfer(paulId, unknown, currency, new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown customer: " + unknown);
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.transfer(paulId, peterId, "EUR", new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The user has no account associated to the currency: EUR");
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.transfer(paulId, paulId, currency, new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class);
+        // Nothing has been applied
+        checkWalletAccount(paulId, new BigDecimal(60));
+        checkWalletAccount(peterId, new BigDecimal(40));
+    }
+
+    @Test
+    void testOperationMetrics() {
+        long deposits = operationCount("wallet.operation", "deposit", "success");
+        long breaches = operationCount("wallet.operation", "deposit", "limit-breach");
+        long insufficientFunds = operationCount("wallet.operation.lock.hold", "withdrawal", "insufficient-funds");
+        long unknownAccounts = operationCount("wallet.operation.transaction", "deposit", "unknown-account");
+        long transfers = operationCount("wallet.operation.lock.wait", "transfer", "success");
+
+        this.digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(10), "deposit");
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.executeDeposit(paulId, currency, MAXIMUM_DEPOSIT.add(BigDecimal.ONE), ""))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions
+            .assertThatThrownBy(() -> this.digitalWalletService.executeWithdrawal(peterId, currency, new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class);
+        this.digitalWalletService.executeDeposit(-1L, currency, new BigDecimal(10), "unknown");
+        this.digitalWalletService.transfer(paulId, peterId, currency, new BigDecimal(10), "transfer");
+
+        Assertions.assertThat(operationCount("wallet.operation", "deposit", "success")).isEqualTo(deposits + 1);
+        Assertions.assertThat(operationCount("wallet.operation", "deposit", "limit-breach")).isEqualTo(breaches + 1);
+        Assertions
+            .assertThat(operationCount("wallet.operation.lock.hold", "withdrawal", "insufficient-funds"))
+            .isEqualTo(insufficientFunds + 1);
+        Assertions.assertThat(operationCount("wallet.operation.transaction", "deposit", "unknown-account")).isEqualTo(unknownAccounts + 1);
+        Assertions.assertThat(operationCount("wallet.operation.lock.wait", "transfer", "success")).isEqualTo(transfers + 1);
+        Assertions
+            .assertThat(this.meterRegistry.get("wallet.operation.transaction").tags("operation", "deposit", "outcome", "success").timer())
+            .extracting(timer -> timer.totalTime(TimeUnit.NANOSECONDS))
+            .isNotEqualTo(0d);
+    }
+
+    private long operationCount(String timer, String operation, String outcome) {
+        return this.meterRegistry.get(timer).tags("operation", operation, "outcome", outcome).timer().count();
+    }
+
+    @Test
+    void testTransactionsInPeriod() {
+        List<Instant> dates = List.of(
+            Instant.parse("2024-01-01T00:00:00Z"),
+            Instant.parse("2024-02-01T00:00:00Z"),
+            Instant.parse("2024-03-01T00:00:00Z")
+        );
+        for (int i = 0; i < dates.size(); i++) {
+            this.digitalWalletService.executeDeposit(paulId, currency, MINIMUM_DEPOSIT.add(new BigDecimal(i)), "");
+        }
+        this.transactionRepository.flush();
+        // The creation date is audited and not updatable
+        List<WalletTransaction> transactions = this.transactionRepository.findAll();
+        for (int i = 0; i < dates.size(); i++) {
+            this.jdbcTemplate.update(
+                    "update wallet_transaction set created_date = ? where id = ?",
+                    Timestamp.from(dates.get(i)),
+                    transactions.get(i).getId()
+                );
+        }
+
+        Page<WalletTransaction> page =
+            this.digitalWalletService.getTransactions(paulId, Instant.parse("2024-01-15T00:00:00Z"), dates.get(2), Pageable.unpaged());
+        Assertions.assertThat(page.getContent()).extracting(WalletTransaction::getId).containsExactly(transactions.get(1).getId());
+        page = this.digitalWalletService.getTransactions(paulId, dates.get(0), dates.get(2).plusSeconds(1), PageRequest.of(0, 2));
+        Assertions.assertThat(page.getContent()).hasSize(2);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(this.digitalWalletService.getTransactions(peterId, dates.get(0), dates.get(2), Pageable.unpaged())).isEmpty();
+    }
+
+    @Test
+    void testTransactionSlice() {
+        for (int i = 0; i < 15; i++) {
+            this.digitalWalletService.executeDeposit(paulId, currency, MINIMUM_DEPOSIT.add(new BigDecimal(i)), "");
+        }
+        Slice<WalletTransaction> slice = this.digitalWalletService.getTransactionSlice(paulId, PageRequest.of(0, 10));
+        Assertions.assertThat(slice.getContent()).hasSize(10);
+        Assertions.assertThat(slice.hasNext()).isTrue();
+        slice = this.digitalWalletService.getTransactionSlice(paulId, slice.nextPageable());
+        Assertions.assertThat(slice.getContent()).hasSize(5);
+        Assertions.assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    void testTransactionHistory() {
+        int nbOfTrx = 20;
+        for (int i = 0; i < nbOfTrx; i++) {
+            this.digitalWalletService.executeDeposit(paulId, currency, MINIMUM_DEPOSIT.add(new BigDecimal(i)), "");
+        }
+        this.digitalWalletService.executeDeposit(peterId, currency, MINIMUM_DEPOSIT, "");
+
+        // Most recent first, 3 pages of 7, 7 and 6 transactions
+        int i = nbOfTrx;
+        int pages = 0;
+        TransactionHistory history = null;
+        do {
+            history = this.digitalWalletService.getTransactionHistory(paulId, history == null ? null : history.next(), 7);
+            for (WalletTransaction trx : history.transactions()) {
+                checkWalletTransaction(trx, paulId, MINIMUM_DEPOSIT.add(new BigDecimal(--i)), TransactionType.CREDIT);
+            }
+            pages++;
+        } while (history.hasNext());
+        Assertions.assertThat(i).isZero();
+        Assertions.assertThat(pages).isEqualTo(3);
+        Assertions.assertThat(history.transactions()).hasSize(6);
+
+        Assertions.assertThat(this.digitalWalletService.getTransactionHistory(11111111L, null, 7).transactions()).isEmpty();
+    }
+
     /**
      * Make sure nothing happens if the customer does not exist
      */
@@ -190,7 +501,8 @@ class DigitalWalletServiceIntTest {
     void testDepositWithdrawalUnknownCustomer() {
         // Make sure it does not exist
         long unknown = 11111111L;
-        Assertions.assertThat(this.accountRepository.findById(unknown).isPresent()).isFalse();
+        Assertions.assertThat(this.accountRepository.findByCustomerIdAndCurrencyCode(unknown, currency).isPresent()).isFalse();
+        Assertions.assertThat(this.digitalWalletService.getBalance(unknown, currency)).isEmpty();
 
         BigDecimal amount = new BigDecimal(10);
         this.digitalWalletService.executeDeposit(unknown, currency, amount, "my first deposit");
@@ -204,10 +516,11 @@ class DigitalWalletServiceIntTest {
     }
 
     private void checkWalletAccount(Long customerId, BigDecimal amount) {
-        WalletAccount walletAccount = this.accountRepository.findById(customerId).orElseThrow();
-        Assertions.assertThat(walletAccount.getId()).isEqualTo(customerId);
+        WalletAccount walletAccount = this.accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+        Assertions.assertThat(walletAccount.getCustomerId()).isEqualTo(customerId);
         Assertions.assertThat(walletAccount.getAmount()).isEqualTo(amount);
         Assertions.assertThat(walletAccount.getCurrencyCode()).isEqualTo(currency);
+        Assertions.assertThat(this.digitalWalletService.getBalance(customerId, currency)).hasValue(amount);
     }
 
     private void checkWalletTransaction(WalletTransaction trx, Long customerId, BigDecimal amount, TransactionType transactionType) {
@@ -0,0 +1,144 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import java.math.BigDecimal;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link DigitalWalletService} with the ledger write mode, and for
+ * {@link LedgerCompactionService}.
+ */
+@IntegrationTest
+@Transactional
+@TestPropertySource(properties = { "application.wallet.write-mode=ledger", "application.wallet.ledger.compaction-batch-size=2" })
+class DigitalWalletServiceLedgerWriteModeIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    @Qualifier("SafeDigitalWalletService")
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private LedgerCompactionService compactionService;
+
+    long paulId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+    }
+
+    @Test
+    void testDepositWithdrawal() {
+        WalletAccount account = findAccount(paulId);
+        long version = account.getVersion();
+
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "deposit");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(30), "withdrawal");
+
+        // The account has not been updated, only the transactions have been inserted
+        Assertions.assertThat(account.getAmount()).isEqualByComparingTo("0");
+        Assertions.assertThat(account.getVersion()).isEqualTo(version);
+        Assertions.assertThat(transactionRepository.findAll()).hasSize(2);
+        checkBalance(paulId, "70");
+        Assertions.assertThat(digitalWalletService.getBalance(11111111L, currency)).isEmpty();
+    }
+
+    @Test
+    void testRejectedOperations() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+
+        // The balance used to check the withdrawal includes the transactions after the snapshot
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(101), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 101 but the balance is 100");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, "EUR", new BigDecimal(100), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("The user has no account associated to the currency: EUR");
+        Assertions.assertThat(transactionRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void testBatch() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+        List<WalletOperationResult> results = digitalWalletService.executeBatch(
+            List.of(
+                WalletOperation.withdrawal(paulId, currency, new BigDecimal(60), ""),
+                WalletOperation.withdrawal(paulId, currency, new BigDecimal(60), ""),
+                WalletOperation.deposit(paulId, currency, new BigDecimal(10), "")
+            )
+        );
+        Assertions.assertThat(results).extracting(WalletOperationResult::isSuccess).containsExactly(true, false, true);
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("0");
+        checkBalance(paulId, "50");
+    }
+
+    @Test
+    void testCompaction() {
+        WalletAccount peterAccount = new WalletAccount();
+        peterAccount.setCustomerId(2L);
+        peterAccount.setCurrencyCode(currency);
+        peterAccount.setAmount(new BigDecimal(5));
+        long peterId = accountRepository.save(peterAccount).getCustomerId();
+        WalletAccount idleAccount = new WalletAccount();
+        idleAccount.setCustomerId(3L);
+        idleAccount.setCurrencyCode(currency);
+        idleAccount.setAmount(new BigDecimal(0));
+        long idleId = accountRepository.save(idleAccount).getCustomerId();
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(30), "");
+        digitalWalletService.executeDeposit(peterId, currency, new BigDecimal(20), "");
+
+        // More accounts to compact than the batch size, but only 2 have transactions after their snapshot
+        Assertions.assertThat(compactionService.compact()).isEqualTo(2);
+
+        WalletAccount paul = findAccount(paulId);
+        Assertions.assertThat(paul.getAmount()).isEqualByComparingTo("70");
+        Assertions.assertThat(paul.getLedgerSnapshotId()).isNotNull();
+        Assertions.assertThat(findAccount(peterId).getAmount()).isEqualByComparingTo("25");
+        Assertions.assertThat(findAccount(idleId).getLedgerSnapshotId()).isNull();
+        // Nothing left to compact, the balance is the snapshot
+        Assertions.assertThat(compactionService.compact()).isZero();
+        checkBalance(paulId, "70");
+
+        // The transactions after the snapshot are still counted
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(70), "");
+        checkBalance(paulId, "0");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(1), ""))
+            .hasMessageContaining("Insufficient balance");
+    }
+
+    private void checkBalance(long customerId, String expected) {
+        Assertions.assertThat(digitalWalletService.getBalance(customerId, currency).orElseThrow()).isEqualByComparingTo(expected);
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
@@ -0,0 +1,126 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.MAXIMUM_WITHDRAWAL;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import java.math.BigDecimal;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link DigitalWalletService} with the single statement write mode.
+ */
+@IntegrationTest
+@Transactional
+@TestPropertySource(properties = "application.wallet.write-mode=sql")
+class DigitalWalletServiceSqlWriteModeIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    @Qualifier("SafeDigitalWalletService")
+    private DigitalWalletService digitalWalletService;
+
+    long paulId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+    }
+
+    @Test
+    void testDepositWithdrawal() {
+        WalletAccount account = findAccount(paulId);
+        long version = account.getVersion();
+
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "deposit");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(30), "withdrawal");
+
+        // The managed entity has been refreshed
+        Assertions.assertThat(account.getAmount()).isEqualByComparingTo("70");
+        Assertions.assertThat(account.getVersion()).isEqualTo(version + 2);
+
+        List<WalletTransaction> transactions = digitalWalletService.getTransactions(paulId, Pageable.unpaged()).getContent();
+        Assertions.assertThat(transactions).hasSize(2);
+        Assertions.assertThat(transactions.get(0).getTransactionType()).isEqualTo(TransactionType.CREDIT);
+        Assertions.assertThat(transactions.get(0).getAmount()).isEqualByComparingTo("100");
+        Assertions.assertThat(transactions.get(0).getRemarks()).isEqualTo("deposit");
+        Assertions.assertThat(transactions.get(0).getCreatedBy()).isNotNull();
+        Assertions.assertThat(transactions.get(1).getTransactionType()).isEqualTo(TransactionType.DEBIT);
+        Assertions.assertThat(transactions.get(1).getAmount()).isEqualByComparingTo("30");
+    }
+
+    @Test
+    void testRejectedOperations() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(101), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 101 but the balance is 100");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(-1), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Withdrawal amount cannot be negative");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, "EUR", new BigDecimal(100), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("The user has no account associated to the currency: EUR");
+
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("100");
+        Assertions.assertThat(transactionRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void testDepositWithdrawalUnknownCustomer() {
+        long unknown = 11111111L;
+        digitalWalletService.executeDeposit(unknown, currency, new BigDecimal(10), "");
+        digitalWalletService.executeWithdrawal(unknown, currency, new BigDecimal(10), "");
+        Assertions.assertThat(transactionRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void testRejectedAmountOfMissingAccount() {
+        // The account is checked before the amount, as with entities
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(11111111L, currency, MAXIMUM_WITHDRAWAL.add(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.UNKNOWN_ACCOUNT);
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(11111111L, currency, new BigDecimal(-1), "", null))
+            .isEqualTo(OperationResult.UNKNOWN_ACCOUNT);
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(paulId, "EUR", MAXIMUM_WITHDRAWAL.add(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.CURRENCY_MISMATCH);
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(paulId, currency, MAXIMUM_WITHDRAWAL.add(BigDecimal.ONE), "", null))
+            .isEqualTo(OperationResult.ABOVE_MAX);
+        Assertions.assertThat(transactionRepository.findAll()).isEmpty();
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
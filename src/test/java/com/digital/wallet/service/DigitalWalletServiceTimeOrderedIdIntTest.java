@@ -0,0 +1,80 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TimeOrderedIds;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link DigitalWalletService} with the time ordered ids, see
+ * {@link com.digital.wallet.config.ApplicationProperties.Id.Strategy#TIME_ORDERED}. The single statement write mode
+ * allocates the ids of its transactions without Hibernate.
+ */
+@IntegrationTest
+@Transactional
+@TestPropertySource(
+    properties = { "application.wallet.id.strategy=time-ordered", "application.wallet.id.node-id=7", "application.wallet.write-mode=sql" }
+)
+class DigitalWalletServiceTimeOrderedIdIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    @Qualifier("SafeDigitalWalletService")
+    private DigitalWalletService digitalWalletService;
+
+    @Test
+    void testIdsAreTimeOrdered() {
+        Instant start = Instant.now();
+        long paulId = createAccount(1L).getCustomerId();
+        long peterId = createAccount(2L).getCustomerId();
+
+        // Single statement, then entities
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "deposit");
+        digitalWalletService.transfer(paulId, peterId, currency, MINIMUM_DEPOSIT, "transfer");
+
+        List<Long> ids = digitalWalletService
+            .getTransactions(paulId, Pageable.unpaged())
+            .getContent()
+            .stream()
+            .map(WalletTransaction::getId)
+            .toList();
+        Assertions.assertThat(ids).hasSize(2).isSorted();
+        Assertions.assertThat(ids).allSatisfy(id -> checkId(id, start));
+        checkId(findAccount(paulId).getId(), start);
+    }
+
+    private static void checkId(long id, Instant start) {
+        Assertions.assertThat(TimeOrderedIds.nodeIdOf(id)).isEqualTo(7);
+        Assertions.assertThat(TimeOrderedIds.timestampOf(id)).isBetween(start.minusMillis(1), Instant.now().plus(Duration.ofSeconds(1)));
+    }
+
+    private WalletAccount createAccount(long customerId) {
+        WalletAccount account = new WalletAccount();
+        account.setCustomerId(customerId);
+        account.setCurrencyCode(currency);
+        account.setAmount(BigDecimal.ZERO);
+        return accountRepository.save(account);
+    }
+
+    private WalletAccount findAccount(long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
@@ -0,0 +1,259 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for {@link GroupCommitDigitalWalletService}. Operations are applied in the transaction of another
+ * caller, so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.wallet.mode=group-commit",
+        "application.wallet.group-commit.max-batch-size=8",
+        "application.wallet.group-commit.linger=20ms",
+    }
+)
+class GroupCommitDigitalWalletServiceIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private GroupCommitDigitalWalletService groupCommitDigitalWalletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    long paulId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            jdbcTemplate.update("DELETE FROM wallet_idempotency_key")
+        );
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testPrimaryServiceIsGroupCommit() {
+        Assertions.assertThat(digitalWalletService).isSameAs(groupCommitDigitalWalletService);
+    }
+
+    @Test
+    void testDepositWithdrawal() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(40), "");
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("60");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(61), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance. You are trying to withdraw 61");
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(paulId, currency, new BigDecimal(61), "", null).status())
+            .isEqualTo(OperationResult.Status.INSUFFICIENT_FUNDS);
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, "EUR", new BigDecimal(10), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The user has no account associated to the currency: EUR");
+        // Nothing happens for an unknown customer, as with the other implementations
+        digitalWalletService.executeDeposit(11111111L, currency, new BigDecimal(10), "");
+        Page<WalletTransaction> transactions = digitalWalletService.getTransactions(paulId, Pageable.unpaged());
+        Assertions.assertThat(transactions.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void testOperationsRejectedWithAnException() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "", "reused-key");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(50), "", "reused-key"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The idempotency key reused-key has already been used for another operation");
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeDeposit(paulId, currency, new BigDecimal("10.005"), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The amount 10.005 has more than 2 decimals");
+        Assertions
+            .assertThat(digitalWalletService.applyDeposit(paulId, currency, new BigDecimal("10.005"), "", null))
+            .isEqualTo(OperationResult.TOO_MANY_DECIMALS);
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("100");
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void testConcurrentOperations() throws Exception {
+        double groupsBefore = meterRegistry.get("wallet.group-commit.size").summary().count();
+        int threads = 16;
+        int iterations = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean depositor = t % 2 == 0;
+                futures.add(
+                    executor.submit(() -> {
+                        int failures = 0;
+                        for (int i = 0; i < iterations; i++) {
+                            try {
+                                if (depositor) {
+                                    digitalWalletService.executeDeposit(paulId, currency, MINIMUM_DEPOSIT, "deposit");
+                                } else {
+                                    digitalWalletService.executeWithdrawal(paulId, currency, MINIMUM_DEPOSIT, "withdrawal");
+                                }
+                            } catch (IllegalArgumentException e) {
+                                // Insufficient balance
+                                failures++;
+                            }
+                        }
+                        return failures;
+                    })
+                );
+            }
+            int failures = 0;
+            for (Future<Integer> future : futures) {
+                failures += future.get(60, TimeUnit.SECONDS);
+            }
+
+            // Every caller has been told whether its operation has been applied
+            int applied = threads * iterations - failures;
+            long deposits = (long) threads / 2 * iterations;
+            long withdrawals = applied - deposits;
+            BigDecimal balance = MINIMUM_DEPOSIT.multiply(BigDecimal.valueOf(deposits - withdrawals));
+            Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(balance);
+            Assertions.assertThat(transactionRepository.count()).isEqualTo(applied);
+            // Operations have been grouped
+            double groups = meterRegistry.get("wallet.group-commit.size").summary().count() - groupsBefore;
+            Assertions.assertThat(groups).isLessThan(threads * iterations);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentTransfers() throws Exception {
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WalletAccount account = new WalletAccount();
+            account.setCustomerId(100L + i);
+            account.setCurrencyCode(currency);
+            account.setAmount(new BigDecimal(1000));
+            customerIds.add(accountRepository.save(account).getCustomerId());
+        }
+        int threads = 8;
+        int iterations = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Half of the threads transfer in one direction, half in the other one: no deadlock
+                int direction = t % 2 == 0 ? 1 : customerIds.size() - 1;
+                int offset = t;
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            int from = (offset + i) % customerIds.size();
+                            int to = (from + direction) % customerIds.size();
+                            digitalWalletService.transfer(customerIds.get(from), customerIds.get(to), currency, MINIMUM_DEPOSIT, "");
+                        }
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each transfer has been applied entirely: the total is unchanged
+        BigDecimal total = accountRepository
+            .findAllByCustomerIdIn(customerIds)
+            .stream()
+            .map(WalletAccount::getAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Assertions.assertThat(total).isEqualByComparingTo("4000");
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(2L * threads * iterations);
+    }
+
+    @Test
+    void testConcurrentRetries() throws Exception {
+        // Retries of the same deposits queued on the account, some of them applied in the same group
+        int threads = 8;
+        int deposits = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < deposits; i++) {
+                            digitalWalletService.executeDeposit(paulId, currency, MINIMUM_DEPOSIT, "deposit", "deposit-" + i);
+                        }
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        BigDecimal balance = MINIMUM_DEPOSIT.multiply(BigDecimal.valueOf(deposits));
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(balance);
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(deposits);
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
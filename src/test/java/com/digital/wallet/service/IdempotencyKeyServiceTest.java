@@ -0,0 +1,122 @@
+package com.digital.wallet.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.repository.IdempotencyKey;
+import com.digital.wallet.repository.WalletIdempotencyKeyRepository;
+import com.digital.wallet.service.dto.WalletOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * Unit tests for {@link IdempotencyKeyService}.
+ */
+class IdempotencyKeyServiceTest {
+
+    private static final WalletOperation DEPOSIT = WalletOperation.deposit(1L, "GBP", new BigDecimal(10), "", "key-1");
+
+    private final WalletIdempotencyKeyRepository repository = mock(WalletIdempotencyKeyRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testRecentKeys() {
+        IdempotencyKeyService service = service(100, 0);
+        Assertions.assertThat(service.isReplay(DEPOSIT)).isFalse();
+        service.record(List.of(DEPOSIT));
+        verify(repository).insertAll(List.of(new IdempotencyKey(1L, "key-1", DEPOSIT.type(), "GBP", new BigDecimal(10))));
+
+        // Same amount, different scale
+        Assertions.assertThat(service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal("10.00"), "", "key-1"))).isTrue();
+        // Keys are per customer
+        Assertions.assertThat(service.isReplay(WalletOperation.deposit(2L, "GBP", new BigDecimal(10), "", "key-1"))).isFalse();
+        Assertions.assertThat(service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal(10), "", null))).isFalse();
+        // Without Bloom filter, the database is never queried before the operation
+        verify(repository, never()).findById(any(), anyString());
+        Assertions.assertThat(replays("memory")).isEqualTo(1);
+    }
+
+    @Test
+    void testKeyReusedForAnotherOperation() {
+        IdempotencyKeyService service = service(100, 0);
+        service.record(List.of(DEPOSIT));
+        Assertions
+            .assertThatThrownBy(() -> service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal(11), "", "key-1")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("The idempotency key key-1 has already been used for another operation");
+        Assertions
+            .assertThatThrownBy(() -> service.isReplay(WalletOperation.withdrawal(1L, "GBP", new BigDecimal(10), "", "key-1")))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions
+            .assertThatThrownBy(() -> service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal(10), "", " ")))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions
+            .assertThatThrownBy(() -> service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal(10), "", "k".repeat(65))))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testAppliedInTransaction() {
+        IdempotencyKeyService service = service(100, 0);
+        Map<IdempotencyKeyService.Key, WalletOperation> applied = Map.of(IdempotencyKeyService.Key.of(DEPOSIT), DEPOSIT);
+        Assertions.assertThat(service.isReplay(DEPOSIT, applied)).isTrue();
+        // Not remembered until committed
+        Assertions.assertThat(service.isReplay(DEPOSIT)).isFalse();
+    }
+
+    @Test
+    void testBloomFilter() {
+        // Nothing is kept in memory, the Bloom filter tells which keys must be looked up
+        IdempotencyKeyService service = service(0, 1_000);
+        service.record(List.of(DEPOSIT));
+        when(repository.findById(1L, "key-1"))
+            .thenReturn(Optional.of(new IdempotencyKey(1L, "key-1", DEPOSIT.type(), "GBP", new BigDecimal(10))));
+
+        Assertions.assertThat(service.isReplay(DEPOSIT)).isTrue();
+        Assertions.assertThat(service.isReplay(WalletOperation.deposit(1L, "GBP", new BigDecimal(10), "", "key-2"))).isFalse();
+        verify(repository).findById(1L, "key-1");
+        verify(repository, never()).findById(1L, "key-2");
+        Assertions.assertThat(replays("database")).isEqualTo(1);
+    }
+
+    @Test
+    void testReplayConflict() {
+        IdempotencyKeyService service = service(100, 0);
+        DuplicateKeyException conflict = new DuplicateKeyException("duplicate");
+        Runnable failing = () -> {
+            throw conflict;
+        };
+
+        // Not recorded for this key: the exception is not caused by it
+        Assertions.assertThatThrownBy(() -> service.execute(DEPOSIT, failing)).isSameAs(conflict);
+
+        // Recorded by another instance
+        when(repository.findById(1L, "key-1"))
+            .thenReturn(Optional.of(new IdempotencyKey(1L, "key-1", DEPOSIT.type(), "GBP", new BigDecimal(10))));
+        service.execute(DEPOSIT, failing);
+        Assertions.assertThat(replays("constraint")).isEqualTo(1);
+        // Now known in memory
+        Assertions.assertThat(service.isReplay(DEPOSIT)).isTrue();
+        verify(repository, times(2)).findById(1L, "key-1");
+    }
+
+    private IdempotencyKeyService service(long recentKeys, long bloomFilterExpectedKeys) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getWallet().getIdempotency().setRecentKeys(recentKeys);
+        properties.getWallet().getIdempotency().setBloomFilterExpectedKeys(bloomFilterExpectedKeys);
+        return new IdempotencyKeyService(repository, properties, meterRegistry);
+    }
+
+    private double replays(String source) {
+        return meterRegistry.get("wallet.idempotency.replays").tag("source", source).counter().count();
+    }
+}
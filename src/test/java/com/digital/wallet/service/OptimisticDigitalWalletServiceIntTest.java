@@ -0,0 +1,180 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for {@link OptimisticDigitalWalletService}. Concurrent operations are committed by different
+ * threads, so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.wallet.mode=optimistic",
+        // Enough attempts for every thread of the test to win eventually
+        "application.wallet.optimistic.max-attempts=100",
+        "application.wallet.optimistic.max-backoff=10ms",
+    }
+)
+// Operations on the same accounts are retried many times
+@Timeout(value = 1, unit = TimeUnit.MINUTES)
+class OptimisticDigitalWalletServiceIntTest {
+
+    private static final String currency = "GBP";
+
+    private static final BigDecimal initialBalance = new BigDecimal(10_000);
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private OptimisticDigitalWalletService optimisticDigitalWalletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    long paulId;
+    long peterId;
+
+    @BeforeEach
+    void setupRepositories() {
+        paulId = createAccount(1L);
+        peterId = createAccount(2L);
+    }
+
+    private long createAccount(long customerId) {
+        WalletAccount account = new WalletAccount();
+        account.setCustomerId(customerId);
+        account.setCurrencyCode(currency);
+        account.setAmount(initialBalance);
+        return accountRepository.save(account).getCustomerId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testPrimaryServiceIsOptimistic() {
+        Assertions.assertThat(digitalWalletService).isSameAs(optimisticDigitalWalletService);
+    }
+
+    @Test
+    void testOperations() {
+        Assertions
+            .assertThat(digitalWalletService.applyDeposit(paulId, currency, MINIMUM_DEPOSIT, "deposit", null))
+            .isEqualTo(OperationResult.OK);
+        Assertions
+            .assertThat(digitalWalletService.applyWithdrawal(paulId, currency, initialBalance.multiply(BigDecimal.TEN), "withdrawal", null))
+            .extracting(OperationResult::status)
+            .isEqualTo(OperationResult.Status.ABOVE_MAX);
+        digitalWalletService.transfer(paulId, peterId, currency, MINIMUM_DEPOSIT, "transfer");
+        List<WalletOperationResult> results = digitalWalletService.executeBatch(
+            List.of(
+                WalletOperation.deposit(peterId, currency, MINIMUM_DEPOSIT, "batch", null),
+                WalletOperation.withdrawal(paulId, currency, MINIMUM_DEPOSIT, "batch", null)
+            )
+        );
+
+        Assertions.assertThat(results).allMatch(WalletOperationResult::isSuccess);
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(initialBalance.subtract(MINIMUM_DEPOSIT));
+        Assertions
+            .assertThat(findAccount(peterId).getAmount())
+            .isEqualByComparingTo(initialBalance.add(MINIMUM_DEPOSIT).add(MINIMUM_DEPOSIT));
+    }
+
+    /**
+     * Every thread deposits, withdraws and transfers on the same two accounts: the operations conflict on their
+     * versions and are retried until they are all applied.
+     */
+    @Test
+    void testConcurrentOperations() throws Exception {
+        int threads = 4;
+        int iterations = 20;
+        double conflicts = count("wallet.optimistic.conflicts");
+        double retries = total("wallet.optimistic.retries");
+        long operations = operations("wallet.optimistic.retries");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long from = t % 2 == 0 ? paulId : peterId;
+                long to = from == paulId ? peterId : paulId;
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            digitalWalletService.executeDeposit(from, currency, MINIMUM_DEPOSIT, "deposit");
+                            digitalWalletService.executeWithdrawal(from, currency, MINIMUM_DEPOSIT, "withdrawal");
+                            digitalWalletService.transfer(from, to, currency, MINIMUM_DEPOSIT, "transfer");
+                        }
+                        return null;
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                // Fails if any operation has failed
+                future.get(50, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo(initialBalance);
+        Assertions.assertThat(findAccount(peterId).getAmount()).isEqualByComparingTo(initialBalance);
+        Assertions.assertThat(transactionRepository.count()).isEqualTo((long) threads * iterations * 4);
+        // Every operation is recorded once, every conflict but the exhausted ones has been retried
+        Assertions
+            .assertThat(operations("wallet.optimistic.retries") - operations)
+            .isEqualTo((long) threads * iterations * 3);
+        Assertions.assertThat(count("wallet.optimistic.exhausted")).isZero();
+        Assertions
+            .assertThat(count("wallet.optimistic.conflicts") - conflicts)
+            .isEqualTo(total("wallet.optimistic.retries") - retries);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private double total(String name) {
+        return meterRegistry.get(name).summaries().stream().mapToDouble(s -> s.totalAmount()).sum();
+    }
+
+    private long operations(String name) {
+        return meterRegistry.get(name).summaries().stream().mapToLong(s -> s.count()).sum();
+    }
+
+    private WalletAccount findAccount(long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
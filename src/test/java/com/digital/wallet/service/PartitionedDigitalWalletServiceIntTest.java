@@ -0,0 +1,205 @@
+package com.digital.wallet.service;
+
+import static com.digital.wallet.config.Constants.*;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.digital.wallet.service.dto.OperationResult;
+import com.digital.wallet.service.dto.WalletOperation;
+import com.digital.wallet.service.dto.WalletOperationResult;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for {@link PartitionedDigitalWalletService}. Operations are applied by the partition threads, in
+ * their own transactions, so the test is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.wallet.mode=partitioned",
+        "application.wallet.partitioned.partitions=2",
+        "application.wallet.batch.chunk-size=2",
+    }
+)
+class PartitionedDigitalWalletServiceIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private DigitalWalletService digitalWalletService;
+
+    @Autowired
+    private PartitionedDigitalWalletService partitionedDigitalWalletService;
+
+    long paulId;
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testPrimaryServiceIsPartitioned() {
+        Assertions.assertThat(digitalWalletService).isSameAs(partitionedDigitalWalletService);
+    }
+
+    @Test
+    void testDepositWithdrawal() {
+        digitalWalletService.executeDeposit(paulId, currency, new BigDecimal(100), "");
+        digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(40), "");
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("60");
+
+        // Errors are rethrown as is by the blocking methods...
+        Assertions
+            .assertThatThrownBy(() -> digitalWalletService.executeWithdrawal(paulId, currency, new BigDecimal(61), ""))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Insufficient balance");
+        // ... and complete the future exceptionally with the asynchronous ones
+        CompletableFuture<Void> future = partitionedDigitalWalletService.executeDepositAsync(
+            paulId,
+            currency,
+            MAXIMUM_DEPOSIT.add(BigDecimal.ONE),
+            ""
+        );
+        Assertions.assertThat(future).failsWithin(10, TimeUnit.SECONDS).withThrowableThat().withCauseInstanceOf(IllegalArgumentException.class);
+        // ... but are the result of the future of the result API
+        Assertions
+            .assertThat(partitionedDigitalWalletService.applyDepositAsync(paulId, currency, MAXIMUM_DEPOSIT.add(BigDecimal.ONE), "", null))
+            .succeedsWithin(10, TimeUnit.SECONDS)
+            .isEqualTo(OperationResult.ABOVE_MAX);
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("60");
+    }
+
+    @Test
+    void testOperationsAreAppliedInOrder() {
+        int nbOfTrx = 50;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < nbOfTrx; i++) {
+            futures.add(partitionedDigitalWalletService.executeDepositAsync(paulId, currency, MINIMUM_DEPOSIT.add(new BigDecimal(i)), ""));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        Page<WalletTransaction> transactions = digitalWalletService.getTransactions(paulId, Pageable.unpaged());
+        Assertions.assertThat(transactions.getContent()).hasSize(nbOfTrx);
+        int i = 0;
+        for (WalletTransaction trx : transactions.getContent().stream().sorted((a, b) -> Long.compare(a.getId(), b.getId())).toList()) {
+            Assertions.assertThat(trx.getAmount()).isEqualByComparingTo(MINIMUM_DEPOSIT.add(new BigDecimal(i++)));
+        }
+        // 50 * 10 + (0 + 1 + ... + 49)
+        Assertions.assertThat(findAccount(paulId).getAmount()).isEqualByComparingTo("1725");
+    }
+
+    @Test
+    void testBatch() {
+        List<WalletOperation> operations = new ArrayList<>();
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            WalletAccount account = new WalletAccount();
+            account.setCustomerId(100L + i);
+            account.setCurrencyCode(currency);
+            account.setAmount(new BigDecimal(0));
+            customerIds.add(accountRepository.save(account).getCustomerId());
+        }
+        // Several chunks per partition, the withdrawal of each customer is applied after its deposits
+        for (Long customerId : customerIds) {
+            operations.add(WalletOperation.deposit(customerId, currency, new BigDecimal(100), ""));
+        }
+        for (Long customerId : customerIds) {
+            operations.add(WalletOperation.withdrawal(customerId, currency, new BigDecimal(150), ""));
+            operations.add(WalletOperation.deposit(customerId, currency, new BigDecimal(20), ""));
+        }
+        List<WalletOperationResult> results = digitalWalletService.executeBatch(operations);
+
+        Assertions.assertThat(results).extracting(WalletOperationResult::operation).containsExactlyElementsOf(operations);
+        for (WalletOperationResult result : results) {
+            Assertions.assertThat(result.isSuccess()).isEqualTo(result.operation().amount().intValue() != 150);
+        }
+        for (Long customerId : customerIds) {
+            Assertions.assertThat(findAccount(customerId).getAmount()).isEqualByComparingTo("120");
+        }
+    }
+
+    @Test
+    void testConcurrentTransfers() throws Exception {
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            WalletAccount account = new WalletAccount();
+            account.setCustomerId(100L + i);
+            account.setCurrencyCode(currency);
+            account.setAmount(new BigDecimal(1000));
+            customerIds.add(accountRepository.save(account).getCustomerId());
+        }
+        int threads = 8;
+        int iterations = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Half of the threads transfer in one direction, half in the other one: no deadlock
+                int direction = t % 2 == 0 ? 1 : customerIds.size() - 1;
+                int offset = t;
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            int from = (offset + i) % customerIds.size();
+                            int to = (from + direction) % customerIds.size();
+                            digitalWalletService.transfer(customerIds.get(from), customerIds.get(to), currency, MINIMUM_DEPOSIT, "");
+                        }
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each transfer has been applied entirely: the total is unchanged
+        BigDecimal total = accountRepository
+            .findAllByCustomerIdIn(customerIds)
+            .stream()
+            .map(WalletAccount::getAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Assertions.assertThat(total).isEqualByComparingTo("4000");
+        Assertions.assertThat(transactionRepository.count()).isEqualTo(2L * threads * iterations);
+    }
+
+    private WalletAccount findAccount(Long customerId) {
+        return accountRepository.findByCustomerIdAndCurrencyCode(customerId, currency).orElseThrow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.digital.wallet.service;
+
+import com.digital.wallet.IntegrationTest;
+import com.digital.wallet.domain.TransactionType;
+import com.digital.wallet.domain.WalletAccount;
+import com.digital.wallet.domain.WalletTransaction;
+import com.digital.wallet.repository.WalletAccountRepository;
+import com.digital.wallet.repository.WalletTransactionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for {@link TransactionExportService}. Transactions are read with their own connection so the test
+ * is not transactional and cleans up after itself.
+ */
+@IntegrationTest
+@TestPropertySource(properties = "application.wallet.export.fetch-size=3")
+class TransactionExportServiceIntTest {
+
+    private static final String currency = "GBP";
+
+    @Autowired
+    private WalletAccountRepository accountRepository;
+
+    @Autowired
+    private WalletTransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    long paulId;
+
+    Instant start = Instant.parse("2024-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setupRepositories() {
+        WalletAccount paulAccount = new WalletAccount();
+        paulAccount.setCustomerId(1L);
+        paulAccount.setCurrencyCode(currency);
+        paulAccount.setAmount(new BigDecimal(0));
+        paulId = accountRepository.save(paulAccount).getCustomerId();
+
+        // One transaction per day, the dates are set with SQL because they are audited and not updatable
+        List<WalletTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            WalletTransaction trx = new WalletTransaction();
+            trx.setCustomerId(paulId);
+            trx.setAmount(new BigDecimal(10 + i));
+            trx.setCurrencyCode(currency);
+            trx.setRemarks(i == 0 ? "salary, \"january\"" : "day " + i);
+            trx.setTransactionType(TransactionType.CREDIT);
+            transactions.add(trx);
+        }
+        transactions = transactionRepository.saveAll(transactions);
+        List<WalletTransaction> saved = transactions;
+        // The connections of the pool are not in auto-commit mode
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < saved.size(); i++) {
+                jdbcTemplate.update(
+                    "UPDATE wallet_transaction SET created_date = ? WHERE id = ?",
+                    Timestamp.from(start.plus(i, ChronoUnit.DAYS)),
+                    saved.get(i).getId()
+                );
+            }
+        });
+        // Another customer
+        WalletTransaction other = new WalletTransaction();
+        other.setCustomerId(paulId + 1);
+        other.setAmount(BigDecimal.TEN);
+        other.setCurrencyCode(currency);
+        other.setRemarks("");
+        other.setTransactionType(TransactionType.CREDIT);
+        transactionRepository.save(other);
+    }
+
+    @AfterEach
+    void cleanRepositories() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    @Test
+    void testStreamTransactions() {
+        try (Stream<WalletTransaction> transactions = exportService.streamTransactions(paulId, null, null)) {
+            Assertions
+                .assertThat(transactions.map(WalletTransaction::getAmount).map(BigDecimal::intValue))
+                .containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+        }
+        // Date range, inclusive lower bound and exclusive upper bound
+        try (
+            Stream<WalletTransaction> transactions = exportService.streamTransactions(
+                paulId,
+                start.plus(2, ChronoUnit.DAYS),
+                start.plus(5, ChronoUnit.DAYS)
+            )
+        ) {
+            Assertions.assertThat(transactions.map(WalletTransaction::getAmount).map(BigDecimal::intValue)).containsExactly(12, 13, 14);
+        }
+    }
+
+    @Test
+    void testExportNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Instant to = start.plus(2, ChronoUnit.DAYS);
+        long count = exportService.exportTransactions(paulId, null, to, TransactionExportService.Format.NDJSON, out);
+
+        Assertions.assertThat(count).isEqualTo(2);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        Assertions.assertThat(first.get("customerId").asLong()).isEqualTo(paulId);
+        Assertions.assertThat(first.get("createdDate").asText()).isEqualTo("2024-01-01T00:00:00Z");
+        Assertions.assertThat(first.get("transactionType").asText()).isEqualTo("CREDIT");
+        Assertions.assertThat(first.get("amount").decimalValue()).isEqualByComparingTo("10");
+        Assertions.assertThat(first.get("currencyCode").asText()).isEqualTo(currency);
+        Assertions.assertThat(first.get("remarks").asText()).isEqualTo("salary, \"january\"");
+        Assertions.assertThat(objectMapper.readTree(lines[1]).get("remarks").asText()).isEqualTo("day 1");
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Instant to = start.plus(2, ChronoUnit.DAYS);
+        long count = exportService.exportTransactions(paulId, null, to, TransactionExportService.Format.CSV, out);
+
+        Assertions.assertThat(count).isEqualTo(2);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        Assertions.assertThat(lines).hasSize(3);
+        Assertions.assertThat(lines[0]).isEqualTo("id,customerId,createdDate,transactionType,amount,currencyCode,remarks");
+        Assertions.assertThat(lines[1]).endsWith("," + paulId + ",2024-01-01T00:00:00Z,CREDIT,10.00,GBP,\"salary, \"\"january\"\"\"");
+        Assertions.assertThat(lines[2]).endsWith("," + paulId + ",2024-01-02T00:00:00Z,CREDIT,11.00,GBP,day 1");
+    }
+}
@@ -0,0 +1,140 @@
+package com.digital.wallet.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.digital.wallet.config.ApplicationProperties;
+import com.digital.wallet.repository.TransactionPartition;
+import com.digital.wallet.repository.WalletTransactionPartitionRepository;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TransactionPartitionService}.
+ */
+class TransactionPartitionServiceTest {
+
+    private static final TransactionPartition LEGACY = TransactionPartition.of(
+        "wallet_transaction_legacy",
+        "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')"
+    );
+
+    @Test
+    void testParseBound() {
+        Assertions.assertThat(LEGACY.from()).isNull();
+        Assertions.assertThat(LEGACY.to()).isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+        TransactionPartition partition = TransactionPartition.of(
+            "wallet_transaction_p202611",
+            "FOR VALUES FROM ('2026-11-01 00:00:00') TO ('2026-12-01 00:00:00')"
+        );
+        Assertions.assertThat(partition.from()).isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+        Assertions.assertThat(partition.to()).isEqualTo(LocalDateTime.of(2026, 12, 1, 0, 0));
+        Assertions.assertThatThrownBy(() -> TransactionPartition.of("x", "DEFAULT")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPartitionsToCreate() {
+        // After the legacy partition, until January
+        List<TransactionPartition> partitions = TransactionPartitionService.partitionsToCreate(
+            List.of(LEGACY),
+            YearMonth.of(2026, 10),
+            YearMonth.of(2027, 1)
+        );
+        Assertions
+            .assertThat(partitions)
+            .containsExactly(
+                partition(2026, 11, LocalDateTime.of(2026, 11, 1, 0, 0)),
+                partition(2026, 12, LocalDateTime.of(2026, 12, 1, 0, 0)),
+                partition(2027, 1, LocalDateTime.of(2027, 1, 1, 0, 0))
+            );
+
+        // Up to date
+        Assertions
+            .assertThat(TransactionPartitionService.partitionsToCreate(List.of(LEGACY), YearMonth.of(2026, 10), YearMonth.of(2026, 10)))
+            .isEmpty();
+
+        // Not maintained for a while: no partition is created in the past
+        Assertions
+            .assertThat(TransactionPartitionService.partitionsToCreate(List.of(LEGACY), YearMonth.of(2027, 3), YearMonth.of(2027, 3)))
+            .containsExactly(partition(2027, 3, LocalDateTime.of(2027, 3, 1, 0, 0)));
+
+        // The last partition ends in the middle of a month
+        TransactionPartition midMonth = new TransactionPartition("wallet_transaction_legacy", null, LocalDateTime.of(2026, 10, 18, 0, 0));
+        Assertions
+            .assertThat(TransactionPartitionService.partitionsToCreate(List.of(midMonth), YearMonth.of(2026, 10), YearMonth.of(2026, 10)))
+            .containsExactly(partition(2026, 10, LocalDateTime.of(2026, 10, 18, 0, 0)));
+    }
+
+    @Test
+    void testExpiredPartitions() {
+        List<TransactionPartition> existing = List.of(
+            LEGACY,
+            partition(2026, 11, LocalDateTime.of(2026, 11, 1, 0, 0)),
+            partition(2026, 12, LocalDateTime.of(2026, 12, 1, 0, 0))
+        );
+        Assertions
+            .assertThat(TransactionPartitionService.expiredPartitions(existing, LocalDateTime.of(2026, 11, 1, 0, 0)))
+            .containsExactly(LEGACY);
+        Assertions
+            .assertThat(TransactionPartitionService.expiredPartitions(existing, LocalDateTime.of(2026, 12, 1, 0, 0)))
+            .containsExactly(existing.get(0), existing.get(1));
+    }
+
+    @Test
+    void testMaintain() {
+        WalletTransactionPartitionRepository repository = mock(WalletTransactionPartitionRepository.class);
+        when(repository.isPartitioned()).thenReturn(true);
+        when(repository.findPartitions()).thenReturn(List.of(LEGACY, partition(2026, 11, LocalDateTime.of(2026, 11, 1, 0, 0))));
+        ApplicationProperties properties = new ApplicationProperties();
+        ApplicationProperties.TransactionPartitions config = properties.getWallet().getTransactionPartitions();
+        config.setMonthsAhead(1);
+        config.setRetentionMonths(1);
+        config.setRetentionAction(ApplicationProperties.TransactionPartitions.RetentionAction.DROP);
+
+        new TransactionPartitionService(repository, properties).maintain(LocalDateTime.of(2026, 12, 18, 10, 0));
+
+        verify(repository).createPartition(partition(2026, 12, LocalDateTime.of(2026, 12, 1, 0, 0)));
+        verify(repository).createPartition(partition(2027, 1, LocalDateTime.of(2027, 1, 1, 0, 0)));
+        // Transactions from November are kept
+        verify(repository).dropPartition(LEGACY.name());
+        verify(repository, never()).detachPartition(anyString());
+        verify(repository, never()).hasUncompactedTransactions(anyString());
+    }
+
+    @Test
+    void testMaintainLedger() {
+        WalletTransactionPartitionRepository repository = mock(WalletTransactionPartitionRepository.class);
+        when(repository.isPartitioned()).thenReturn(true);
+        when(repository.findPartitions()).thenReturn(List.of(LEGACY));
+        when(repository.hasUncompactedTransactions(LEGACY.name())).thenReturn(true);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getWallet().setWriteMode(ApplicationProperties.Wallet.WriteMode.LEDGER);
+        properties.getWallet().getTransactionPartitions().setRetentionMonths(1);
+
+        new TransactionPartitionService(repository, properties).maintain(LocalDateTime.of(2026, 12, 18, 10, 0));
+
+        // Not compacted yet
+        verify(repository, never()).detachPartition(anyString());
+    }
+
+    @Test
+    void testNotPartitioned() {
+        WalletTransactionPartitionRepository repository = mock(WalletTransactionPartitionRepository.class);
+        new TransactionPartitionService(repository, new ApplicationProperties()).maintain(LocalDateTime.of(2026, 12, 18, 10, 0));
+        verify(repository, never()).findPartitions();
+        verify(repository, never()).createPartition(any());
+    }
+
+    private static TransactionPartition partition(int year, int month, LocalDateTime from) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+        return new TransactionPartition(
+            String.format("wallet_transaction_p%d%02d", year, month),
+            from,
+            yearMonth.plusMonths(1).atDay(1).atStartOfDay()
+        );
+    }
+}
@@ -0,0 +1,180 @@
+package com.digital.wallet.service.lock;
+
+import com.digital.wallet.domain.AccountKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link LockTable} implementations.
+ */
+class LockTableTest {
+
+    @Test
+    void testStripedMutualExclusion() throws Exception {
+        checkMutualExclusion(new StripedLockTable(4, false));
+        checkMutualExclusion(new StripedLockTable(4, true));
+    }
+
+    @Test
+    void testPerKeyMutualExclusion() throws Exception {
+        PerKeyLockTable table = new PerKeyLockTable(4, false);
+        checkMutualExclusion(table);
+        // Every lock has been released, nothing should remain in the table
+        Assertions.assertThat(table.locksInUse()).isZero();
+    }
+
+    @Test
+    void testPerKeyEviction() {
+        PerKeyLockTable table = new PerKeyLockTable(4, false);
+        LockTable.Handle first = table.lock(1L);
+        LockTable.Handle second = table.lock(2L);
+        Assertions.assertThat(table.locksInUse()).isEqualTo(2);
+        // Reentrant
+        try (LockTable.Handle ignored = table.lock(1L)) {
+            Assertions.assertThat(table.locksInUse()).isEqualTo(2);
+        }
+        first.close();
+        Assertions.assertThat(table.locksInUse()).isEqualTo(1);
+        second.close();
+        Assertions.assertThat(table.locksInUse()).isZero();
+    }
+
+    @Test
+    void testAccountsOfACustomerDoNotContend() throws Exception {
+        PerKeyLockTable table = new PerKeyLockTable(4, false);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LockTable.Handle ignored = table.lock(new AccountKey(1L, "GBP"))) {
+            Future<?> otherCurrency = executor.submit(() -> table.lock(new AccountKey(1L, "EUR")).close());
+            otherCurrency.get(10, TimeUnit.SECONDS);
+            Future<?> sameCurrency = executor.submit(() -> table.lock(new AccountKey(1L, "GBP")).close());
+            Assertions.assertThatThrownBy(() -> sameCurrency.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        } finally {
+            executor.shutdown();
+            Assertions.assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        Assertions.assertThat(table.locksInUse()).isZero();
+    }
+
+    @Test
+    void testLockAll() throws Exception {
+        checkLockAll(new StripedLockTable(4, false));
+        PerKeyLockTable table = new PerKeyLockTable(4, false);
+        checkLockAll(table);
+        Assertions.assertThat(table.locksInUse()).isZero();
+    }
+
+    @Test
+    void testNoLock() throws Exception {
+        NoLockTable table = new NoLockTable();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        table.bindTo(registry);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LockTable.Handle ignored = table.lock(1L)) {
+            // Does not wait, the accounts are locked by the database
+            executor.submit(() -> table.lockAll(List.of(1L, 2L)).close()).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertThat(registry.get("wallet.lock.acquisitions").tag("type", "none").functionCounter().count()).isEqualTo(2);
+        Assertions.assertThat(registry.get("wallet.lock.wait").tag("type", "none").functionTimer().count()).isZero();
+    }
+
+    @Test
+    void testStatistics() throws Exception {
+        StripedLockTable table = new StripedLockTable(2, false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        table.bindTo(registry);
+
+        LockTable.Handle handle = table.lock(1L);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> waiting = executor.submit(() -> {
+                started.countDown();
+                table.lock(1L).close();
+            });
+            started.await();
+            String stripe = String.valueOf(table.indexFor(1L));
+            while (registry.get("wallet.lock.queue").tag("stripe", stripe).gauge().value() != 1) {
+                Thread.onSpinWait();
+            }
+            handle.close();
+            waiting.get(10, TimeUnit.SECONDS);
+
+            Assertions.assertThat(registry.get("wallet.lock.queue").tag("stripe", stripe).gauge().value()).isZero();
+            Assertions.assertThat(registry.get("wallet.lock.acquisitions").tag("stripe", stripe).functionCounter().count()).isEqualTo(2);
+            Assertions.assertThat(registry.get("wallet.lock.wait").tag("stripe", stripe).functionTimer().count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkMutualExclusion(LockTable table) throws Exception {
+        int threads = 4;
+        int iterations = 10_000;
+        long[] counters = new long[8];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            long key = i % counters.length;
+                            try (LockTable.Handle ignored = table.lock(key)) {
+                                counters[(int) key]++;
+                            }
+                        }
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(counters).containsOnly((long) threads * iterations / counters.length);
+    }
+
+    /**
+     * Two threads lock the same keys given in opposite orders, and increment a counter per key.
+     */
+    private static void checkLockAll(LockTable table) throws Exception {
+        int iterations = 10_000;
+        long[] counters = new long[3];
+        List<List<Long>> keys = List.of(List.of(0L, 1L, 2L), List.of(2L, 1L, 0L));
+        ExecutorService executor = Executors.newFixedThreadPool(keys.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Long> k : keys) {
+                futures.add(
+                    executor.submit(() -> {
+                        for (int i = 0; i < iterations; i++) {
+                            try (LockTable.Handle ignored = table.lockAll(k)) {
+                                for (Long key : k) {
+                                    counters[key.intValue()]++;
+                                }
+                            }
+                        }
+                    })
+                );
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(counters).containsOnly((long) keys.size() * iterations);
+    }
+}